@@ -0,0 +1,44 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Imaginile sintetice și tipurile de BufferedImage folosite de toate benchmark-urile.
+ */
+final class BenchImages {
+
+    private BenchImages() {
+    }
+
+    // Tipul BufferedImage după numele folosit în parametrul "type" al benchmark-urilor.
+    static int type(String name) {
+        switch (name) {
+            case "3BYTE_BGR": return BufferedImage.TYPE_3BYTE_BGR;
+            case "INT_RGB": return BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB": return BufferedImage.TYPE_INT_ARGB;
+            case "4BYTE_ABGR": return BufferedImage.TYPE_4BYTE_ABGR;
+            default: throw new IllegalArgumentException("Tip necunoscut: " + name
+                    + " (3BYTE_BGR, INT_RGB, INT_ARGB, 4BYTE_ABGR)");
+        }
+    }
+
+    // Imagine deterministă de aproximativ megapixels MP, în raport 4:3: un gradient cu zgomot, ca histograma să nu fie uniformă.
+    static BufferedImage synthetic(double megapixels, String typeName) {
+        int width = (int) Math.round(Math.sqrt(megapixels * 1e6 * 4 / 3));
+        int height = (int) Math.round(megapixels * 1e6 / width);
+        BufferedImage image = new BufferedImage(width, height, type(typeName));
+        Random random = new Random(42);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 200 / width + random.nextInt(56)) & 0xFF;
+                int g = (y * 180 / height + random.nextInt(76)) & 0xFF;
+                int b = ((x + y) * 120 / (width + height) + random.nextInt(64)) & 0xFF;
+                row[x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+}
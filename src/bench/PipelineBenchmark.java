@@ -0,0 +1,93 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import work.DecodedFrame;
+import work.ImageProcess;
+import work.MappedBmpWriter;
+import work.RasterSegmentTransport;
+import work.ReadImage;
+import work.WriteImage;
+
+/**
+ * Tot lanțul, pe fișiere temporare: BMP pe disc -> ReadImage -> ImageProcess -> WriteImage -> BMP pe disc.
+ * Firele sunt create înainte de fiecare invocare, în afara măsurătorii; o invocare durează milisecunde sau mai mult,
+ * deci Level.Invocation nu distorsionează rezultatul.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"1", "16", "100"})
+    public double megapixels;
+
+    @Param({"3BYTE_BGR", "INT_RGB", "INT_ARGB"})
+    public String type;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path input;
+    private Path output;
+    private ReadImage producer;
+    private ImageProcess consumer;
+    private WriteImage writer;
+
+    @Setup(Level.Trial)
+    public void writeInput() throws IOException {
+        input = Files.createTempFile("bench-in", ".bmp");
+        output = Files.createTempFile("bench-out", ".bmp");
+        MappedBmpWriter.write(BenchImages.synthetic(megapixels, type), input);
+    }
+
+    @Setup(Level.Invocation)
+    public void createStages() {
+        BlockingQueue<DecodedFrame> buffer = new LinkedBlockingQueue<DecodedFrame>();
+        RasterSegmentTransport transport = new RasterSegmentTransport();
+        producer = new ReadImage(buffer, input.toString());
+        consumer = new ImageProcess(buffer, transport);
+        consumer.setParallelism(threads);
+        writer = new WriteImage(transport, output.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    // Întoarce dimensiunea fișierului scris, ca rezultatul lanțului să fie folosit.
+    @Benchmark
+    public long pipeline() throws InterruptedException, IOException {
+        producer.start();
+        consumer.start();
+        writer.start();
+        producer.join();
+        consumer.join();
+        writer.join();
+        return Files.size(output);
+    }
+}
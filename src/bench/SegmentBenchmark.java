@@ -0,0 +1,69 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import work.BmpStreamSegmentTransport;
+import work.ImageSegment;
+
+/**
+ * Codificarea și decodificarea segmentelor în formatul BMP prefixat de lungime (modul --pipe): 4 segmente orizontale,
+ * scrise într-un buffer și citite înapoi. Nu depinde de numărul de fire, deci nu are parametrul threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentBenchmark {
+    private static final int SEGMENTS = 4;
+
+    @Param({"1", "16", "100"})
+    public double megapixels;
+
+    @Param({"3BYTE_BGR", "INT_RGB", "INT_ARGB"})
+    public String type;
+
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        image = BenchImages.synthetic(megapixels, type);
+    }
+
+    @Benchmark
+    public void roundTrip(Blackhole blackhole) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BmpStreamSegmentTransport sender = new BmpStreamSegmentTransport(bytes);
+        int segmentHeight = image.getHeight() / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            int y = i * segmentHeight;
+            int h = (i == SEGMENTS - 1) ? (image.getHeight() - y) : segmentHeight;
+            sender.send(new ImageSegment(i, 0, y, image.getSubimage(0, y, image.getWidth(), h), -1, -1));
+        }
+        sender.finish();
+        BmpStreamSegmentTransport receiver = new BmpStreamSegmentTransport(new ByteArrayInputStream(bytes.toByteArray()));
+        ImageSegment segment;
+        while ((segment = receiver.receive()) != null) {
+            blackhole.consume(segment);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import work.ChannelHistogram;
+import work.ChannelLut;
+import work.ImageProcess;
+import work.ParallelEqualizer;
+import work.RasterKernel;
+
+/**
+ * Etapele de calcul ale egalizării, pe o imagine aflată deja în memorie: histograma (saveHistogram),
+ * construirea LUT-ului (histogramToLut, matematica lui equalizeHistogram) și aplicarea LUT-ului.
+ * Cu threads > 1, histograma și aplicarea trec prin ParallelEqualizer. Fiecare metodă întoarce rezultatul,
+ * ca JIT-ul să nu poată elimina lucrul măsurat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageBenchmark {
+
+    @Param({"1", "16", "100"})
+    public double megapixels;
+
+    @Param({"3BYTE_BGR", "INT_RGB", "INT_ARGB"})
+    public String type;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private BufferedImage image;
+    private BufferedImage target;
+    private ChannelHistogram histogram;
+    private ChannelLut lut;
+    private ParallelEqualizer parallel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        image = BenchImages.synthetic(megapixels, type);
+        target = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        histogram = ImageProcess.saveHistogram(image);
+        lut = ImageProcess.histogramToLut(histogram);
+        parallel = threads > 1 ? new ParallelEqualizer(threads) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (parallel != null) {
+            parallel.shutdown();
+        }
+    }
+
+    @Benchmark
+    public ChannelHistogram histogram() {
+        return parallel != null ? parallel.histogram(image) : ImageProcess.saveHistogram(image);
+    }
+
+    @Benchmark
+    public ChannelLut lut() {
+        return ImageProcess.histogramToLut(histogram);
+    }
+
+    @Benchmark
+    public BufferedImage apply() {
+        if (parallel != null) {
+            parallel.applyLut(image, target, lut);
+        } else {
+            RasterKernel.applyLut(image, target, 0, image.getHeight(), lut);
+        }
+        return target;
+    }
+}
@@ -1,82 +1,509 @@
-package test;
-
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
-import java.util.Scanner;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
-import work.ImageProcess;
-import work.ReadImage;
-import work.WriteImage;
-
-public class Main {
-    @SuppressWarnings("resource")
-    public static void main(String[] args) {
-        // Initializarea scanner-ului pentru citirea inputului de la utilizator
-Scanner scanner = new Scanner(System.in);
-
-
-    // Solicită utilizatorului să introducă calea către fișierul de intrare (imaginea sursă)
-    System.out.println("Introduceți calea către fișierul de intrare (imaginea sursă):");
-    String inputPath = scanner.nextLine();
-
-    // Solicită utilizatorului să introducă calea către fișierul de ieșire (imaginea procesată)
-    System.out.println("Introduceți calea către fișierul de ieșire (imaginea procesată):");
-    String outputPath = scanner.nextLine();
-
-    // Creează un buffer comun între Producer (ReadImage) și Consumer (ImageProcess)
-    // Acest buffer va fi folosit pentru a stoca și a transfera imaginea procesată între aceste două componente
-    BlockingQueue<BufferedImage> buffer = new LinkedBlockingQueue<>();
-
-    // Creează un PipedOutputStream și un PipedInputStream
-    // Acestea sunt folosite pentru a realiza comunicarea între Consumer (ImageProcess) și Writer (WriteImage)
-    PipedOutputStream outputPipe = new PipedOutputStream();
-    PipedInputStream inputPipe = new PipedInputStream();
-
-    try {
-        // Conectează PipedOutputStream cu PipedInputStream
-        // Aceasta permite ca datele scrise în outputPipe să fie citite din inputPipe
-        outputPipe.connect(inputPipe);
-    } catch (IOException e) {
-        // Tratează cazul în care conexiunea între pipe-uri eșuează
-        System.err.println("Eroare la conectarea Pipes-urilor: " + e.getMessage());
-        // Închide scanner-ul și încheie programul în caz de eroare
-        scanner.close();
-        return;
-    }
-
-    // Creează instanțele pentru Producer (ReadImage), Consumer (ImageProcess) și Writer (WriteImage)
-    ReadImage producer = new ReadImage(buffer, inputPath); // Producer care citește imaginea
-    ImageProcess consumer = new ImageProcess(buffer, outputPipe); // Consumer care procesează imaginea
-    WriteImage writer = new WriteImage(inputPipe, outputPath); // Writer care scrie imaginea procesată în fișier
-
-    // Pornește thread-urile pentru Producer, Consumer și Writer
-    producer.start();
-    consumer.start();
-    writer.start();
-
-    // Așteaptă finalizarea execuției tuturor thread-urilor
-    try {
-        producer.join();
-        consumer.join();
-        writer.join();
-    } catch (InterruptedException e) {
-        // Gestionează cazul în care thread-ul curent este întrerupt
-        Thread.currentThread().interrupt();
-        System.err.println("Procesul a fost întrerupt: " + e.getMessage());
-    }
-
-    // Afișează timpul necesar pentru fiecare etapă a procesului
-    producer.timpCitire();
-    consumer.timpProcesare();
-    writer.timpScriere();
-
-    // Informează utilizatorul că prelucrarea imaginii a fost finalizată
-
-        System.out.println("Prelucrarea imaginii a fost finalizată.");
-        scanner.close();
-    }
-}
+package test;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import work.BatchPipeline;
+import work.BmpStreamSegmentTransport;
+import work.BytePipe;
+import work.ChannelEngine;
+import work.DecodedFrame;
+import work.EqualizationEngine;
+import work.ExecutionProfile;
+import work.FramedSegmentTransport;
+import work.ImageProcess;
+import work.IoExecutors;
+import work.LutCache;
+import work.NormalizeServer;
+import work.NormalizeService;
+import work.OutputFormat;
+import work.PipelineMetrics;
+import work.RasterSegmentTransport;
+import work.RasterPool;
+import work.RunManifest;
+import work.ReadImage;
+import work.SegmentTransport;
+import work.ShardWorker;
+import work.StreamingEqualizer;
+import work.TileLayout;
+import work.WorkQueue;
+import work.WriteImage;
+
+public class Main {
+    // Capacitatea cache-ului de LUT-uri când este activat doar prin --lut-tolerance.
+    private static final int DEFAULT_LUT_CACHE = 64;
+    // Portul implicit al modului --serve.
+    private static final int DEFAULT_SERVICE_PORT = 8085;
+
+    @SuppressWarnings("resource")
+    public static void main(String[] args) {
+        // Modul batch: --batch <director|glob> <director-iesire> [--read N] [--process N] [--write N] [--queue N] [--metrics F]
+        //             [--lut-cache N] [--lut-tolerance T] [--engine channel|luminance|clahe[:CxR[:LIMITA]]|running[:ALPHA[:PAS[:MAXIM]]]]
+        //             [--io threads|per-file] [--in-flight N] [--format bmp|png|raw] [--manifest F]
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        // Modul streaming, cu memorie mărginită: --stream <intrare> <iesire> [--strip N]
+        if (args.length > 0 && args[0].equals("--stream")) {
+            runStreaming(args);
+            return;
+        }
+        // Serviciul care rămâne pornit și primește lucrări prin HTTP:
+        //             --serve [port] [--engine E] [--input-root DIR] [--output-root DIR] [--token T]
+        if (args.length > 0 && args[0].equals("--serve")) {
+            runService(args);
+            return;
+        }
+        // Doar etapa de scriere, într-un proces separat: --writer <adresa> <iesire> [--format F]; pereche cu --send
+        if (args.length > 0 && args[0].equals("--writer")) {
+            runWriter(args);
+            return;
+        }
+        // Coada comună mai multor procese: --queue <director> add|shard|work|status ...
+        if (args.length > 0 && args[0].equals("--queue")) {
+            runQueue(args);
+            return;
+        }
+        // Initializarea scanner-ului pentru citirea inputului de la utilizator
+Scanner scanner = new Scanner(System.in);
+
+
+    // Solicită utilizatorului să introducă calea către fișierul de intrare (imaginea sursă)
+    System.out.println("Introduceți calea către fișierul de intrare (imaginea sursă):");
+    String inputPath = scanner.nextLine();
+
+    // Solicită utilizatorului să introducă calea către fișierul de ieșire (imaginea procesată)
+    System.out.println("Introduceți calea către fișierul de ieșire (imaginea procesată):");
+    String outputPath = scanner.nextLine();
+
+    // Creează un buffer comun între Producer (ReadImage) și Consumer (ImageProcess)
+    // Acest buffer va fi folosit pentru a stoca și a transfera imaginea procesată între aceste două componente
+    BlockingQueue<DecodedFrame> buffer = new LinkedBlockingQueue<>();
+
+    // Transportul dintre Consumer (ImageProcess) și Writer (WriteImage).
+    // Implicit segmentele sunt predate prin referință. Celelalte variante trec prin octeți:
+    //   --pipe         formatul vechi, BMP prefixat de lungime, printr-un BytePipe
+    //   --framed       pixelii necomprimați, în cadre cu poziția segmentului, printr-un BytePipe
+    //   --send ADRESA  cadrele sunt trimise unui proces pornit cu --writer (tcp:HOST:PORT sau unix:CALE)
+    // Capacitatea BytePipe-ului, în octeți, se alege cu --pipe-capacity (implicit 1 MB).
+    SegmentTransport senderSide;
+    SegmentTransport receiverSide;
+    String capacitySpec = optionValue(args, "--pipe-capacity");
+    int pipeCapacity = capacitySpec != null ? Integer.parseInt(capacitySpec) : BytePipe.DEFAULT_CAPACITY;
+    String sendAddress = optionValue(args, "--send");
+    if (sendAddress != null) {
+        try {
+            senderSide = FramedSegmentTransport.connect(sendAddress);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Eroare la conectarea la procesul de scriere: " + e.getMessage());
+            scanner.close();
+            return;
+        }
+        // Fișierul rezultat este scris de celălalt proces.
+        receiverSide = null;
+    } else if (Arrays.asList(args).contains("--pipe")) {
+        // BytePipe înlocuiește perechea PipedOutputStream/PipedInputStream: capacitate aleasă și așteptare fără interogări periodice
+        BytePipe pipe = new BytePipe(pipeCapacity);
+        senderSide = new BmpStreamSegmentTransport(Channels.newOutputStream(pipe.sink()));
+        receiverSide = new BmpStreamSegmentTransport(Channels.newInputStream(pipe.source()));
+    } else if (Arrays.asList(args).contains("--framed")) {
+        FramedSegmentTransport[] ends = FramedSegmentTransport.inMemory(pipeCapacity);
+        senderSide = ends[0];
+        receiverSide = ends[1];
+    } else {
+        RasterSegmentTransport transport = new RasterSegmentTransport();
+        senderSide = transport;
+        receiverSide = transport;
+    }
+
+    // Creează instanțele pentru Producer (ReadImage), Consumer (ImageProcess) și Writer (WriteImage)
+    ReadImage producer = new ReadImage(buffer, inputPath); // Producer care citește imaginea
+    ImageProcess consumer = new ImageProcess(buffer, senderSide); // Consumer care procesează imaginea
+    consumer.setParallelism(Runtime.getRuntime().availableProcessors()); // Histograma și LUT-ul pe toate nucleele
+    // Writer care scrie imaginea procesată în fișier; lipsește când scrierea se face în alt proces (--send)
+    WriteImage writer = receiverSide != null ? new WriteImage(receiverSide, outputPath) : null;
+
+    // Profilul DEMO (pauze între segmente și afișarea pixelilor) se activează explicit cu argumentul --demo
+    ExecutionProfile profile = Arrays.asList(args).contains("--demo") ? ExecutionProfile.DEMO : ExecutionProfile.THROUGHPUT;
+    producer.setProfile(profile);
+    consumer.setProfile(profile);
+    if (writer != null) {
+        writer.setProfile(profile);
+    }
+
+    // Dimensiunile dalelor se aleg cu --tile LATIMExINALTIME; profilul DEMO păstrează implicit cele 4 benzi inițiale
+    String tileSpec = optionValue(args, "--tile");
+    TileLayout tiles = tileSpec != null ? TileLayout.parse(tileSpec)
+            : profile == ExecutionProfile.DEMO ? TileLayout.bandCount(4) : TileLayout.defaults();
+    producer.setTileLayout(tiles);
+    consumer.setTileLayout(tiles);
+
+    // Imaginile de lucru trec printr-o rezervă comună: imaginea decodată de Producer devine imaginea rezultat a Consumer-ului
+    RasterPool rasterPool = new RasterPool();
+    producer.setRasterPool(rasterPool);
+    consumer.setRasterPool(rasterPool);
+    if (writer != null) {
+        writer.setRasterPool(rasterPool);
+    }
+
+    // Algoritmul de egalizare se alege cu --engine channel|luminance|clahe|running; implicit fiecare canal separat
+    String engineSpec = optionValue(args, "--engine");
+    if (engineSpec != null) {
+        consumer.setEngine(EqualizationEngine.forName(engineSpec));
+    }
+
+    // Formatul fișierului rezultat se alege cu --format bmp|png|raw; implicit după extensia căii de ieșire
+    String formatName = optionValue(args, "--format");
+    if (formatName != null && writer != null) {
+        writer.setOutputFormat(OutputFormat.forName(formatName));
+    }
+
+    // Măsurătorile etapelor; cu --metrics <fisier.json|fisier.csv> sunt scrise și periodic, o dată pe secundă
+    PipelineMetrics metrics = new PipelineMetrics();
+    producer.setMetrics(metrics);
+    consumer.setMetrics(metrics);
+    if (writer != null) {
+        writer.setMetrics(metrics);
+    }
+    String metricsFile = optionValue(args, "--metrics");
+    if (metricsFile != null) {
+        metrics.startDump(Paths.get(metricsFile), 1, TimeUnit.SECONDS);
+    }
+
+    // Cu --manifest <fisier>, o imagine a cărei intrare, ieșire și parametri nu s-au schimbat de la ultima rulare nu se mai procesează
+    String manifestFile = writer != null ? optionValue(args, "--manifest") : null;
+    RunManifest manifest = null;
+    String parameters = null;
+    if (manifestFile != null) {
+        // Aceeași descriere a parametrilor ca în BatchPipeline: motorul și formatul fișierului rezultat.
+        parameters = "engine=" + (engineSpec != null ? EqualizationEngine.forName(engineSpec) : "channel") + ",format="
+                + (formatName != null ? OutputFormat.forName(formatName) : OutputFormat.forPath(Paths.get(outputPath))).getExtension();
+        try {
+            manifest = RunManifest.open(Paths.get(manifestFile));
+            if (manifest.isUpToDate(Paths.get(inputPath), Paths.get(outputPath), parameters)) {
+                System.out.println("Imaginea nu s-a schimbat de la ultima rulare; " + outputPath + " este la zi.");
+                manifest.close();
+                scanner.close();
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Evidența rulărilor nu poate fi folosită: " + e.getMessage());
+            manifest = null;
+        }
+    }
+
+    // Pornește thread-urile pentru Producer, Consumer și Writer
+    producer.start();
+    consumer.start();
+    if (writer != null) {
+        writer.start();
+    }
+
+    // Așteaptă finalizarea execuției tuturor thread-urilor
+    try {
+        producer.join();
+        consumer.join();
+        if (writer != null) {
+            writer.join();
+        }
+    } catch (InterruptedException e) {
+        // Gestionează cazul în care thread-ul curent este întrerupt
+        Thread.currentThread().interrupt();
+        System.err.println("Procesul a fost întrerupt: " + e.getMessage());
+    }
+
+    // Ca în modul batch, doar o imagine scrisă cu succes este trecută în evidență; WriteImage nu scrie
+    // (și isWritten rămâne false) dacă transmisia s-a întrerupt sau segmentele primite nu acoperă toată imaginea.
+    if (manifest != null) {
+        try {
+            if (writer.isWritten()) {
+                manifest.record(Paths.get(inputPath), Paths.get(outputPath), parameters);
+            }
+            manifest.close();
+        } catch (IOException e) {
+            System.err.println("Eroare la actualizarea evidenței rulărilor: " + e.getMessage());
+        }
+    }
+
+    // Afișează măsurătorile fiecărei etape a procesului
+    System.out.print(metrics);
+    try {
+        metrics.close();
+    } catch (IOException e) {
+        System.err.println("Eroare la scrierea măsurătorilor: " + e.getMessage());
+    }
+
+    // Informează utilizatorul că prelucrarea imaginii a fost finalizată
+
+        System.out.println("Prelucrarea imaginii a fost finalizată.");
+        scanner.close();
+    }
+
+    // Valoarea care urmează după opțiunea dată, sau null dacă opțiunea lipsește.
+    private static String optionValue(String[] args, String option) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Procesează toate imaginile dintr-un director sau glob și le scrie în directorul de ieșire.
+     * Fiecare etapă (citire, procesare, scriere) are propriul număr de workeri, iar la final se afișează debitul.
+     */
+    private static void runBatch(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Utilizare: --batch <director|glob> <director-iesire> [--read N] [--process N] [--write N] [--queue N] [--metrics F] [--lut-cache N] [--lut-tolerance T] [--engine E] [--io threads|per-file] [--in-flight N] [--format bmp|png|raw] [--manifest F]");
+            return;
+        }
+        try {
+            BatchPipeline pipeline = new BatchPipeline(BatchPipeline.resolveInputs(args[1]), Paths.get(args[2]));
+            RunManifest manifest = null;
+            EqualizationEngine engine = null;
+            int lutCapacity = 0;
+            double lutTolerance = 0;
+            for (int i = 3; i + 1 < args.length; i += 2) {
+                if (args[i].equals("--metrics")) {
+                    pipeline.getMetrics().startDump(Paths.get(args[i + 1]), 1, TimeUnit.SECONDS);
+                    continue;
+                }
+                if (args[i].equals("--engine")) {
+                    engine = EqualizationEngine.forName(args[i + 1]);
+                    continue;
+                }
+                if (args[i].equals("--manifest")) {
+                    manifest = RunManifest.open(Paths.get(args[i + 1]));
+                    pipeline.setManifest(manifest);
+                    continue;
+                }
+                if (args[i].equals("--format")) {
+                    pipeline.setOutputFormat(OutputFormat.forName(args[i + 1]));
+                    continue;
+                }
+                if (args[i].equals("--io")) {
+                    // per-file: un fir (virtual, pe Java 21+) pentru fiecare citire și scriere, potrivit pentru multe fișiere mici
+                    pipeline.setPerFileIo(parsePerFileIo(args[i + 1]));
+                    continue;
+                }
+                if (args[i].equals("--lut-tolerance")) {
+                    lutTolerance = Double.parseDouble(args[i + 1]);
+                    continue;
+                }
+                int value = Integer.parseInt(args[i + 1]);
+                switch (args[i]) {
+                    case "--read": pipeline.setReadWorkers(value); break;
+                    case "--process": pipeline.setProcessWorkers(value); break;
+                    case "--write": pipeline.setWriteWorkers(value); break;
+                    case "--queue": pipeline.setQueueCapacity(value); break;
+                    case "--lut-cache": lutCapacity = value; break;
+                    case "--in-flight": pipeline.setMaxInFlight(value); break;
+                    default: System.err.println("Opțiune necunoscută: " + args[i]);
+                }
+            }
+            // Cache-ul de LUT-uri ține de egalizarea pe canale; cu alt motor opțiunile lui ar fi ignorate.
+            boolean lutOptions = lutCapacity > 0 || lutTolerance > 0;
+            if (lutOptions && engine != null && !(engine instanceof ChannelEngine)) {
+                throw new IllegalArgumentException("--lut-cache și --lut-tolerance se folosesc doar cu --engine channel, nu cu "
+                        + engine.getName());
+            }
+            // --engine channel este egalizarea implicită a lotului (motorul null), cea care primește cache-ul de LUT-uri.
+            pipeline.setEngine(engine instanceof ChannelEngine ? null : engine);
+            // Cache-ul de LUT-uri este activat de oricare dintre opțiuni; toleranța singură folosește capacitatea implicită.
+            if (lutOptions) {
+                LutCache cache = new LutCache(lutCapacity > 0 ? lutCapacity : DEFAULT_LUT_CACHE);
+                cache.setTolerance(lutTolerance);
+                pipeline.setLutCache(cache);
+            }
+            BatchPipeline.Report report = pipeline.run();
+            System.out.println("Lot finalizat: " + report);
+            System.out.print(pipeline.getMetrics());
+            if (pipeline.getLutCache() != null) {
+                System.out.println(pipeline.getLutCache());
+            }
+            if (pipeline.getRasterPool() != null) {
+                System.out.println(pipeline.getRasterPool());
+            }
+            if (manifest != null) {
+                System.out.println(manifest);
+                manifest.close();
+            }
+            pipeline.getMetrics().close();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Eroare în modul batch: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Procesul a fost întrerupt: " + e.getMessage());
+        }
+    }
+
+    private static boolean parsePerFileIo(String mode) {
+        switch (mode) {
+            case "per-file": return true;
+            case "threads": return false;
+            default: throw new IllegalArgumentException("Mod de I/O necunoscut: " + mode + " (threads sau per-file)");
+        }
+    }
+
+    /**
+     * Pornește NormalizeService cu interfața HTTP pe 127.0.0.1 și rulează până la oprirea procesului (Ctrl+C).
+     * Lucrările pot citi doar din --input-root și scrie doar în --output-root (implicit directorul curent).
+     * Tokenul vine din --token sau din variabila NORMALIZE_TOKEN; altfel se generează unul și se afișează la pornire.
+     * Exemplu: curl -X POST -H "Authorization: Bearer $NORMALIZE_TOKEN"
+     *              "http://127.0.0.1:8085/jobs?input=imagini/elefant.bmp&output=rezultat.bmp&wait=true"
+     */
+    private static void runService(String[] args) {
+        int port = args.length > 1 && !args[1].startsWith("--") ? Integer.parseInt(args[1]) : DEFAULT_SERVICE_PORT;
+        NormalizeService service = new NormalizeService();
+        String engineSpec = optionValue(args, "--engine");
+        try {
+            if (engineSpec != null) {
+                service.setEngine(EqualizationEngine.forName(engineSpec));
+            }
+            String token = optionValue(args, "--token");
+            if (token == null) {
+                token = System.getenv("NORMALIZE_TOKEN");
+            }
+            boolean generated = token == null || token.isEmpty();
+            if (generated) {
+                token = NormalizeServer.newToken();
+            }
+            String inputRoot = optionValue(args, "--input-root");
+            String outputRoot = optionValue(args, "--output-root");
+            NormalizeServer server = new NormalizeServer(service, port, token,
+                    Paths.get(inputRoot != null ? inputRoot : "."), Paths.get(outputRoot != null ? outputRoot : "."));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                service.close();
+            }));
+            System.out.println("Serviciul ascultă pe http://127.0.0.1:" + server.getPort() + " (" + service.getCpuThreads()
+                    + " fire de calcul, I/O pe " + (IoExecutors.isVirtual() ? "fire virtuale" : "fire de sistem") + ")");
+            if (generated) {
+                System.out.println("Token: " + token);
+            }
+            Thread.currentThread().join();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Eroare la pornirea serviciului: " + e.getMessage());
+            service.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            service.close();
+        }
+    }
+
+    /**
+     * Rulează doar WriteImage: așteaptă conexiunea procesului pornit cu --send la aceeași adresă,
+     * primește cadrele și scrie imaginea. Cele două etape pot rula astfel pe nuclee sau mașini diferite.
+     */
+    private static void runWriter(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Utilizare: --writer <tcp:HOST:PORT|unix:CALE> <iesire> [--format bmp|png|raw]");
+            return;
+        }
+        try {
+            System.out.println("Se așteaptă segmentele la " + args[1]);
+            WriteImage writer = new WriteImage(FramedSegmentTransport.accept(args[1]), args[2]);
+            String formatName = optionValue(args, "--format");
+            if (formatName != null) {
+                writer.setOutputFormat(OutputFormat.forName(formatName));
+            }
+            PipelineMetrics metrics = new PipelineMetrics();
+            writer.setMetrics(metrics);
+            writer.start();
+            writer.join();
+            System.out.print(metrics);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Eroare în procesul de scriere: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lucrul distribuit prin WorkQueue. Coada este un director comun; oricâte procese pornite cu "work", pe aceeași
+     * mașină sau pe mașini care văd directorul, iau unitățile pe rând, iar "status" arată debitul agregat.
+     *   --queue DIR add <director|glob> <director-iesire> [--format bmp|png|raw]
+     *   --queue DIR shard <intrare.bmp> <iesire.bmp> [fragmente]
+     *   --queue DIR work [--lease MS] [--name NUME]
+     *   --queue DIR status
+     */
+    private static void runQueue(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Utilizare: --queue <director> add <director|glob> <director-iesire> [--format F]"
+                    + " | shard <intrare.bmp> <iesire.bmp> [fragmente] | work [--lease MS] [--name NUME] | status");
+            return;
+        }
+        try {
+            WorkQueue queue = new WorkQueue(Paths.get(args[1]));
+            switch (args[2]) {
+                case "add": {
+                    String formatName = optionValue(args, "--format");
+                    OutputFormat format = formatName != null ? OutputFormat.forName(formatName) : OutputFormat.BMP;
+                    int added = queue.addImages(BatchPipeline.resolveInputs(args[3]), Paths.get(args[4]), format);
+                    System.out.println(added + " imagini adăugate în " + queue.getDirectory());
+                    break;
+                }
+                case "shard": {
+                    int shards = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+                    int added = queue.addShards(Paths.get(args[3]), Paths.get(args[4]), shards);
+                    System.out.println(args[3] + " împărțită în " + added + " fragmente în " + queue.getDirectory());
+                    break;
+                }
+                case "work": {
+                    String name = optionValue(args, "--name");
+                    ShardWorker worker = name != null ? new ShardWorker(queue, name) : new ShardWorker(queue);
+                    String lease = optionValue(args, "--lease");
+                    if (lease != null) {
+                        worker.setLeaseMillis(Long.parseLong(lease));
+                    }
+                    worker.run();
+                    System.out.println(worker);
+                    System.out.print(queue.summary());
+                    break;
+                }
+                case "status":
+                    System.out.print(queue.summary());
+                    break;
+                default:
+                    System.err.println("Comandă necunoscută pentru coadă: " + args[2] + " (add, shard, work, status)");
+            }
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println("Eroare în modul coadă: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Egalizează o imagine în două treceri pe benzi, fără a o ține întreagă în memorie.
+     * Formatul de ieșire este dat de extensia fișierului rezultat (implicit BMP).
+     */
+    private static void runStreaming(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Utilizare: --stream <intrare> <iesire> [--strip N]");
+            return;
+        }
+        try {
+            int strip = StreamingEqualizer.DEFAULT_STRIP_HEIGHT;
+            if (args.length >= 5 && args[3].equals("--strip")) {
+                strip = Integer.parseInt(args[4]);
+            }
+            String output = args[2];
+            int dot = output.lastIndexOf('.');
+            String format = dot < 0 ? "bmp" : output.substring(dot + 1);
+            long start = System.nanoTime();
+            new StreamingEqualizer(strip).equalize(Paths.get(args[1]), Paths.get(output), format);
+            System.out.println("Imaginea a fost scrisă în: " + output + " (" + (System.nanoTime() - start) / 1e9f + " secunde)");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Eroare în modul streaming: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package work;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * PNG-urile scrise pe benzi trebuie să fie citite de ImageIO exact ca imaginea sursă, oricâte IDAT-uri ar avea.
+ * Benzile mici (câteva rânduri) forțează mai multe blocuri deflate și combinarea sumelor Adler-32.
+ */
+class PngWriterTest {
+    // Câteva rânduri de 97 de pixeli pe bandă, deci zeci de benzi pentru imaginile de test.
+    private static final int STRIP_BYTES = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeImageRoundTripsThroughImageIo() throws IOException {
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR}) {
+            BufferedImage image = randomImage(97, 61, type);
+            Path output = directory.resolve("image-" + type + ".png");
+            new PngWriter(ForkJoinPool.commonPool(), Deflater.DEFAULT_COMPRESSION, STRIP_BYTES).writeImage(image, output);
+            assertSamePixels(image, ImageIO.read(output.toFile()));
+        }
+    }
+
+    @Test
+    void openStripsRoundTripsThroughImageIo() throws IOException {
+        for (boolean alpha : new boolean[] {false, true}) {
+            BufferedImage image = randomImage(97, 61, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Path output = directory.resolve("strips-" + alpha + ".png");
+            PngWriter writer = new PngWriter(ForkJoinPool.commonPool(), 6, STRIP_BYTES);
+            // Benzile primite (7 rânduri) nu coincid cu blocurile comprimate, iar banda e mai înaltă decât rândurile valide.
+            BufferedImage strip = new BufferedImage(image.getWidth(), 9, image.getType());
+            int[] row = new int[image.getWidth()];
+            try (StripSink sink = writer.openStrips(output, image.getWidth(), image.getHeight(), alpha)) {
+                for (int y = 0; y < image.getHeight(); y += 7) {
+                    int rows = Math.min(7, image.getHeight() - y);
+                    for (int r = 0; r < rows; r++) {
+                        image.getRGB(0, y + r, row.length, 1, row, 0, row.length);
+                        strip.setRGB(0, r, row.length, 1, row, 0, row.length);
+                    }
+                    sink.writeStrip(strip, y, rows);
+                }
+            }
+            assertSamePixels(image, ImageIO.read(output.toFile()));
+        }
+    }
+
+    @Test
+    void adler32CombineMatchesAdler32OfConcatenation() {
+        Random random = new Random(7);
+        // 200000 > 65521, ca restul lungimii să nu fie chiar lungimea.
+        byte[] data = new byte[200_000];
+        random.nextBytes(data);
+        for (int split : new int[] {0, 1, 65_520, 65_521, 65_522, 100_000, 199_999, 200_000}) {
+            long whole = adler(data, 0, data.length);
+            long combined = PngWriter.adler32Combine(adler(data, 0, split), adler(data, split, data.length - split),
+                    data.length - split);
+            assertEquals(whole, combined, "împărțire la " + split);
+        }
+        // Blocuri cu octeți 0xFF, cu sume apropiate de modul.
+        byte[] ones = new byte[70_000];
+        Arrays.fill(ones, (byte) 0xFF);
+        assertEquals(adler(ones, 0, ones.length),
+                PngWriter.adler32Combine(adler(ones, 0, 5_553), adler(ones, 5_553, ones.length - 5_553), ones.length - 5_553));
+    }
+
+    private static long adler(byte[] data, int offset, int length) {
+        Adler32 adler = new Adler32();
+        adler.update(data, offset, length);
+        return adler.getValue();
+    }
+
+    private static BufferedImage randomImage(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(width * 31L + height + type);
+        boolean alpha = image.getColorModel().hasAlpha();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = random.nextInt();
+                image.setRGB(x, y, alpha ? rgb : rgb | 0xFF000000);
+            }
+        }
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertNotNull(actual, "ImageIO nu a putut citi PNG-ul");
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixelul " + x + "," + y);
+            }
+        }
+    }
+}
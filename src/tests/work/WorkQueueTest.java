@@ -0,0 +1,147 @@
+package work;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Ciclul unei unități din coadă: revendicare, reînnoire, terminare sau eșec, preluarea după expirarea termenului
+ * și ordinea fazelor HISTOGRAM -> APPLY ale unei imagini fragmentate. Termenele sunt scurte, de sute de ms.
+ */
+class WorkQueueTest {
+    private static final long LEASE = 500;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void claimRenewComplete() throws IOException {
+        WorkQueue queue = queueWithImages(1);
+        WorkUnit unit = queue.claim("w1", LEASE);
+        assertNotNull(unit);
+        assertEquals(WorkUnit.State.CLAIMED, unit.getState());
+        assertEquals("w1", unit.getOwner());
+        assertEquals(1, unit.getAttempts());
+        assertTrue(Files.exists(queue.leaseFile(unit.getId())));
+        assertNull(queue.claim("w2", LEASE), "unitatea revendicată nu este disponibilă altui worker");
+
+        assertTrue(queue.renew(unit, "w1", LEASE));
+        assertFalse(queue.renew(unit, "w2", LEASE), "doar cel care deține unitatea o poate reînnoi");
+        assertTrue(queue.complete(unit, "w1", 100, 1_000));
+        assertFalse(Files.exists(queue.leaseFile(unit.getId())), "termenul se șterge la terminare");
+        assertFalse(queue.renew(unit, "w1", LEASE));
+
+        WorkUnit done = queue.list().get(0);
+        assertEquals(WorkUnit.State.DONE, done.getState());
+        assertEquals("w1", done.getOwner());
+        assertTrue(queue.isFinished());
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverAndOldOwnerIsRejected() throws IOException, InterruptedException {
+        WorkQueue queue = queueWithImages(1);
+        WorkUnit first = queue.claim("w1", LEASE);
+        assertNotNull(first);
+
+        // Reînnoirea din fișierul de termen ține unitatea și după termenul dat la revendicare.
+        Thread.sleep(LEASE / 2);
+        assertTrue(queue.renew(first, "w1", LEASE));
+        Thread.sleep(LEASE / 2 + 100);
+        assertNull(queue.claim("w2", LEASE), "termenul reînnoit nu a expirat încă");
+
+        Thread.sleep(LEASE);
+        WorkUnit second = queue.claim("w2", LEASE);
+        assertNotNull(second, "termenul expirat permite preluarea");
+        assertEquals(first.getId(), second.getId());
+        assertEquals("w2", second.getOwner());
+        assertEquals(2, second.getAttempts());
+
+        assertFalse(queue.renew(first, "w1", LEASE), "vechiul worker și-a pierdut revendicarea");
+        assertFalse(queue.complete(first, "w1", 100, 1_000), "rezultatul vechiului worker este ignorat");
+        assertTrue(queue.complete(second, "w2", 100, 1_000));
+        assertEquals("w2", queue.list().get(0).getOwner());
+    }
+
+    @Test
+    void failRequeuesUntilMaxAttempts() throws IOException {
+        WorkQueue queue = queueWithImages(1);
+        for (int attempt = 1; attempt <= WorkQueue.MAX_ATTEMPTS; attempt++) {
+            WorkUnit unit = queue.claim("w" + attempt, LEASE);
+            assertNotNull(unit, "încercarea " + attempt);
+            assertEquals(attempt, unit.getAttempts());
+            queue.fail(unit, "w" + attempt, "eroare " + attempt);
+            assertFalse(Files.exists(queue.leaseFile(unit.getId())));
+        }
+        WorkUnit failed = queue.list().get(0);
+        assertEquals(WorkUnit.State.FAILED, failed.getState());
+        assertEquals("eroare " + WorkQueue.MAX_ATTEMPTS, failed.getError());
+        assertNull(queue.claim("w4", LEASE));
+        assertTrue(queue.isFinished());
+    }
+
+    @Test
+    void applyWaitsForAllHistogramsOfTheGroup() throws IOException {
+        WorkQueue queue = new WorkQueue(directory.resolve("queue"));
+        Path input = directory.resolve("in.bmp");
+        new MappedBmpWriter(input, 8, 10).close();
+        assertEquals(2, queue.addShards(input, directory.resolve("out.bmp"), 2));
+
+        WorkUnit first = queue.claim("w1", LEASE);
+        WorkUnit second = queue.claim("w2", LEASE);
+        assertEquals(WorkUnit.Kind.HISTOGRAM, first.getKind());
+        assertEquals(WorkUnit.Kind.HISTOGRAM, second.getKind());
+        assertNull(queue.claim("w3", LEASE), "APPLY nu este disponibil cât timp o histogramă nu s-a terminat");
+
+        WorkQueue.writeHistogram(new ChannelHistogram(), queue.histogramFile(first));
+        assertTrue(queue.complete(first, "w1", 40, 1_000));
+        assertNull(queue.claim("w3", LEASE), "APPLY așteaptă și ultima histogramă");
+
+        WorkQueue.writeHistogram(new ChannelHistogram(), queue.histogramFile(second));
+        assertTrue(queue.complete(second, "w2", 40, 1_000));
+        assertTrue(Files.exists(queue.mergedHistogramFile(first.getGroup())), "ultima histogramă le unește");
+
+        WorkUnit apply = queue.claim("w3", LEASE);
+        assertNotNull(apply);
+        assertEquals(WorkUnit.Kind.APPLY, apply.getKind());
+        assertEquals(first.getGroup(), apply.getGroup());
+    }
+
+    @Test
+    void applyFailsWhenAHistogramFails() throws IOException {
+        WorkQueue queue = new WorkQueue(directory.resolve("queue"));
+        Path input = directory.resolve("in.bmp");
+        new MappedBmpWriter(input, 8, 10).close();
+        queue.addShards(input, directory.resolve("out.bmp"), 1);
+
+        for (int attempt = 1; attempt <= WorkQueue.MAX_ATTEMPTS; attempt++) {
+            WorkUnit histogram = queue.claim("w1", LEASE);
+            assertEquals(WorkUnit.Kind.HISTOGRAM, histogram.getKind());
+            queue.fail(histogram, "w1", "citire eșuată");
+        }
+        assertNull(queue.claim("w1", LEASE));
+        for (WorkUnit unit : queue.list()) {
+            assertEquals(WorkUnit.State.FAILED, unit.getState(), unit.toString());
+        }
+        assertTrue(queue.isFinished());
+    }
+
+    private WorkQueue queueWithImages(int count) throws IOException {
+        WorkQueue queue = new WorkQueue(directory.resolve("queue"));
+        Path[] inputs = new Path[count];
+        for (int i = 0; i < count; i++) {
+            inputs[i] = directory.resolve("image" + i + ".bmp");
+        }
+        assertEquals(count, queue.addImages(Arrays.asList(inputs), directory.resolve("out"), OutputFormat.BMP));
+        return queue;
+    }
+}
@@ -0,0 +1,115 @@
+package work;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Aplicarea LUT-ului cu Vector API (jdk.incubator.vector): pixelii sunt despachetați în benzi vectoriale,
+ * valorile noi se citesc din tabele printr-un gather, apoi pixelii sunt împachetați la loc.
+ * Clasa este folosită doar prin VectorLut și este obținută prin reflecție de RasterKernel, numai dacă modulul
+ * este prezent (--add-modules jdk.incubator.vector). Resturile de rând mai scurte decât un vector trec pe calea scalară.
+ *
+ * Stă în src/vector, separat de restul pachetului: numai acest director se compilează cu modulul incubator,
+ * astfel încât src/work se compilează cu un javac simplu.
+ */
+final class VectorLutKernel implements VectorLut {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Același număr de benzi ca INTS, pentru încărcarea octeților care se extind apoi la int.
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, INTS.length() * 8)));
+    // Alpha pentru imaginile fără alpha; la imaginile cu alpha, aceeași mască păstrează octetul sursei.
+    private static final int ALPHA = 0xFF000000;
+
+    // Deplasarea în tabela de 768 de valori pentru fiecare bandă, în cele 3 vectoare consecutive
+    // care acoperă un număr întreg de pixeli (3 * lanes octeți).
+    private static final IntVector OFFSETS_0 = channelOffsets(0);
+    private static final IntVector OFFSETS_1 = channelOffsets(1);
+    private static final IntVector OFFSETS_2 = channelOffsets(2);
+    // Indicii pentru gather; câte un tablou pe fir, refolosit de la un rând la altul.
+    private final ThreadLocal<int[][]> indices = ThreadLocal.withInitial(() -> new int[3][INTS.length()]);
+
+    private VectorLutKernel() {
+    }
+
+    /**
+     * Creează implementarea vectorială dacă lățimea vectorilor de pe această mașină se potrivește.
+     *
+     * returneaza kernelul, sau null dacă vectorii au mai puțin de 4 benzi ori octeții nu acoperă aceleași benzi ca int-urile.
+     */
+    static VectorLutKernel create() {
+        int lanes = INTS.length();
+        if (lanes < 4 || BYTES.length() != lanes) {
+            return null;
+        }
+        return new VectorLutKernel();
+    }
+
+    private static IntVector channelOffsets(int part) {
+        int lanes = INTS.length();
+        int[] offsets = new int[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            offsets[lane] = ((part * lanes + lane) % 3) * 256;
+        }
+        return IntVector.fromArray(INTS, offsets, 0);
+    }
+
+    @Override
+    public void applyInterleaved(byte[] src, int p, byte[] dst, int q, int length, int[] table) {
+        int lanes = INTS.length();
+        int[] index = indices.get()[0];
+        int block = 3 * lanes;
+        int i = 0;
+        for (; i + block <= length; i += block) {
+            lookupBytes(src, p + i, dst, q + i, table, index, OFFSETS_0);
+            lookupBytes(src, p + i + lanes, dst, q + i + lanes, table, index, OFFSETS_1);
+            lookupBytes(src, p + i + 2 * lanes, dst, q + i + 2 * lanes, table, index, OFFSETS_2);
+        }
+        for (; i < length; i++) {
+            dst[q + i] = (byte) table[(i % 3) * 256 + (src[p + i] & 0xFF)];
+        }
+    }
+
+    // Un vector de octeți: extindere la int, deplasare după canal, gather din tabelă și restrângere la octeți.
+    private static void lookupBytes(byte[] src, int p, byte[] dst, int q, int[] table, int[] index, IntVector offsets) {
+        ((IntVector) ByteVector.fromArray(BYTES, src, p).convertShape(VectorOperators.B2I, INTS, 0))
+                .and(0xFF)
+                .add(offsets)
+                .intoArray(index, 0);
+        IntVector mapped = IntVector.fromArray(INTS, table, 0, index, 0);
+        ((ByteVector) mapped.convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(dst, q);
+    }
+
+    @Override
+    public void applyPacked(int[] src, int p, int[] dst, int q, int length, int[] table, boolean keepAlpha) {
+        int alphaMask = keepAlpha ? ALPHA : 0;
+        int alphaFill = keepAlpha ? 0 : ALPHA;
+        int lanes = INTS.length();
+        int[][] index = indices.get();
+        int i = 0;
+        for (; i + lanes <= length; i += lanes) {
+            IntVector rgb = IntVector.fromArray(INTS, src, p + i);
+            rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF).intoArray(index[0], 0);
+            rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF).intoArray(index[1], 0);
+            rgb.and(0xFF).intoArray(index[2], 0);
+            IntVector red = IntVector.fromArray(INTS, table, 0, index[0], 0);
+            IntVector green = IntVector.fromArray(INTS, table, 256, index[1], 0);
+            IntVector blue = IntVector.fromArray(INTS, table, 512, index[2], 0);
+            red.lanewise(VectorOperators.LSHL, 16)
+                    .or(green.lanewise(VectorOperators.LSHL, 8))
+                    .or(blue)
+                    .or(rgb.and(alphaMask))
+                    .or(alphaFill)
+                    .intoArray(dst, q + i);
+        }
+        for (; i < length; i++) {
+            int rgb = src[p + i];
+            dst[q + i] = (rgb & alphaMask) | alphaFill
+                    | (table[(rgb >> 16) & 0xFF] << 16)
+                    | (table[256 + ((rgb >> 8) & 0xFF)] << 8)
+                    | table[512 + (rgb & 0xFF)];
+        }
+    }
+}
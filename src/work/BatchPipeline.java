@@ -0,0 +1,646 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Modul batch: trece mai multe imagini prin lanțul citire -> procesare -> scriere.
+ * Etapele comunică prin cozi BlockingQueue mărginite, astfel încât o etapă rapidă este frânată
+ * (backpressure) când etapa următoare nu ține pasul și imaginile decodate nu se adună în memorie.
+ * Fiecare etapă are propriul număr de workeri, iar la final se raportează debitul total.
+ */
+public class BatchPipeline {
+    // Marcaj de sfârșit trimis fiecărui worker din etapa următoare.
+    private static final Item END = new Item(null, null, null);
+
+    private final List<Path> inputs;
+    private final Path outputDir;
+    // Directorul comun al intrărilor; ieșirile păstrează căile relative la el, ca "a/x.bmp" și "b/x.bmp" să nu se suprapună.
+    private final Path inputRoot;
+    private int readWorkers = 2;
+    private int processWorkers = Runtime.getRuntime().availableProcessors();
+    private int writeWorkers = 2;
+    private int queueCapacity = 8;
+    private PipelineMetrics metrics = new PipelineMetrics();
+    private LutCache lutCache;
+    private EqualizationEngine engine;
+    private boolean perFileIo;
+    private int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    private RasterPool rasterPool = new RasterPool();
+    private OutputFormat outputFormat = OutputFormat.BMP;
+    private RunManifest manifest;
+
+    public BatchPipeline(List<Path> inputs, Path outputDir) {
+        this.inputs = new ArrayList<Path>(inputs);
+        this.outputDir = outputDir;
+        this.inputRoot = commonParent(this.inputs);
+    }
+
+    public void setReadWorkers(int readWorkers) {
+        this.readWorkers = positive(readWorkers, "readWorkers");
+    }
+
+    public void setProcessWorkers(int processWorkers) {
+        this.processWorkers = positive(processWorkers, "processWorkers");
+    }
+
+    public void setWriteWorkers(int writeWorkers) {
+        this.writeWorkers = positive(writeWorkers, "writeWorkers");
+    }
+
+    // Capacitatea fiecărei cozi dintre etape, adică numărul maxim de imagini aflate în așteptare.
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = positive(queueCapacity, "queueCapacity");
+    }
+
+    // Cache-ul de LUT-uri partajat de workerii de procesare, util pentru cadre video sau imagini repetate.
+    public void setLutCache(LutCache lutCache) {
+        this.lutCache = lutCache;
+    }
+
+    public LutCache getLutCache() {
+        return lutCache;
+    }
+
+    /**
+     * Modul pentru multe fișiere mici sau directoare de rețea (NFS): fiecare citire și scriere primește propriul fir
+     * (virtual când este disponibil, vezi IoExecutors), iar egalizarea rulează pe cel mult min(process, nuclee) fire.
+     * În acest mod readWorkers și writeWorkers nu se folosesc, iar memoria este mărginită de setMaxInFlight.
+     */
+    public void setPerFileIo(boolean perFileIo) {
+        this.perFileIo = perFileIo;
+    }
+
+    // Numărul maxim de imagini aflate între începutul citirii și sfârșitul scrierii, în modul setPerFileIo.
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = positive(maxInFlight, "maxInFlight");
+    }
+
+    /**
+     * Rezerva din care se iau imaginile citite și cele egalizate; fiecare imagine se înapoiază când etapa următoare
+     * a terminat cu ea. Pentru cadre de aceeași dimensiune, după primele imagini nu se mai alocă nimic.
+     * null dezactivează refolosirea.
+     */
+    public void setRasterPool(RasterPool rasterPool) {
+        this.rasterPool = rasterPool;
+    }
+
+    public RasterPool getRasterPool() {
+        return rasterPool;
+    }
+
+    /**
+     * Evidența rulărilor anterioare: imaginile a căror intrare, ieșire și parametri nu s-au schimbat de la ultima
+     * rulare sunt sărite, iar fiecare imagine scrisă este înregistrată. null (implicit) procesează tot lotul.
+     * Nu se aplică motoarelor cu stare între cadre (isOrdered), unde fiecare cadru depinde de cele anterioare.
+     */
+    public void setManifest(RunManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    // Formatul fișierelor rezultat; fiecare păstrează calea sursei relativă la directorul comun al intrărilor, cu extensia formatului (implicit BMP).
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    /**
+     * Algoritmul de egalizare folosit pentru toate imaginile; null înseamnă egalizarea pe canale, cu cache-ul de LUT-uri.
+     * Dacă motorul cere ordinea cadrelor (isOrdered), lotul se citește și se procesează pe un singur fir, în ordinea listei.
+     */
+    public void setEngine(EqualizationEngine engine) {
+        this.engine = engine;
+    }
+
+    // Registrul în care etapele READ, PROCESS și WRITE își înregistrează latențele și așteptările la cozi.
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Rulează tot lotul și așteaptă terminarea tuturor workerilor.
+     * Erorile pentru o imagine sunt raportate pe System.err și nu opresc restul lotului.
+     *
+     * returneaza raportul cu numărul de imagini, megapixeli și debitul obținut.
+     * throws IOException dacă directorul de ieșire nu poate fi creat.
+     * throws InterruptedException dacă firul apelant este întrerupt în timpul așteptării.
+     */
+    public Report run() throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        checkTargets();
+        EqualizationEngine equalizer = engine != null ? engine : new ChannelEngine(lutCache);
+        // Un motor cu stare între cadre (RunningEngine) trebuie să primească imaginile în ordinea listei:
+        // un singur cititor și un singur worker de procesare; scrierea rămâne paralelă.
+        boolean ordered = equalizer.isOrdered();
+        long start = System.nanoTime();
+        // Parametrii care determină rezultatul; null dacă evidența nu se folosește.
+        String parameters = manifest != null && !ordered ? parameters(equalizer) : null;
+        List<Path> todo = changedInputs(parameters);
+        int skipped = inputs.size() - todo.size();
+        if (perFileIo && !ordered) {
+            return runPerFile(equalizer, todo, parameters, skipped, start);
+        }
+        int readers = ordered ? 1 : readWorkers;
+        int processors = ordered ? 1 : processWorkers;
+
+        ConcurrentLinkedQueue<Path> pending = new ConcurrentLinkedQueue<Path>(todo);
+        BlockingQueue<Item> decoded = new ArrayBlockingQueue<Item>(queueCapacity);
+        BlockingQueue<Item> processed = new ArrayBlockingQueue<Item>(queueCapacity);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        AtomicLong pixels = new AtomicLong();
+        StageMetrics readMetrics = metrics.stage(ProgressEvent.Stage.READ);
+        StageMetrics processMetrics = metrics.stage(ProgressEvent.Stage.PROCESS);
+        StageMetrics writeMetrics = metrics.stage(ProgressEvent.Stage.WRITE);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        AtomicInteger readersLeft = new AtomicInteger(readers);
+        for (int i = 0; i < readers; i++) {
+            threads.add(new Thread(() -> {
+                long workerStart = System.nanoTime();
+                try {
+                    Path path;
+                    while ((path = pending.poll()) != null) {
+                        try {
+                            long itemStart = System.nanoTime();
+                            // Histograma se calculează în timpul citirii, ca workerii de procesare să nu mai parcurgă imaginea;
+                            // motoarele care o estimează singure (RunningEngine cu pas) nu o primesc.
+                            ChannelHistogram histogram = equalizer.usesReaderHistogram() ? new ChannelHistogram() : null;
+                            BufferedImage image = MappedBmpReader.read(path, rasterPool, histogram);
+                            if (image == null) {
+                                throw new IOException("Format de imagine necunoscut.");
+                            }
+                            long done = System.nanoTime();
+                            readMetrics.recordLatency(done - itemStart);
+                            readMetrics.addBytes(Files.size(path));
+                            readMetrics.addPixels((long) image.getWidth() * image.getHeight());
+                            putOrRelease(decoded, new Item(path, image, histogram));
+                            readMetrics.recordQueueWait(System.nanoTime() - done);
+                        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                            // De exemplu o imagine prea mare pentru un BufferedImage; restul lotului continuă.
+                            failures.incrementAndGet();
+                            System.err.println("Eroare la citirea " + path + ": " + e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    readMetrics.addActiveTime(System.nanoTime() - workerStart);
+                    finish(readersLeft, decoded, processors);
+                }
+            }, "batch-read-" + (i + 1)));
+        }
+
+        AtomicInteger processorsLeft = new AtomicInteger(processors);
+        for (int i = 0; i < processors; i++) {
+            threads.add(new Thread(() -> {
+                long workerStart = System.nanoTime();
+                try {
+                    Item item;
+                    while ((item = take(decoded, processMetrics)) != END) {
+                        try {
+                            long itemStart = System.nanoTime();
+                            BufferedImage equalized = equalize(equalizer, item);
+                            long done = System.nanoTime();
+                            processMetrics.recordLatency(done - itemStart);
+                            processMetrics.addPixels((long) equalized.getWidth() * equalized.getHeight());
+                            putOrRelease(processed, new Item(item.path, equalized, null));
+                            processMetrics.recordQueueWait(System.nanoTime() - done);
+                        } catch (RuntimeException | OutOfMemoryError e) {
+                            failures.incrementAndGet();
+                            System.err.println("Eroare la procesarea " + item.path + ": " + e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    processMetrics.addActiveTime(System.nanoTime() - workerStart);
+                    finish(processorsLeft, processed, writeWorkers);
+                }
+            }, "batch-process-" + (i + 1)));
+        }
+
+        for (int i = 0; i < writeWorkers; i++) {
+            threads.add(new Thread(() -> {
+                long workerStart = System.nanoTime();
+                try {
+                    Item item;
+                    while ((item = take(processed, writeMetrics)) != END) {
+                        try {
+                            long itemStart = System.nanoTime();
+                            Path target = write(item, parameters);
+                            writeMetrics.recordLatency(System.nanoTime() - itemStart);
+                            writeMetrics.addBytes(Files.size(target));
+                            written.incrementAndGet();
+                            long count = (long) item.image.getWidth() * item.image.getHeight();
+                            writeMetrics.addPixels(count);
+                            pixels.addAndGet(count);
+                        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                            failures.incrementAndGet();
+                            System.err.println("Eroare la scrierea " + item.path + ": " + e);
+                        } finally {
+                            release(item.image);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    writeMetrics.addActiveTime(System.nanoTime() - workerStart);
+                }
+            }, "batch-write-" + (i + 1)));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+        return new Report(written.get(), failures.get(), skipped, pixels.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Varianta setPerFileIo a lui run: fiecare imagine devine un lanț de trei sarcini, citire -> egalizare -> scriere,
+     * în loc de workeri ficși legați prin cozi. Un Semaphore cu maxInFlight permise ține locul cozilor mărginite:
+     * o citire nouă pornește doar după ce o imagine anterioară a fost scrisă, deci imaginile decodate nu se adună în heap
+     * chiar dacă discul livrează fișierele mai repede decât pot fi egalizate.
+     */
+    private Report runPerFile(EqualizationEngine equalizer, List<Path> todo, String parameters, int skipped, long start)
+            throws InterruptedException {
+        int cpuThreads = Math.min(processWorkers, Runtime.getRuntime().availableProcessors());
+        ExecutorService io = IoExecutors.newPerTaskExecutor("batch-io");
+        ExecutorService cpu = Executors.newFixedThreadPool(cpuThreads, IoExecutors.daemonThreads("batch-process"));
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        AtomicLong pixels = new AtomicLong();
+        StageMetrics readMetrics = metrics.stage(ProgressEvent.Stage.READ);
+        StageMetrics processMetrics = metrics.stage(ProgressEvent.Stage.PROCESS);
+        StageMetrics writeMetrics = metrics.stage(ProgressEvent.Stage.WRITE);
+
+        List<CompletableFuture<Void>> items = new ArrayList<CompletableFuture<Void>>(todo.size());
+        try {
+            for (Path path : todo) {
+                // Așteptarea după un permis este presiunea inversă a acestui mod, deci se măsoară ca așteptare la coadă.
+                long waitStart = System.nanoTime();
+                inFlight.acquire();
+                long waited = System.nanoTime() - waitStart;
+                readMetrics.recordQueueWait(waited);
+                readMetrics.addActiveTime(waited);
+                items.add(CompletableFuture.supplyAsync(() -> {
+                    long itemStart = System.nanoTime();
+                    try {
+                        ChannelHistogram histogram = equalizer.usesReaderHistogram() ? new ChannelHistogram() : null;
+                        BufferedImage image = MappedBmpReader.read(path, rasterPool, histogram);
+                        if (image == null) {
+                            throw new IOException("Format de imagine necunoscut.");
+                        }
+                        long elapsed = System.nanoTime() - itemStart;
+                        readMetrics.recordLatency(elapsed);
+                        readMetrics.addActiveTime(elapsed);
+                        readMetrics.addBytes(Files.size(path));
+                        readMetrics.addPixels((long) image.getWidth() * image.getHeight());
+                        return new Item(path, image, histogram);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Eroare la citirea " + path + ": " + e.getMessage(), e);
+                    }
+                }, io).thenApplyAsync(item -> {
+                    long itemStart = System.nanoTime();
+                    try {
+                        BufferedImage equalized = equalize(equalizer, item);
+                        long elapsed = System.nanoTime() - itemStart;
+                        processMetrics.recordLatency(elapsed);
+                        processMetrics.addActiveTime(elapsed);
+                        processMetrics.addPixels((long) equalized.getWidth() * equalized.getHeight());
+                        return new Item(item.path, equalized, null);
+                    } catch (RuntimeException e) {
+                        throw new IllegalStateException("Eroare la procesarea " + item.path + ": " + e.getMessage(), e);
+                    }
+                }, cpu).thenAcceptAsync(item -> {
+                    long itemStart = System.nanoTime();
+                    try {
+                        Path target = write(item, parameters);
+                        long elapsed = System.nanoTime() - itemStart;
+                        writeMetrics.recordLatency(elapsed);
+                        writeMetrics.addActiveTime(elapsed);
+                        writeMetrics.addBytes(Files.size(target));
+                        long count = (long) item.image.getWidth() * item.image.getHeight();
+                        writeMetrics.addPixels(count);
+                        pixels.addAndGet(count);
+                        written.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Eroare la scrierea " + item.path + ": " + e.getMessage(), e);
+                    } finally {
+                        release(item.image);
+                    }
+                }, io).whenComplete((ignored, error) -> {
+                    inFlight.release();
+                    if (error != null) {
+                        failures.incrementAndGet();
+                        System.err.println(error.getCause() != null ? error.getCause().getMessage() : error.getMessage());
+                    }
+                }));
+            }
+            // Erorile au fost deja numărate; aici se așteaptă doar terminarea tuturor imaginilor.
+            CompletableFuture.allOf(items.toArray(new CompletableFuture<?>[0])).exceptionally(error -> null).join();
+        } finally {
+            io.shutdownNow();
+            cpu.shutdownNow();
+        }
+        return new Report(written.get(), failures.get(), skipped, pixels.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Egalizează imaginea citită, cu histograma calculată de cititor, într-o imagine din rezervă;
+     * sursa nu mai este folosită după aceea și se înapoiază, chiar dacă egalizarea a eșuat.
+     */
+    private BufferedImage equalize(EqualizationEngine equalizer, Item item) {
+        BufferedImage source = item.image;
+        // Imaginile indexate sau nestandard (de exemplu PNG pe 16 biți) se egalizează într-o imagine INT_RGB/INT_ARGB.
+        int type = RasterKernel.workingType(source);
+        if (rasterPool == null) {
+            return equalizer.equalize(source, item.histogram,
+                    new BufferedImage(source.getWidth(), source.getHeight(), type), null);
+        }
+        BufferedImage target = rasterPool.acquire(source.getWidth(), source.getHeight(), type);
+        try {
+            equalizer.equalize(source, item.histogram, target, null);
+            return target;
+        } catch (RuntimeException | Error e) {
+            // Imaginea parțial egalizată nu ajunge la scriere; se înapoiază, ca rezerva să nu piardă imagini.
+            rasterPool.release(target);
+            throw e;
+        } finally {
+            rasterPool.release(source);
+        }
+    }
+
+    // Pune imaginea în coada etapei următoare; dacă workerul este întrerupt între timp, imaginea se înapoiază în rezervă.
+    private void putOrRelease(BlockingQueue<Item> queue, Item item) throws InterruptedException {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            release(item.image);
+            throw e;
+        }
+    }
+
+    private void release(BufferedImage image) {
+        if (rasterPool != null) {
+            rasterPool.release(image);
+        }
+    }
+
+    /**
+     * Scrie imaginea egalizată în directorul de ieșire, cu numele fișierului sursă și extensia formatului, și întoarce calea.
+     * Cu parametri (evidența activă), scrierea reușită este înregistrată în evidență.
+     */
+    private Path write(Item item, String parameters) throws IOException {
+        Path target = target(item.path);
+        if (!target.getParent().equals(outputDir)) {
+            Files.createDirectories(target.getParent());
+        }
+        outputFormat.write(item.image, target);
+        if (parameters != null) {
+            manifest.record(item.path, target, parameters);
+        }
+        return target;
+    }
+
+    // Fișierul rezultat: calea intrării relativă la directorul comun, cu extensia formatului.
+    private Path target(Path input) {
+        Path relative = inputRoot != null ? inputRoot.relativize(input.toAbsolutePath().normalize()) : input.getFileName();
+        Path renamed = outputFormat.rename(relative.getFileName());
+        return outputDir.resolve(relative.getParent() != null ? relative.getParent().resolve(renamed) : renamed);
+    }
+
+    /**
+     * Verifică înainte de pornire că nu există două intrări cu același fișier rezultat (de exemplu "a.bmp" și "a.png"
+     * scrise amândouă ca "a.bmp"), ca una să nu o suprascrie în tăcere pe cealaltă.
+     *
+     * throws IllegalArgumentException dacă două intrări au aceeași ieșire.
+     */
+    private void checkTargets() {
+        Map<Path, Path> sources = new HashMap<Path, Path>();
+        for (Path input : inputs) {
+            Path target = target(input).toAbsolutePath().normalize();
+            Path previous = sources.putIfAbsent(target, input);
+            if (previous != null) {
+                throw new IllegalArgumentException("Imaginile " + previous + " și " + input
+                        + " ar fi scrise în același fișier " + target);
+            }
+        }
+    }
+
+    // Cel mai adânc director care le conține pe toate, sau null pentru o listă goală.
+    private static Path commonParent(List<Path> paths) {
+        Path common = null;
+        for (Path path : paths) {
+            Path parent = path.toAbsolutePath().normalize().getParent();
+            if (common == null) {
+                common = parent;
+            }
+            while (common != null && parent != null && !parent.startsWith(common)) {
+                common = common.getParent();
+            }
+        }
+        return common;
+    }
+
+    // Intrările care trebuie procesate: toate, sau doar cele pentru care evidența nu are o ieșire la zi.
+    private List<Path> changedInputs(String parameters) {
+        if (parameters == null) {
+            return inputs;
+        }
+        List<Path> changed = new ArrayList<Path>(inputs.size());
+        for (Path path : inputs) {
+            try {
+                if (!manifest.isUpToDate(path, target(path), parameters)) {
+                    changed.add(path);
+                }
+            } catch (IOException e) {
+                // Evidența nu poate decide; imaginea se procesează din nou.
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    // Descrierea parametrilor care schimbă fișierul rezultat: motorul, formatul și toleranța cache-ului de LUT-uri.
+    private String parameters(EqualizationEngine equalizer) {
+        String text = "engine=" + equalizer + ",format=" + outputFormat.getExtension();
+        if (engine == null && lutCache != null && lutCache.getTolerance() > 0) {
+            text += ",lut-tolerance=" + lutCache.getTolerance();
+        }
+        return text;
+    }
+
+    // Extrage următorul element din coadă și înregistrează cât a așteptat workerul după el.
+    private static Item take(BlockingQueue<Item> queue, StageMetrics stage) throws InterruptedException {
+        long start = System.nanoTime();
+        Item item = queue.take();
+        stage.recordQueueWait(System.nanoTime() - start);
+        return item;
+    }
+
+    /**
+     * Ultimul worker care termină o etapă trimite câte un marcaj de sfârșit fiecărui worker din etapa următoare.
+     * Se apelează din finally, ca etapa următoare să nu aștepte la nesfârșit după un worker oprit de o eroare.
+     */
+    private static void finish(AtomicInteger left, BlockingQueue<Item> next, int consumers) {
+        if (left.decrementAndGet() == 0) {
+            try {
+                for (int i = 0; i < consumers; i++) {
+                    next.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " trebuie să fie cel puțin 1: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Transformă un director sau un glob (de exemplu "imagini/*.bmp" sau "arhiva/**.bmp")
+     * în lista de fișiere de intrare, sortată după cale.
+     *
+     * param spec => directorul, globul sau un singur fișier.
+     * returneaza lista fișierelor găsite.
+     * throws IOException dacă directorul nu poate fi parcurs.
+     */
+    public static List<Path> resolveInputs(String spec) throws IOException {
+        Path path = Paths.get(spec);
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        }
+        int wildcard = firstWildcard(spec);
+        if (wildcard < 0) {
+            return Collections.singletonList(path);
+        }
+        int separator = Math.max(spec.lastIndexOf('/', wildcard), spec.lastIndexOf('\\', wildcard));
+        Path base = separator < 0 ? Paths.get(".") : Paths.get(spec.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + spec.substring(separator + 1));
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(base.relativize(p)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int firstWildcard(String spec) {
+        for (int i = 0; i < spec.length(); i++) {
+            char c = spec.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // O imagine împreună cu fișierul din care provine și, după citire, histograma ei.
+    private static final class Item {
+        final Path path;
+        final BufferedImage image;
+        final ChannelHistogram histogram;
+
+        Item(Path path, BufferedImage image, ChannelHistogram histogram) {
+            this.path = path;
+            this.image = image;
+            this.histogram = histogram;
+        }
+    }
+
+    // Rezultatul unui lot: câte imagini au fost scrise, câte au eșuat, câte au fost sărite și debitul obținut.
+    public static final class Report {
+        private final int images;
+        private final int failures;
+        private final int skipped;
+        private final long pixels;
+        private final long nanos;
+
+        Report(int images, int failures, int skipped, long pixels, long nanos) {
+            this.images = images;
+            this.failures = failures;
+            this.skipped = skipped;
+            this.pixels = pixels;
+            this.nanos = nanos;
+        }
+
+        public int getImages() {
+            return images;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        // Imaginile nescrise din nou, pentru că evidența le-a găsit neschimbate.
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public long getPixels() {
+            return pixels;
+        }
+
+        public double getSeconds() {
+            return nanos / 1e9;
+        }
+
+        public double imagesPerSecond() {
+            return nanos == 0 ? 0 : images / getSeconds();
+        }
+
+        public double megapixelsPerSecond() {
+            return nanos == 0 ? 0 : pixels / 1e6 / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            String text = String.format("%d imagini (%d erori), %.1f MP în %.3f secunde: %.2f imagini/s, %.2f MP/s",
+                    images, failures, pixels / 1e6, getSeconds(), imagesPerSecond(), megapixelsPerSecond());
+            return skipped > 0 ? text + ", " + skipped + " neschimbate sărite" : text;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package work;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Antetul unui fișier BMP necomprimat, citit de MappedBmpReader.
+ * Sunt acceptate imaginile pe 24 de biți (BI_RGB) și pe 32 de biți (BI_RGB sau BI_BITFIELDS cu măștile standard),
+ * atât de jos în sus (înălțime pozitivă), cât și de sus în jos (înălțime negativă).
+ */
+final class BmpHeader {
+    // Antetul de fișier are 14 octeți, urmat de antetul DIB.
+    static final int FILE_HEADER_SIZE = 14;
+    // Antetul scris de MappedBmpWriter: antetul de fișier plus BITMAPINFOHEADER (40 de octeți).
+    static final int HEADER_SIZE = FILE_HEADER_SIZE + 40;
+    // Antetul scris de MappedBmpWriter pentru imaginile cu alpha: antetul de fișier plus BITMAPV4HEADER (108 octeți).
+    static final int HEADER_SIZE_V4 = FILE_HEADER_SIZE + 108;
+    // Câți octeți trebuie citiți pentru a putea interpreta antetul, inclusiv măștile BI_BITFIELDS.
+    static final int MAX_HEADER_SIZE = FILE_HEADER_SIZE + 124;
+
+    private static final int BI_RGB = 0;
+    private static final int BI_BITFIELDS = 3;
+
+    final int width;
+    final int height;
+    final boolean topDown;
+    final int bitsPerPixel;
+    final boolean hasAlpha;
+    final long dataOffset;
+    final int rowSize;
+
+    private BmpHeader(int width, int height, boolean topDown, int bitsPerPixel, boolean hasAlpha, long dataOffset)
+            throws IOException {
+        this.width = width;
+        this.height = height;
+        this.topDown = topDown;
+        this.bitsPerPixel = bitsPerPixel;
+        this.hasAlpha = hasAlpha;
+        this.dataOffset = dataOffset;
+        this.rowSize = rowSize(width, bitsPerPixel);
+    }
+
+    /**
+     * Octeții unui rând, completat până la un multiplu de 4, calculați pe 64 de biți.
+     *
+     * throws IOException dacă rândul nu încape într-un int (o lățime uriașă, de obicei dintr-un antet corupt).
+     */
+    static int rowSize(int width, int bitsPerPixel) throws IOException {
+        long rowSize = ((long) width * bitsPerPixel + 31) / 32 * 4;
+        if (rowSize > Integer.MAX_VALUE) {
+            throw new IOException("Un rând al imaginii BMP de lățime " + width + " ar avea " + rowSize
+                    + " octeți, prea mulți pentru a fi citit sau scris.");
+        }
+        return (int) rowSize;
+    }
+
+    // Numărul de octeți ai unui pixel (3 sau 4).
+    int bytesPerPixel() {
+        return bitsPerPixel / 8;
+    }
+
+    /**
+     * Citește antetul de la începutul unui fișier deschis, fără a muta poziția canalului.
+     *
+     * returneaza antetul, sau null dacă fișierul nu este un BMP acceptat de cititorul mapat.
+     */
+    static BmpHeader read(FileChannel channel) throws IOException {
+        ByteBuffer start = ByteBuffer.allocate(MAX_HEADER_SIZE);
+        while (start.hasRemaining() && channel.read(start, start.position()) > 0) {
+            // citește până se umple antetul sau se termină fișierul
+        }
+        start.flip();
+        return parse(start, channel.size());
+    }
+
+    /**
+     * Interpretează antetul din primii octeți ai fișierului.
+     *
+     * param data => începutul fișierului; poziția buffer-ului nu este modificată.
+     * param fileSize => dimensiunea fișierului, pentru a verifica dacă pixelii încap în el.
+     * returneaza antetul, sau null dacă fișierul nu este un BMP acceptat de cititorul mapat.
+     */
+    static BmpHeader parse(ByteBuffer data, long fileSize) throws IOException {
+        ByteBuffer b = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (b.remaining() < FILE_HEADER_SIZE + 40 || b.get(0) != 'B' || b.get(1) != 'M') {
+            return null;
+        }
+        long dataOffset = b.getInt(10) & 0xFFFFFFFFL;
+        int dibSize = b.getInt(14);
+        if (dibSize < 40) {
+            return null;
+        }
+        int width = b.getInt(18);
+        int rawHeight = b.getInt(22);
+        int planes = b.getShort(26);
+        int bits = b.getShort(28);
+        int compression = b.getInt(30);
+        if (width <= 0 || rawHeight == 0 || rawHeight == Integer.MIN_VALUE || planes != 1) {
+            return null;
+        }
+        boolean hasAlpha = false;
+        if (bits == 24 && compression == BI_RGB) {
+            // BGR, fără alpha.
+        } else if (bits == 32 && compression == BI_RGB) {
+            // BGRX; al patrulea octet nu se folosește.
+        } else if (bits == 32 && compression == BI_BITFIELDS) {
+            int masks = FILE_HEADER_SIZE + 40;
+            if (b.remaining() < masks + 12) {
+                return null;
+            }
+            if (b.getInt(masks) != 0x00FF0000 || b.getInt(masks + 4) != 0x0000FF00 || b.getInt(masks + 8) != 0x000000FF) {
+                return null;
+            }
+            // Masca alpha există doar în antetele BITMAPV4HEADER și BITMAPV5HEADER.
+            hasAlpha = dibSize >= 56 && b.remaining() >= masks + 16 && b.getInt(masks + 12) == 0xFF000000;
+        } else {
+            return null;
+        }
+        BmpHeader header = new BmpHeader(width, Math.abs(rawHeight), rawHeight < 0, bits, hasAlpha, dataOffset);
+        if (dataOffset + (long) header.rowSize * header.height > fileSize) {
+            throw new IOException("Fișierul BMP este trunchiat.");
+        }
+        return header;
+    }
+
+    /**
+     * Construiește antetul BMP pentru o imagine de jos în sus, pe 24 de biți, fără compresie (ca ImageIO).
+     *
+     * throws IOException dacă fișierul ar depăși 4 GiB, cât încap în câmpurile de dimensiune ale formatului.
+     */
+    static ByteBuffer header24(int width, int height, int rowSize) throws IOException {
+        long imageSize = (long) rowSize * height;
+        long fileSize = checkFileSize(HEADER_SIZE + imageSize, width, height);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put((byte) 'B').put((byte) 'M');
+        header.putInt((int) fileSize);
+        header.putInt(0);
+        header.putInt(HEADER_SIZE);
+        header.putInt(40);
+        header.putInt(width);
+        header.putInt(height);
+        header.putShort((short) 1);
+        header.putShort((short) 24);
+        header.putInt(BI_RGB);
+        header.putInt((int) imageSize);
+        header.putInt(0);
+        header.putInt(0);
+        header.putInt(0);
+        header.putInt(0);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Construiește antetul BMP pentru o imagine de jos în sus, pe 32 de biți, cu alpha: BITMAPV4HEADER cu BI_BITFIELDS
+     * și măștile standard A8R8G8B8, pe care parse le recunoaște ca imagine cu alpha.
+     *
+     * throws IOException dacă fișierul ar depăși 4 GiB, cât încap în câmpurile de dimensiune ale formatului.
+     */
+    static ByteBuffer header32(int width, int height) throws IOException {
+        long imageSize = (long) width * 4 * height;
+        long fileSize = checkFileSize(HEADER_SIZE_V4 + imageSize, width, height);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE_V4).order(ByteOrder.LITTLE_ENDIAN);
+        header.put((byte) 'B').put((byte) 'M');
+        header.putInt((int) fileSize);
+        header.putInt(0);
+        header.putInt(HEADER_SIZE_V4);
+        header.putInt(108);
+        header.putInt(width);
+        header.putInt(height);
+        header.putShort((short) 1);
+        header.putShort((short) 32);
+        header.putInt(BI_BITFIELDS);
+        header.putInt((int) imageSize);
+        header.putInt(0);
+        header.putInt(0);
+        header.putInt(0);
+        header.putInt(0);
+        header.putInt(0x00FF0000);
+        header.putInt(0x0000FF00);
+        header.putInt(0x000000FF);
+        header.putInt(0xFF000000);
+        // Spațiul de culoare LCS_sRGB ("sRGB"); capetele și curbele gamma rămân zero.
+        header.putInt(0x73524742);
+        header.position(HEADER_SIZE_V4);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Câmpurile de dimensiune din BMP sunt întregi fără semn pe 32 de biți; valorile până la 4 GiB - 1 se scriu
+     * corect prin (int), iar cele mai mari nu pot fi reprezentate.
+     *
+     * returneaza fileSize, dacă încape.
+     */
+    private static long checkFileSize(long fileSize, int width, int height) throws IOException {
+        if (fileSize > 0xFFFFFFFFL) {
+            throw new IOException("Imaginea " + width + "x" + height + " nu încape într-un BMP: fișierul ar avea "
+                    + fileSize + " octeți, peste limita de 4 GiB a formatului.");
+        }
+        return fileSize;
+    }
+}
@@ -0,0 +1,143 @@
+package work;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Formatul de transmisie inițial: fiecare segment este codificat BMP și precedat de lungimea lui pe 4 octeți.
+ * Se păstrează ca opțiune pentru cazurile în care segmentele trec printr-un flux de octeți
+ * (de exemplu PipedOutputStream/PipedInputStream). Poziția segmentului nu se transmite, așa că
+ * segmentele sunt benzi pe toată lățimea, în ordine, iar y se deduce din înălțimile primite.
+ * O lungime negativă (ABORTED) semnalează că procesarea s-a oprit la jumătate.
+ */
+public class BmpStreamSegmentTransport implements SegmentTransport {
+    // Lungimea scrisă de fail în locul unui segment.
+    private static final int ABORTED = -1;
+
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    // Refolosit pentru codificarea fiecărui segment trimis.
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    // Refolosit pentru datele fiecărui segment primit; crește la nevoie.
+    private byte[] segmentData = new byte[0];
+    private int received;
+    private int nextY;
+
+    // Partea care trimite (ImageProcess).
+    public BmpStreamSegmentTransport(OutputStream output) {
+        this(null, output);
+    }
+
+    // Partea care primește (WriteImage).
+    public BmpStreamSegmentTransport(InputStream input) {
+        this(input, null);
+    }
+
+    public BmpStreamSegmentTransport(InputStream input, OutputStream output) {
+        this.input = input == null ? null : new DataInputStream(input);
+        this.output = output == null ? null : new DataOutputStream(output);
+    }
+
+    @Override
+    public void send(ImageSegment segment) throws IOException {
+        encoded.reset();
+        if (!ImageIO.write(segment.getImage(), "bmp", encoded)) {
+            // Scriitorul BMP nu acceptă tipurile cu alpha; segmentul este trimis ca TYPE_INT_RGB,
+            // tipul în care WriteImage compune oricum imaginea finală.
+            BufferedImage image = segment.getImage();
+            BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics g = rgb.getGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+            encoded.reset();
+            if (!ImageIO.write(rgb, "bmp", encoded)) {
+                throw new IOException("Segmentul " + segment.getIndex() + " nu poate fi codificat BMP.");
+            }
+        }
+        // Trimite dimensiunea segmentului înainte de datele efective ale segmentului.
+        output.writeInt(encoded.size());
+        encoded.writeTo(output);
+        output.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // Închiderea fluxului semnalează finalul transmisiei.
+        output.close();
+    }
+
+    @Override
+    public void fail(Throwable cause) throws IOException {
+        try {
+            output.writeInt(ABORTED);
+            output.flush();
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Citește un segment: mai întâi lungimea pe 4 octeți, apoi datele BMP, pe care le decodifică.
+     * Sfârșitul fluxului înainte de un nou segment înseamnă finalul transmisiei.
+     *
+     * throws IOException dacă trimițătorul a semnalat întreruperea sau datele segmentului sunt incomplete.
+     */
+    @Override
+    public ImageSegment receive() throws IOException {
+        int segmentSize;
+        try {
+            segmentSize = input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (segmentSize < 0) {
+            throw new IOException("Transmisia a fost întreruptă de procesare după " + received + " segmente.");
+        }
+        if (segmentData.length < segmentSize) {
+            segmentData = new byte[segmentSize];
+        }
+        try {
+            input.readFully(segmentData, 0, segmentSize);
+        } catch (EOFException e) {
+            throw new IOException("Sfârșitul stream-ului a fost atins prematur.", e);
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(segmentData, 0, segmentSize));
+        if (image == null) {
+            throw new IOException("Segmentul " + (received + 1) + " nu este o imagine BMP validă.");
+        }
+        ImageSegment segment = new ImageSegment(received++, 0, nextY, image, -1, -1);
+        nextY += image.getHeight();
+        return segment;
+    }
+
+    @Override
+    public boolean preservesLayout() {
+        return false;
+    }
+
+    // Segmentul este codificat BMP la send, deci imaginea procesată nu mai este citită după aceea.
+    @Override
+    public boolean copiesSegments() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (input != null) {
+            input.close();
+        }
+        if (output != null) {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package work;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scriere secvențială într-un fișier prin FileChannel, cu un ByteBuffer direct de dimensiune fixă ca buffer.
+ * Octeții se adună în buffer și ajung în fișier în blocuri mari, fără copia suplimentară prin heap
+ * pe care o face un FileOutputStream; blocurile mai mari decât buffer-ul se scriu direct.
+ * Folosită de scriitorii PNG și RAW; BMP-ul are propria cale, prin fișierul mapat (MappedBmpWriter).
+ */
+final class BufferedFileOutput implements Closeable {
+    // Dimensiunea implicită a buffer-ului: 1 MB.
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long written;
+
+    BufferedFileOutput(Path output) throws IOException {
+        this(output, DEFAULT_BUFFER_SIZE);
+    }
+
+    BufferedFileOutput(Path output, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+        written++;
+    }
+
+    // Scrie un int în ordinea big-endian, ca în PNG.
+    void writeInt(int value) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush();
+        }
+        buffer.putInt(value);
+        written += 4;
+    }
+
+    void write(byte[] data, int offset, int length) throws IOException {
+        if (length > buffer.remaining()) {
+            flush();
+            if (length > buffer.capacity()) {
+                drain(ByteBuffer.wrap(data, offset, length));
+                written += length;
+                return;
+            }
+        }
+        buffer.put(data, offset, length);
+        written += length;
+    }
+
+    void write(byte[] data) throws IOException {
+        write(data, 0, data.length);
+    }
+
+    // Numărul de octeți scriși până acum, inclusiv cei aflați încă în buffer.
+    long getWritten() {
+        return written;
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        drain(buffer);
+        buffer.clear();
+    }
+
+    private void drain(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package work;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Canal de octeți în memorie, între două fire, cu un buffer circular de capacitate fixă.
+ * Înlocuiește perechea PipedOutputStream/PipedInputStream: capacitatea se alege (implicit 1 MB, nu 1024 de octeți),
+ * iar cel care scrie sau citește așteaptă pe o Condition și este trezit imediat ce are loc sau date,
+ * în loc să verifice bufferul o dată pe secundă. Nu depinde de firul care a scris ultima dată, deci
+ * ambele capete pot fi folosite din orice fir.
+ *
+ * Închiderea capătului de scriere (sink) înseamnă sfârșitul datelor: read întoarce -1 după ce bufferul se golește.
+ * Închiderea capătului de citire (source) face ca write să arunce IOException, ca scriitorul să nu rămână blocat.
+ */
+public final class BytePipe {
+    // Capacitatea implicită a bufferului, în octeți.
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final byte[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // Poziția primului octet necitit și numărul de octeți din buffer.
+    private int head;
+    private int count;
+    private boolean sinkClosed;
+    private boolean sourceClosed;
+    private final Sink sink = new Sink();
+    private final Source source = new Source();
+
+    public BytePipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Capacitatea este numărul maxim de octeți scriși și încă necitiți; peste ea, write așteaptă.
+    public BytePipe(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacitatea trebuie să fie cel puțin 1: " + capacity);
+        }
+        this.ring = new byte[capacity];
+    }
+
+    // Capătul de scriere.
+    public WritableByteChannel sink() {
+        return sink;
+    }
+
+    // Capătul de citire.
+    public ReadableByteChannel source() {
+        return source;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    // Scrie toți octeții din src, așteptând loc în buffer când este plin.
+    private int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (src.hasRemaining()) {
+                    if (sinkClosed) {
+                        throw new IOException("Capătul de scriere al canalului este închis.");
+                    }
+                    while (count == ring.length && !sourceClosed) {
+                        notFull.await();
+                    }
+                    if (sourceClosed) {
+                        throw new IOException("Capătul de citire al canalului a fost închis.");
+                    }
+                    // Cel mult două copii: până la capătul tabloului, apoi de la început.
+                    int tail = (head + count) % ring.length;
+                    int length = Math.min(src.remaining(), Math.min(ring.length - count, ring.length - tail));
+                    src.get(ring, tail, length);
+                    count += length;
+                    written += length;
+                    notEmpty.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Scrierea în canal a fost întreruptă.");
+            interrupted.bytesTransferred = written;
+            throw interrupted;
+        }
+        return written;
+    }
+
+    // Citește cel puțin un octet, așteptând date; -1 după închiderea capătului de scriere și golirea bufferului.
+    private int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        try {
+            lock.lockInterruptibly();
+            try {
+                if (sourceClosed) {
+                    throw new IOException("Capătul de citire al canalului este închis.");
+                }
+                while (count == 0 && !sinkClosed) {
+                    notEmpty.await();
+                }
+                if (count == 0) {
+                    return -1;
+                }
+                int read = 0;
+                while (count > 0 && dst.hasRemaining()) {
+                    int length = Math.min(dst.remaining(), Math.min(count, ring.length - head));
+                    dst.put(ring, head, length);
+                    head = (head + length) % ring.length;
+                    count -= length;
+                    read += length;
+                }
+                notFull.signal();
+                return read;
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Citirea din canal a fost întreruptă.");
+        }
+    }
+
+    private void closeSink() {
+        lock.lock();
+        try {
+            sinkClosed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeSource() {
+        lock.lock();
+        try {
+            sourceClosed = true;
+            count = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isOpen(boolean sinkSide) {
+        lock.lock();
+        try {
+            return sinkSide ? !sinkClosed : !sourceClosed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Sink implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return BytePipe.this.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return BytePipe.this.isOpen(true);
+        }
+
+        @Override
+        public void close() {
+            closeSink();
+        }
+    }
+
+    private final class Source implements ReadableByteChannel {
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return BytePipe.this.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return BytePipe.this.isOpen(false);
+        }
+
+        @Override
+        public void close() {
+            closeSource();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Egalizarea inițială a aplicației: fiecare canal (roșu, verde, albastru) primește propriul LUT,
+ * calculat din histograma lui. Crește contrastul cel mai mult, dar poate schimba nuanțele culorilor.
+ */
+public class ChannelEngine implements EqualizationEngine {
+    private final LutCache cache;
+
+    public ChannelEngine() {
+        this(null);
+    }
+
+    // Cache-ul de LUT-uri pentru imagini repetate, sau null pentru calculul LUT-ului la fiecare imagine.
+    public ChannelEngine(LutCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public EqualizationEngine.Transform prepare(BufferedImage source, ParallelEqualizer parallel) {
+        return prepare(source, null, parallel);
+    }
+
+    // Histograma primită de la cititor scutește o trecere completă peste imagine.
+    @Override
+    public EqualizationEngine.Transform prepare(BufferedImage source, ChannelHistogram histogram, ParallelEqualizer parallel) {
+        if (histogram == null) {
+            histogram = parallel != null ? parallel.histogram(source) : ChannelHistogram.of(source);
+        }
+        ChannelLut lut = cache != null ? cache.lookup(histogram) : ChannelLut.equalize(histogram);
+        return (in, out, region) -> apply(in, out, region, lut);
+    }
+
+    @Override
+    public String getName() {
+        return "channel";
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    private static void apply(BufferedImage source, BufferedImage target, Rectangle region, ChannelLut lut) {
+        RasterKernel.applyLut(source.getSubimage(region.x, region.y, region.width, region.height),
+                target.getSubimage(region.x, region.y, region.width, region.height), 0, region.height, lut);
+    }
+}
@@ -0,0 +1,139 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Histogramele celor trei canale de culoare ale unei imagini, într-un singur tablou de 3 x 256 de valori long:
+ * roșu la pozițiile 0..255, verde la 256..511, albastru la 512..767. Valorile long permit imagini cu oricâți pixeli.
+ * Histogramele calculate pe benzi diferite se pot aduna cu merge, iar instanțele pot fi refolosite prin Pool.
+ * Clasa nu este sincronizată; fiecare fir își construiește propria histogramă.
+ */
+public final class ChannelHistogram {
+    public static final int RED = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE = 2;
+    public static final int CHANNELS = 3;
+    public static final int LEVELS = 256;
+
+    private final long[] counts = new long[CHANNELS * LEVELS];
+
+    // Calculează histograma întregii imagini.
+    public static ChannelHistogram of(BufferedImage image) {
+        ChannelHistogram histogram = new ChannelHistogram();
+        histogram.accumulate(image, 0, image.getHeight());
+        return histogram;
+    }
+
+    /**
+     * Adaugă valorile canalelor pentru rândurile [fromRow, toRow); histograma nu este golită înainte.
+     */
+    public void accumulate(BufferedImage image, int fromRow, int toRow) {
+        RasterKernel.accumulateHistogram(image, fromRow, toRow, counts);
+    }
+
+    // Adaugă numărul de pixeli care au valoarea level pe canalul dat.
+    public void add(int channel, int level, long count) {
+        counts[index(channel, level)] += count;
+    }
+
+    public long get(int channel, int level) {
+        return counts[index(channel, level)];
+    }
+
+    // Adună în această histogramă valorile celeilalte, de exemplu pentru o bandă calculată pe alt fir.
+    public void merge(ChannelHistogram other) {
+        long[] source = other.counts;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += source[i];
+        }
+    }
+
+    // Numărul de pixeli numărați pe un canal.
+    public long total(int channel) {
+        long sum = 0;
+        for (int i = channel * LEVELS, end = i + LEVELS; i < end; i++) {
+            sum += counts[i];
+        }
+        return sum;
+    }
+
+    // Numărul de pixeli numărați; fiecare pixel apare o dată pe fiecare canal.
+    public long getPixelCount() {
+        return total(RED);
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    public ChannelHistogram copy() {
+        ChannelHistogram copy = new ChannelHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        return copy;
+    }
+
+    /**
+     * Amprentă de 64 de biți a tuturor valorilor, potrivită drept cheie de cache.
+     * Histogramele egale au aceeași amprentă; pentru certitudine, la potrivire se compară cu equals.
+     */
+    public long fingerprint() {
+        long h = 0xCBF29CE484222325L;
+        for (long count : counts) {
+            h = (h ^ count) * 0x100000001B3L;
+        }
+        // Amestecul final (ca în SplitMix64) împrăștie și diferențele mici dintre histograme.
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    // Tabloul intern, pentru buclele din pachet care adună direct în el.
+    long[] counts() {
+        return counts;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ChannelHistogram && Arrays.equals(counts, ((ChannelHistogram) other).counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    private static int index(int channel, int level) {
+        if (channel < 0 || channel >= CHANNELS || level < 0 || level >= LEVELS) {
+            throw new IndexOutOfBoundsException("Canal sau nivel invalid: " + channel + ", " + level);
+        }
+        return channel * LEVELS + level;
+    }
+
+    /**
+     * Rezervă mărginită de histograme golite, pentru a nu aloca 6 KB la fiecare imagine sau bandă.
+     * Poate fi folosită din mai multe fire.
+     */
+    public static final class Pool {
+        private final BlockingQueue<ChannelHistogram> free;
+
+        // Numărul maxim de histograme păstrate pentru refolosire.
+        public Pool(int capacity) {
+            this.free = new ArrayBlockingQueue<ChannelHistogram>(capacity);
+        }
+
+        // O histogramă goală, refolosită dacă există una liberă.
+        public ChannelHistogram acquire() {
+            ChannelHistogram histogram = free.poll();
+            return histogram != null ? histogram : new ChannelHistogram();
+        }
+
+        // Returnează histograma în rezervă; dacă rezerva este plină, histograma este lăsată colectorului.
+        public void release(ChannelHistogram histogram) {
+            histogram.clear();
+            free.offer(histogram);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package work;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Tabelele de căutare ale celor trei canale, într-un singur tablou de 3 x 256 de octeți,
+ * în aceeași ordine ca ChannelHistogram: roșu, verde, albastru. Instanțele nu se modifică după creare,
+ * deci pot fi partajate între fire și păstrate în LutCache.
+ */
+public final class ChannelLut {
+    private final byte[] table;
+    // Aceleași valori ca int, create la prima cerere pentru calea vectorială (gather pe int[]).
+    private volatile int[] intTable;
+
+    private ChannelLut(byte[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Construiește LUT-ul de egalizare din funcția de distribuție cumulativă a fiecărui canal:
+     * nivelul i devine floor(255 * cdf(i) / total), calculat exact, în aritmetică întreagă.
+     *
+     * param histogram => histograma imaginii.
+     * returneaza tabelele de egalizare pentru roșu, verde și albastru.
+     */
+    public static ChannelLut equalize(ChannelHistogram histogram) {
+        byte[] table = new byte[ChannelHistogram.CHANNELS * ChannelHistogram.LEVELS];
+        for (int c = 0; c < ChannelHistogram.CHANNELS; c++) {
+            long total = histogram.total(c);
+            long cdf = 0;
+            for (int i = 0; i < ChannelHistogram.LEVELS; i++) {
+                cdf += histogram.get(c, i);
+                // cdf <= total, deci rezultatul este între 0 și 255; 255 * cdf încape în long pentru orice imagine reală.
+                table[c * ChannelHistogram.LEVELS + i] = (byte) (total == 0 ? 0 : 255 * cdf / total);
+            }
+        }
+        return new ChannelLut(table);
+    }
+
+    /**
+     * Construiește LUT-ul din trei tabele separate de câte 256 de valori între 0 și 255.
+     */
+    public static ChannelLut of(int[] red, int[] green, int[] blue) {
+        byte[] table = new byte[ChannelHistogram.CHANNELS * ChannelHistogram.LEVELS];
+        int[][] channels = { red, green, blue };
+        for (int c = 0; c < channels.length; c++) {
+            if (channels[c].length != ChannelHistogram.LEVELS) {
+                throw new IllegalArgumentException("Tabela canalului " + c + " trebuie să aibă 256 de valori.");
+            }
+            for (int i = 0; i < ChannelHistogram.LEVELS; i++) {
+                int value = channels[c][i];
+                if (value < 0 || value > 255) {
+                    throw new IllegalArgumentException("Valoare în afara intervalului 0..255: " + value);
+                }
+                table[c * ChannelHistogram.LEVELS + i] = (byte) value;
+            }
+        }
+        return new ChannelLut(table);
+    }
+
+    // LUT-ul care lasă imaginea neschimbată.
+    public static ChannelLut identity() {
+        byte[] table = new byte[ChannelHistogram.CHANNELS * ChannelHistogram.LEVELS];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) i;
+        }
+        return new ChannelLut(table);
+    }
+
+    // Valoarea nouă pentru nivelul level al canalului dat.
+    public int get(int channel, int level) {
+        if (channel < 0 || channel >= ChannelHistogram.CHANNELS || level < 0 || level >= ChannelHistogram.LEVELS) {
+            throw new IndexOutOfBoundsException("Canal sau nivel invalid: " + channel + ", " + level);
+        }
+        return table[channel * ChannelHistogram.LEVELS + level] & 0xFF;
+    }
+
+    // Aplică tabelele pe toată imaginea sursă și scrie rezultatul în destinație, care are aceleași dimensiuni.
+    public void apply(BufferedImage source, BufferedImage target) {
+        RasterKernel.applyLut(source, target, 0, source.getHeight(), this);
+    }
+
+    // Tabloul intern, citit direct de buclele din pachet; nu trebuie modificat.
+    byte[] table() {
+        return table;
+    }
+
+    // Valorile ca int, pentru gather-ul din VectorLutKernel.
+    int[] intTable() {
+        int[] result = intTable;
+        if (result == null) {
+            result = new int[table.length];
+            for (int i = 0; i < table.length; i++) {
+                result[i] = table[i] & 0xFF;
+            }
+            intTable = result;
+        }
+        return result;
+    }
+}
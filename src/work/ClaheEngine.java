@@ -0,0 +1,220 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Egalizare adaptivă cu contrast limitat (CLAHE) pe luminanță. Imaginea se împarte într-o grilă de regiuni;
+ * histograma fiecărei regiuni se calculează în paralel și se taie la limita dată (surplusul se împarte egal
+ * între niveluri), ca zgomotul din zonele uniforme să nu fie amplificat. Fiecare regiune primește propriul LUT,
+ * iar pentru un pixel valoarea nouă se interpolează biliniar între LUT-urile celor patru regiuni vecine,
+ * după distanța până la centrele lor, ca granițele dintre regiuni să nu se vadă.
+ *
+ * Ca în LuminanceEngine, se schimbă doar Y, iar diferența se adună la cele trei canale.
+ */
+public class ClaheEngine implements EqualizationEngine {
+    public static final int DEFAULT_GRID = 8;
+    public static final double DEFAULT_CLIP_LIMIT = 2.0;
+
+    private final int columns;
+    private final int rows;
+    private final double clipLimit;
+
+    public ClaheEngine() {
+        this(DEFAULT_GRID, DEFAULT_GRID, DEFAULT_CLIP_LIMIT);
+    }
+
+    /**
+     * param columns => numărul de regiuni pe orizontală; cel puțin 1.
+     * param rows => numărul de regiuni pe verticală; cel puțin 1.
+     * param clipLimit => înălțimea maximă a unui nivel din histogramă, ca multiplu al înălțimii medii;
+     *                    cel puțin 1, unde 1 lasă contrastul aproape neschimbat.
+     */
+    public ClaheEngine(int columns, int rows, double clipLimit) {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Grila CLAHE trebuie să aibă cel puțin o regiune: " + columns + "x" + rows);
+        }
+        if (!(clipLimit >= 1)) {
+            throw new IllegalArgumentException("Limita de tăiere trebuie să fie cel puțin 1: " + clipLimit);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.clipLimit = clipLimit;
+    }
+
+    // Părțile numelui din EqualizationEngine.forName: "clahe", apoi opțional "COLOANExRANDURI" și limita.
+    static ClaheEngine parse(String[] parts) {
+        int columns = DEFAULT_GRID;
+        int rows = DEFAULT_GRID;
+        double clipLimit = DEFAULT_CLIP_LIMIT;
+        try {
+            if (parts.length > 1) {
+                int x = parts[1].toLowerCase(Locale.ROOT).indexOf('x');
+                if (x < 0) {
+                    columns = rows = Integer.parseInt(parts[1].trim());
+                } else {
+                    columns = Integer.parseInt(parts[1].substring(0, x).trim());
+                    rows = Integer.parseInt(parts[1].substring(x + 1).trim());
+                }
+            }
+            if (parts.length > 2) {
+                clipLimit = Double.parseDouble(parts[2].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parametri CLAHE invalizi: " + String.join(":", parts), e);
+        }
+        return new ClaheEngine(columns, rows, clipLimit);
+    }
+
+    @Override
+    public EqualizationEngine.Transform prepare(BufferedImage source, ParallelEqualizer parallel) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        // O regiune are cel puțin un pixel pe fiecare direcție.
+        int[] xBounds = bounds(width, Math.min(columns, Math.max(1, width)));
+        int[] yBounds = bounds(height, Math.min(rows, Math.max(1, height)));
+        int gridColumns = xBounds.length - 1;
+
+        List<Rectangle> regions = new ArrayList<Rectangle>();
+        for (int j = 0; j + 1 < yBounds.length; j++) {
+            for (int i = 0; i + 1 < xBounds.length; i++) {
+                regions.add(new Rectangle(xBounds[i], yBounds[j], xBounds[i + 1] - xBounds[i], yBounds[j + 1] - yBounds[j]));
+            }
+        }
+        List<int[]> luts = EqualizationEngine.mapTiles(parallel, regions,
+                region -> LuminanceEngine.equalizeLevels(clip(LuminanceEngine.lumaHistogram(source, region), clipLimit)));
+        return new Interpolation(luts.toArray(new int[0][]), gridColumns, centers(xBounds), centers(yBounds));
+    }
+
+    @Override
+    public String getName() {
+        return "clahe";
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "clahe:%dx%d:%.2f", columns, rows, clipLimit);
+    }
+
+    /**
+     * Taie fiecare nivel la clipLimit ori înălțimea medie și împarte surplusul egal între toate nivelurile;
+     * restul împărțirii se distribuie la intervale egale, deci numărul total de pixeli rămâne același.
+     */
+    static long[] clip(long[] histogram, double clipLimit) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long limit = Math.max(1, (long) (clipLimit * total / histogram.length));
+        long excess = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > limit) {
+                excess += histogram[i] - limit;
+                histogram[i] = limit;
+            }
+        }
+        long share = excess / histogram.length;
+        int remainder = (int) (excess % histogram.length);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += share;
+        }
+        if (remainder > 0) {
+            int step = histogram.length / remainder;
+            for (int i = 0, given = 0; given < remainder; i += step, given++) {
+                histogram[i]++;
+            }
+        }
+        return histogram;
+    }
+
+    // Granițele a count regiuni aproape egale pe o lungime dată: bounds[i] .. bounds[i + 1].
+    private static int[] bounds(int length, int count) {
+        int[] bounds = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = (int) ((long) i * length / count);
+        }
+        return bounds;
+    }
+
+    private static double[] centers(int[] bounds) {
+        double[] centers = new double[bounds.length - 1];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = (bounds[i] + bounds[i + 1]) / 2.0;
+        }
+        return centers;
+    }
+
+    /**
+     * LUT-urile regiunilor și centrele lor; aplică interpolarea biliniară pe orice zonă a imaginii.
+     */
+    private static final class Interpolation implements EqualizationEngine.Transform {
+        private final int[][] luts;
+        private final int gridColumns;
+        private final double[] xCenters;
+        private final double[] yCenters;
+
+        Interpolation(int[][] luts, int gridColumns, double[] xCenters, double[] yCenters) {
+            this.luts = luts;
+            this.gridColumns = gridColumns;
+            this.xCenters = xCenters;
+            this.yCenters = yCenters;
+        }
+
+        @Override
+        public void apply(BufferedImage source, BufferedImage target, Rectangle region) {
+            // Vecinii și ponderile pe orizontală sunt aceleași pentru toate rândurile zonei.
+            int[] left = new int[region.width];
+            int[] right = new int[region.width];
+            float[] xWeight = new float[region.width];
+            for (int x = 0; x < region.width; x++) {
+                xWeight[x] = neighbours(xCenters, region.x + x, left, right, x);
+            }
+            int[] top = new int[1];
+            int[] bottom = new int[1];
+            int[] row = new int[region.width];
+            for (int y = region.y; y < region.y + region.height; y++) {
+                float wy = neighbours(yCenters, y, top, bottom, 0);
+                int topRow = top[0] * gridColumns;
+                int bottomRow = bottom[0] * gridColumns;
+                RasterKernel.readRgbRow(source, region.x, y, region.width, row);
+                for (int x = 0; x < row.length; x++) {
+                    int rgb = row[x];
+                    int luma = LuminanceEngine.luma(rgb);
+                    float wx = xWeight[x];
+                    float upper = (1 - wx) * luts[topRow + left[x]][luma] + wx * luts[topRow + right[x]][luma];
+                    float lower = (1 - wx) * luts[bottomRow + left[x]][luma] + wx * luts[bottomRow + right[x]][luma];
+                    int value = (int) ((1 - wy) * upper + wy * lower + 0.5f);
+                    row[x] = LuminanceEngine.shift(rgb, value - luma);
+                }
+                RasterKernel.writeRgbRow(target, region.x, y, region.width, row);
+            }
+        }
+
+        /**
+         * Regiunile între ale căror centre se află pixelul și ponderea celei de-a doua;
+         * înainte de primul centru și după ultimul se folosește o singură regiune.
+         */
+        private static float neighbours(double[] centers, int pixel, int[] low, int[] high, int index) {
+            double position = pixel + 0.5;
+            int last = centers.length - 1;
+            if (position <= centers[0]) {
+                low[index] = high[index] = 0;
+                return 0;
+            }
+            if (position >= centers[last]) {
+                low[index] = high[index] = last;
+                return 0;
+            }
+            int i = 0;
+            while (centers[i + 1] < position) {
+                i++;
+            }
+            low[index] = i;
+            high[index] = i + 1;
+            return (float) ((position - centers[i]) / (centers[i + 1] - centers[i]));
+        }
+    }
+}
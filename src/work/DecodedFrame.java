@@ -0,0 +1,35 @@
+package work;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * O imagine citită, împreună cu histograma celor trei canale calculată de cititor în aceeași trecere
+ * peste pixeli. Este elementul din bufferul dintre ReadImage și ImageProcess, astfel încât ImageProcess
+ * nu mai parcurge imaginea doar pentru a număra valorile.
+ */
+public final class DecodedFrame {
+    // Pus în buffer de ReadImage când citirea eșuează, ca ImageProcess să nu aștepte la nesfârșit.
+    public static final DecodedFrame FAILED = new DecodedFrame(null, null);
+
+    private final BufferedImage image;
+    private final ChannelHistogram histogram;
+
+    /**
+     * param image => imaginea citită.
+     * param histogram => histograma întregii imagini, sau null dacă cititorul nu a calculat-o.
+     */
+    public DecodedFrame(BufferedImage image, ChannelHistogram histogram) {
+        this.image = image;
+        this.histogram = histogram;
+    }
+
+    // Imaginea citită; null doar pentru FAILED.
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    // Histograma imaginii, sau null; nu trebuie modificată de cei care o primesc.
+    public ChannelHistogram getHistogram() {
+        return histogram;
+    }
+}
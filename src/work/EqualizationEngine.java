@@ -0,0 +1,134 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Un algoritm de egalizare a histogramei, ales pentru fiecare lucrare (ImageProcess, BatchPipeline, Main --engine).
+ * Egalizarea are doi pași: prepare analizează toată imaginea (histograme, tabele LUT), iar transformarea
+ * întoarsă se aplică apoi pe dale independente, într-o singură trecere peste raster. Astfel orice motor
+ * poate folosi dalele și transportul lui ImageProcess, inclusiv trimiterea dalelor imediat ce sunt gata.
+ */
+public interface EqualizationEngine {
+
+    /**
+     * Analizează imaginea și pregătește transformarea.
+     *
+     * param source => imaginea originală.
+     * param parallel => motorul paralel pentru histograme, sau null pentru un singur fir.
+     * returneaza transformarea, care poate fi aplicată în paralel pe dale diferite.
+     */
+    Transform prepare(BufferedImage source, ParallelEqualizer parallel);
+
+    /**
+     * Ca prepare(source, parallel), dar cu histograma canalelor deja calculată de cititor (vezi DecodedFrame).
+     * Motoarele care au nevoie de alte histograme (de exemplu de luminanță) o ignoră.
+     *
+     * param histogram => histograma întregii imagini, sau null dacă trebuie calculată aici.
+     */
+    default Transform prepare(BufferedImage source, ChannelHistogram histogram, ParallelEqualizer parallel) {
+        return prepare(source, parallel);
+    }
+
+    // Numele folosit în linia de comandă și în rapoarte.
+    String getName();
+
+    // Adevărat dacă rezultatul depinde de imaginile anterioare (de exemplu RunningEngine), deci ordinea contează.
+    default boolean isOrdered() {
+        return false;
+    }
+
+    // Adevărat dacă prepare folosește histograma completă a cititorului; altfel cititorii lotului nu o mai calculează.
+    default boolean usesReaderHistogram() {
+        return true;
+    }
+
+    /**
+     * Egalizează toată imaginea, fără a depinde de un fir ImageProcess.
+     *
+     * returneaza o imagine nouă, de același tip (INT_RGB/INT_ARGB pentru sursele indexate sau nestandard), cu histograma egalizată.
+     */
+    default BufferedImage equalize(BufferedImage source, ParallelEqualizer parallel) {
+        return equalize(source, new BufferedImage(source.getWidth(), source.getHeight(), RasterKernel.workingType(source)),
+                parallel);
+    }
+
+    /**
+     * Egalizează toată imaginea într-o destinație dată, de exemplu luată dintr-un RasterPool.
+     * Fiecare pixel al destinației este suprascris.
+     *
+     * param target => imaginea rezultată, cu aceleași dimensiuni ca sursa.
+     * returneaza destinația.
+     */
+    default BufferedImage equalize(BufferedImage source, BufferedImage target, ParallelEqualizer parallel) {
+        return equalize(source, null, target, parallel);
+    }
+
+    // Ca equalize(source, target, parallel), folosind histograma citită odată cu imaginea, dacă nu este null.
+    default BufferedImage equalize(BufferedImage source, ChannelHistogram histogram, BufferedImage target,
+            ParallelEqualizer parallel) {
+        Transform transform = prepare(source, histogram, parallel);
+        List<Rectangle> tiles = TileLayout.defaults().tiles(source.getWidth(), source.getHeight());
+        mapTiles(parallel, tiles, tile -> {
+            transform.apply(source, target, tile);
+            return null;
+        });
+        return target;
+    }
+
+    /**
+     * Alege motorul după nume: "channel" (implicit, fiecare canal separat), "luminance", "clahe" sau "running".
+     * CLAHE acceptă și parametri: "clahe:8x8:2.5" înseamnă o grilă de 8 x 8 dale și limita de tăiere 2.5.
+     * Pentru fluxuri de cadre, "running:0.1:2:4" înseamnă alpha 0.1, un pixel din 2 x 2 și cel mult 4 niveluri pe cadru.
+     */
+    static EqualizationEngine forName(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        switch (parts[0]) {
+            case "channel":
+            case "rgb":
+                return new ChannelEngine();
+            case "luminance":
+            case "luma":
+                return new LuminanceEngine();
+            case "clahe":
+                return ClaheEngine.parse(parts);
+            case "running":
+                return RunningEngine.parse(parts);
+            default:
+                throw new IllegalArgumentException("Motor de egalizare necunoscut: " + spec
+                        + " (se acceptă channel, luminance, clahe[:COLOANExRANDURI[:LIMITA]], running[:ALPHA[:PAS[:MAXIM]]])");
+        }
+    }
+
+    // Rulează calculul pe fiecare dală, în paralel dacă există un motor paralel.
+    static <T> List<T> mapTiles(ParallelEqualizer parallel, List<Rectangle> tiles, Function<Rectangle, T> work) {
+        if (parallel != null) {
+            return parallel.mapTiles(tiles, work);
+        }
+        List<T> results = new ArrayList<T>(tiles.size());
+        for (Rectangle tile : tiles) {
+            results.add(work.apply(tile));
+        }
+        return results;
+    }
+
+    /**
+     * Transformarea pregătită pentru o imagine. Nu se modifică după creare, deci poate fi apelată din mai multe fire.
+     */
+    @FunctionalInterface
+    interface Transform {
+
+        /**
+         * Scrie în destinație zona dată a sursei, transformată; restul destinației nu este atins.
+         *
+         * param source => imaginea originală, aceeași ca la prepare.
+         * param target => imaginea rezultată, cu aceleași dimensiuni.
+         * param region => zona prelucrată, în coordonatele imaginii.
+         */
+        void apply(BufferedImage source, BufferedImage target, Rectangle region);
+    }
+}
@@ -0,0 +1,16 @@
+package work;
+
+/**
+ * Profilul de execuție al etapelor ReadImage, ImageProcess și WriteImage.
+ * THROUGHPUT este profilul implicit, fără pauze artificiale și fără mesaje pentru fiecare pixel;
+ * DEMO păstrează comportamentul de vizualizare (Thread.sleep între segmente și afișarea pixelilor citiți).
+ */
+public enum ExecutionProfile {
+    // Fără pauze și fără mesaje în consolă; progresul se urmărește prin ProgressEvents.
+    THROUGHPUT,
+    // Comportamentul demonstrativ: o secundă de pauză după fiecare segment și mesaje detaliate în consolă.
+    DEMO;
+
+    // Pauza dintre segmente în profilul DEMO.
+    static final long DEMO_PAUSE_MILLIS = 1000;
+}
@@ -0,0 +1,335 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Transport prin orice canal de octeți (BytePipe în același proces, SocketChannel TCP sau socket Unix între procese),
+ * cu pixelii trimiși necomprimați, în cadre care își poartă poziția. Spre deosebire de formatul BMP vechi,
+ * segmentele nu se codifică și nu se decodifică prin ImageIO, iar dalele pot sosi în orice ordine.
+ *
+ * Fiecare cadru are un antet de 9 int-uri big-endian, urmat de pixeli:
+ *   MAGIC, index, x, y, lățime, înălțime, lățimea totală, înălțimea totală, octeți pe pixel (3 sau 4)
+ *   apoi lățime x înălțime pixeli, rândurile de sus în jos, fiecare pixel B, G, R (, A).
+ * Cadrul de sfârșit are index -1 și nu are pixeli; un canal închis fără el înseamnă o transmisie întreruptă; cadrul de întrerupere (trimis de fail) are index -2,
+ * iar cel care primește aruncă IOException în loc să încheie transmisia. Citirile sunt complete: antetul și pixelii se citesc
+ * în buclă până la ultimul octet, oricât de puțin ar întoarce fiecare read.
+ *
+ * send poate fi apelat din mai multe fire (dalele procesate în paralel): fiecare fir își codifică dala în propriul
+ * buffer, în afara lock-ului, iar lock-ul acoperă doar scrierea antetului și a pixelilor, ca cadrele să nu se amestece.
+ */
+public class FramedSegmentTransport implements SegmentTransport {
+    // "SEGM"; verifică la fiecare cadru că fluxul nu s-a desincronizat.
+    private static final int MAGIC = 0x5345474D;
+    private static final int HEADER_INTS = 9;
+    private static final int HEADER_SIZE = HEADER_INTS * 4;
+    // Indecșii cadrelor fără pixeli.
+    private static final int END = -1;
+    private static final int ABORTED = -2;
+    // Cei mai mulți octeți de pixeli acceptați într-un cadru primit (256 MB), înainte de alocarea buffer-ului.
+    private static final int MAX_PAYLOAD = 1 << 28;
+
+    private final ReadableByteChannel input;
+    private final WritableByteChannel output;
+    // Resurse închise odată cu transportul: serverul care a acceptat conexiunea și fișierul socket-ului Unix.
+    private final ServerSocketChannel server;
+    private final Path socketFile;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    // Refolosit pentru pixelii fiecărui cadru primit; crește la nevoie.
+    private ByteBuffer payload = ByteBuffer.allocate(0);
+    // Buffer-ele în care fiecare fir care trimite își codifică dalele; cresc la nevoie.
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+    private boolean finished;
+
+    // Partea care trimite (ImageProcess).
+    public FramedSegmentTransport(WritableByteChannel output) {
+        this(null, output, null, null);
+    }
+
+    // Partea care primește (WriteImage).
+    public FramedSegmentTransport(ReadableByteChannel input) {
+        this(input, null, null, null);
+    }
+
+    private FramedSegmentTransport(ReadableByteChannel input, WritableByteChannel output, ServerSocketChannel server, Path socketFile) {
+        this.input = input;
+        this.output = output;
+        this.server = server;
+        this.socketFile = socketFile;
+    }
+
+    // Ambele capete în același proces, legate printr-un BytePipe de capacitatea dată (în octeți).
+    public static FramedSegmentTransport[] inMemory(int capacity) {
+        BytePipe pipe = new BytePipe(capacity);
+        return new FramedSegmentTransport[] {
+                new FramedSegmentTransport(pipe.sink()), new FramedSegmentTransport(pipe.source())};
+    }
+
+    /**
+     * Partea care trimite, conectată la un WriteImage care ascultă în alt proces (vezi accept).
+     *
+     * param address => "tcp:HOST:PORT" (sau doar "HOST:PORT") ori "unix:CALE".
+     */
+    public static FramedSegmentTransport connect(String address) throws IOException {
+        return new FramedSegmentTransport((WritableByteChannel) SocketChannel.open(parseAddress(address)));
+    }
+
+    /**
+     * Partea care primește: ascultă la adresă și așteaptă o singură conexiune, de la procesul care trimite.
+     * Pentru un socket Unix, fișierul rămas de la o rulare anterioară este șters, iar cel nou este șters la close.
+     *
+     * param address => "tcp:HOST:PORT" (sau doar "HOST:PORT") ori "unix:CALE".
+     */
+    public static FramedSegmentTransport accept(String address) throws IOException {
+        SocketAddress socketAddress = parseAddress(address);
+        Path socketFile = null;
+        ServerSocketChannel server;
+        if (socketAddress instanceof UnixDomainSocketAddress) {
+            socketFile = ((UnixDomainSocketAddress) socketAddress).getPath();
+            Files.deleteIfExists(socketFile);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        try {
+            server.bind(socketAddress, 1);
+            SocketChannel connection = server.accept();
+            return new FramedSegmentTransport(connection, null, server, socketFile);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    // Interpretează "unix:CALE", "tcp:HOST:PORT" sau "HOST:PORT".
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+        }
+        String hostPort = address.startsWith("tcp:") ? address.substring("tcp:".length()) : address;
+        int colon = hostPort.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Adresă invalidă: " + address + " (tcp:HOST:PORT sau unix:CALE)");
+        }
+        try {
+            return new InetSocketAddress(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Port invalid în adresa " + address, e);
+        }
+    }
+
+    @Override
+    public void send(ImageSegment segment) throws IOException {
+        BufferedImage image = segment.getImage();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        int bytesPerPixel = alpha ? 4 : 3;
+        Encoder encoder = encoders.get();
+        ByteBuffer pixels = encoder.pixels = sized(encoder.pixels, (long) width * height * bytesPerPixel);
+        if (encoder.rgbRow.length < width) {
+            encoder.rgbRow = new int[width];
+        }
+        int[] rgbRow = encoder.rgbRow;
+        for (int y = 0; y < height; y++) {
+            if (alpha) {
+                image.getRGB(0, y, width, 1, rgbRow, 0, width);
+            } else {
+                RasterKernel.readRgbRow(image, 0, y, width, rgbRow);
+            }
+            for (int x = 0; x < width; x++) {
+                int v = rgbRow[x];
+                pixels.put((byte) v).put((byte) (v >> 8)).put((byte) (v >> 16));
+                if (alpha) {
+                    pixels.put((byte) (v >>> 24));
+                }
+            }
+        }
+        pixels.flip();
+        synchronized (this) {
+            writeHeader(segment.getIndex(), segment.getX(), segment.getY(), width, height,
+                    segment.getTotalWidth(), segment.getTotalHeight(), bytesPerPixel);
+            writeFully(pixels);
+        }
+    }
+
+    @Override
+    public synchronized void finish() throws IOException {
+        writeHeader(END, 0, 0, 0, 0, 0, 0, 0);
+        // Închiderea canalului îi arată și celui care primește că nu mai urmează nimic.
+        output.close();
+    }
+
+    @Override
+    public synchronized void fail(Throwable cause) throws IOException {
+        try {
+            writeHeader(ABORTED, 0, 0, 0, 0, 0, 0, 0);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Citește un cadru complet și reconstruiește segmentul: TYPE_3BYTE_BGR pentru 3 octeți pe pixel,
+     * TYPE_INT_ARGB pentru 4. Antetul este verificat înainte de a aloca pixelii: dala trebuie să fie în imagine,
+     * iar pixelii ei să încapă în MAX_PAYLOAD.
+     *
+     * throws EOFException dacă canalul se închide înainte de cadrul de sfârșit.
+     * throws IOException dacă antetul este invalid sau trimițătorul a semnalat întreruperea.
+     */
+    @Override
+    public ImageSegment receive() throws IOException {
+        if (finished) {
+            return null;
+        }
+        header.clear();
+        readFully(header);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Cadru invalid: fluxul de segmente este desincronizat.");
+        }
+        int index = header.getInt();
+        if (index == ABORTED) {
+            finished = true;
+            throw new IOException("Transmisia a fost întreruptă de procesare.");
+        }
+        if (index < 0) {
+            finished = true;
+            return null;
+        }
+        int x = header.getInt();
+        int y = header.getInt();
+        int width = header.getInt();
+        int height = header.getInt();
+        int totalWidth = header.getInt();
+        int totalHeight = header.getInt();
+        int bytesPerPixel = header.getInt();
+        if (width <= 0 || height <= 0 || (bytesPerPixel != 3 && bytesPerPixel != 4)
+                || x < 0 || y < 0 || (long) x + width > totalWidth || (long) y + height > totalHeight
+                || (long) totalWidth * totalHeight > Integer.MAX_VALUE) {
+            throw new IOException("Antet de cadru invalid pentru segmentul " + index + ": dala " + width + "x" + height
+                    + " la (" + x + ", " + y + ") în imaginea de " + totalWidth + "x" + totalHeight + ".");
+        }
+        long length = (long) width * height * bytesPerPixel;
+        if (length > MAX_PAYLOAD) {
+            throw new IOException("Segmentul " + index + " are " + length + " octeți, peste limita de "
+                    + MAX_PAYLOAD + " a unui cadru.");
+        }
+        payload = sized(payload, length);
+        readFully(payload);
+        payload.flip();
+
+        BufferedImage image;
+        if (bytesPerPixel == 3) {
+            // Ordinea B, G, R a cadrului coincide cu cea din memoria unui TYPE_3BYTE_BGR nou.
+            image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            payload.get(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        } else {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < data.length; i++) {
+                int b = payload.get() & 0xFF;
+                int g = payload.get() & 0xFF;
+                int r = payload.get() & 0xFF;
+                int a = payload.get() & 0xFF;
+                data[i] = a << 24 | r << 16 | g << 8 | b;
+            }
+        }
+        return new ImageSegment(index, x, y, image, totalWidth, totalHeight);
+    }
+
+    @Override
+    public boolean preservesLayout() {
+        return true;
+    }
+
+    // Pixelii sunt copiați în cadru la send.
+    @Override
+    public boolean copiesSegments() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (input != null) {
+                input.close();
+            }
+            if (output != null) {
+                output.close();
+            }
+            if (server != null) {
+                server.close();
+            }
+        } finally {
+            if (socketFile != null) {
+                Files.deleteIfExists(socketFile);
+            }
+        }
+    }
+
+    private void writeHeader(int index, int x, int y, int width, int height, int totalWidth, int totalHeight,
+                             int bytesPerPixel) throws IOException {
+        header.clear();
+        header.putInt(MAGIC).putInt(index).putInt(x).putInt(y).putInt(width).putInt(height)
+                .putInt(totalWidth).putInt(totalHeight).putInt(bytesPerPixel);
+        header.flip();
+        writeFully(header);
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            output.write(data);
+        }
+    }
+
+    /**
+     * Umple buffer-ul din canal. Transmisia se încheie doar prin cadrul de sfârșit, așa că un canal închis
+     * înainte, chiar și la granița dintre cadre, înseamnă că trimițătorul s-a oprit la jumătate.
+     *
+     * throws EOFException dacă fluxul se termină înainte ca buffer-ul să fie plin.
+     */
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (input.read(buffer) < 0) {
+                throw new EOFException("Sfârșitul stream-ului a fost atins înainte de cadrul de sfârșit.");
+            }
+        }
+    }
+
+    /**
+     * Pregătește un buffer de pixeli pentru exact length octeți.
+     *
+     * returneaza buffer-ul primit, sau unul nou, mai mare, dacă acela nu ajunge.
+     */
+    private static ByteBuffer sized(ByteBuffer buffer, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Segmentul este prea mare pentru un cadru: " + length + " octeți.");
+        }
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocateDirect((int) length);
+        }
+        buffer.clear().limit((int) length);
+        return buffer;
+    }
+
+    // Buffer-ele de codificare ale unui fir care trimite.
+    private static final class Encoder {
+        private ByteBuffer pixels = ByteBuffer.allocate(0);
+        private int[] rgbRow = new int[0];
+    }
+}
@@ -1,257 +1,321 @@
-package work;
-import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.PipedOutputStream;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.concurrent.BlockingQueue;
-
-import javax.imageio.ImageIO;
-
-//Clasa ImageProcess extinde Thread, permițând executarea procesării imaginii într-un fir de execuție separat.
-public class ImageProcess extends TimeProcessing {
- private BlockingQueue<BufferedImage> buffer; // Bufferul pentru stocarea și extragerea imaginilor.
- private PipedOutputStream output; // Stream pentru trimiterea imaginii procesate către un alt proces.
- private long timeProcess; // Variabilă pentru monitorizarea timpului de procesare.
-
- // Constructorul clasei ImageProcess.
- public ImageProcess(BlockingQueue<BufferedImage> buffer, PipedOutputStream output) {
-     this.buffer = buffer;
-     this.output = output;
- }
-
- /**
-  * Metoda 'run' reprezintă funcția principală a firului de execuție pentru clasa ImageProcess.
-  * În această metodă, imaginea este preluată din buffer, procesată și apoi împărțită în segmente.
-  * Fiecare segment este trimis individual prin PipedOutputStream pentru a fi ulterior scris în fișier.
-  */
- @Override
- public void run() {
-     try {
-         // Începe monitorizarea timpului de procesare.
-         
-
-         // Extrage imaginea din buffer.
-         BufferedImage image = buffer.take(); 
-            BufferedImage processedImage = processImage(image);//proceseaza imaginea
-
-            // Împarte imaginea procesată în 4 segmente și le trimite
-            int segmentHeight = processedImage.getHeight() / 4;
-
-            for (int i = 0; i < 4; i++) {
-                // Calculează coordonatele y și înălțimea pentru fiecare segment
-                int y = i * segmentHeight;
-                int h = (i == 3) ? (processedImage.getHeight() - y) : segmentHeight; // Ajustare pentru ultimul segment
-                BufferedImage segment = processedImage.getSubimage(0, y, processedImage.getWidth(), h);
-                
-             // Crează un flux de ieșire pentru a scrie segmentul în formatul BMP.
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(segment, "bmp", baos);
-                byte[] segmentBytes = baos.toByteArray();
-
-                // Trimite dimensiunea segmentului înainte de datele efective ale segmentului.
-                output.write(ByteBuffer.allocate(4).putInt(segmentBytes.length).array());
-                // Trimite datele segmentului prin pipe.
-                output.write(segmentBytes);
-    
-                // Afișează un mesaj în consolă pentru a indica transmiterea fiecărui segment.
-                System.out.println("Segmentul " + (i + 1) + " a fost transmis.");
-                Thread.sleep(1000);
-            }
-
-            // Închide PipedOutputStream după transmiterea tuturor segmentelor pentru a semnala finalul transmisiei.
-            output.close(); 
-//            timeProcess = System.currentTimeMillis() - timeProcess;
-        } catch (IOException e) {
-            System.err.println("Eroare la procesarea sau scrierea imaginii: " + e.getMessage());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("Thread-ul a fost întrerupt: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
- /**
-  * Procesează imaginea primită pentru a îmbunătăți calitatea acesteia.
-  * Aplică egalizarea histogramei pe imagine pentru a îmbunătăți contrastul și luminozitatea.
-  * 
-  * param original e imaginea originală care trebuie procesată.
-  * returneaza o imagine procesată cu histograma egalizată.
-  */
-
-private BufferedImage processImage(BufferedImage original) {
-	timeProcess = System.currentTimeMillis();
-    int width = original.getWidth();
-    int height = original.getHeight();
-
-    BufferedImage equalizedImage = new BufferedImage(width, height, original.getType());
-    ArrayList<int[]> histLUT = equalizeHistogram(original);
-
-    for (int i = 0; i < width; i++) {
-        for (int j = 0; j < height; j++) {
-            int alpha = new Color(original.getRGB(i, j)).getAlpha();
-            int red = new Color(original.getRGB(i, j)).getRed();
-            int green = new Color(original.getRGB(i, j)).getGreen();
-            int blue = new Color(original.getRGB(i, j)).getBlue();
-
-            // Setam noile valori ale pixelilor folosind histograma
-            red = histLUT.get(0)[red];
-            green = histLUT.get(1)[green];
-            blue = histLUT.get(2)[blue];
-
-            int newPixel = convertColorToRGB(alpha, red, green, blue);
-            equalizedImage.setRGB(i, j, newPixel);
-        }
-    }
-    timeProcess = System.currentTimeMillis() - timeProcess;
-    return equalizedImage;
-}
-
-/**
- * Calculează histogramele pentru fiecare canal de culoare al imaginii și creează o tabelă de căutare (LUT)
- * pentru a egaliza histograma fiecărui canal. Aceasta îmbunătățește contrastul imaginii.
- * 
- * param original e imaginea originală pentru care se calculează histogramele.
- * returneaza Un ArrayList conținând histogramele egalizate pentru fiecare canal de culoare.
- */
-
-private ArrayList<int[]> equalizeHistogram(BufferedImage original) {
-    
-
-     // calculam valoare histogramei pentru fiecare canal de culoare
-     ArrayList<int[]> imageHist = saveHistogram(original);
-
-     // vectorul  in care se vor salva valorile
-     ArrayList<int[]> imageLUT = new ArrayList<int[]>();
-
-     // Declaram vectorii
-     int[] rhistogram = new int[256];
-     int[] ghistogram = new int[256];
-     int[] bhistogram = new int[256];
-
-     for(int i=0; i<rhistogram.length; i++) rhistogram[i] = 0;
-     for(int i=0; i<ghistogram.length; i++) ghistogram[i] = 0;
-     for(int i=0; i<bhistogram.length; i++) bhistogram[i] = 0;
-
-     long sumr = 0;
-     long sumg = 0;
-     long sumb = 0;
-
-     //Calculam factorul de scalare
-     float scaleFactor = (float) (255.0 / (original.getWidth() * original.getHeight()));
-
-     for(int i=0; i<rhistogram.length; i++) {
-         sumr += imageHist.get(0)[i];
-         int valr = (int) (sumr * scaleFactor);
-         if(valr > 255) {
-             rhistogram[i] = 255;
-         }
-         else rhistogram[i] = valr;
-
-         sumg += imageHist.get(1)[i];
-         int valg = (int) (sumg * scaleFactor);
-         if(valg > 255) {
-             ghistogram[i] = 255;
-         }
-         else ghistogram[i] = valg;
-
-         sumb += imageHist.get(2)[i];
-         int valb = (int) (sumb * scaleFactor);
-         if(valb > 255) {
-             bhistogram[i] = 255;
-         }
-         else bhistogram[i] = valb;
-     }
-
-     imageLUT.add(rhistogram);
-     imageLUT.add(ghistogram);
-     imageLUT.add(bhistogram);
-
-     return imageLUT;
-}
-
-/**
- * Salvează histogramele pentru fiecare canal de culoare al imaginii originale.
- * Această metodă este folosită pentru a calcula distribuția pixelilor pe fiecare canal de culoare.
- * 
- * param original Imaginea originală pentru care se calculează histogramele.
- * returneaza un ArrayList conținând histogramele pentru fiecare canal de culoare.
- */
-
-public static ArrayList<int[]> saveHistogram(BufferedImage original) {
-
-    int[] rhistogram = new int[256];
-    int[] ghistogram = new int[256];
-    int[] bhistogram = new int[256];
-
-    for(int i=0; i<rhistogram.length; i++) rhistogram[i] = 0;
-    for(int i=0; i<ghistogram.length; i++) ghistogram[i] = 0;
-    for(int i=0; i<bhistogram.length; i++) bhistogram[i] = 0;
-
-    for(int i=0; i<original.getWidth(); i++) {
-        for(int j=0; j<original.getHeight(); j++) {
-
-            int red = new Color(original.getRGB (i, j)).getRed();
-            int green = new Color(original.getRGB (i, j)).getGreen();
-            int blue = new Color(original.getRGB (i, j)).getBlue();
-
-            
-            rhistogram[red]++; ghistogram[green]++; bhistogram[blue]++;
-
-        }
-    }
-
-    ArrayList<int[]> hist = new ArrayList<int[]>();
-    hist.add(rhistogram);
-    hist.add(ghistogram);
-    hist.add(bhistogram);
-
-    return hist;
-
-}
-
-/**
- * Converteste valorile individuale de culoare într-o valoare de pixel RGB.
- * Această metodă combină valorile separate ale canalelor
-de culoare într-un singur pixel colorat.
-
-* param alpha =>Valoarea alpha a pixelului (transparență).
-* param red =>Valoarea canalului roșu a pixelului.
-* param green =>Valoarea canalului verde a pixelului.
-* param blue => Valoarea canalului albastru a pixelului.
-* returneaza valoarea pixelului combinat, formată din componentele alpha, red, green și blue.
-*/
-
-private static int convertColorToRGB(int alpha, int red, int green, int blue) {
-	  int newPixel = 0;
-      newPixel += alpha; newPixel = newPixel << 8;
-      newPixel += red; newPixel = newPixel << 8;
-      newPixel += green; newPixel = newPixel << 8;
-      newPixel += blue;
-
-      return newPixel;
-}
-//calculeaza timpul de procesare a imaginii
-//@Override
-//public long timpProcesare() {
-//    System.out.println("Procesarea imaginii a durat " + timeProcess / 1000.0f + " secunde");
-//    return 0;
-//}
-
-@Override
-public long timpProcesare() {
-	// TODO Auto-generated method stub
-	System.out.println("Procesarea imaginii a durat " + timeProcess / 1000.0f + " secunde");
-	return 0;
-}
-
-@Override
-public long timpCitire() {
-	// TODO Auto-generated method stub
-	return 0;
-}
-
-
+package work;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PipedOutputStream;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//Clasa ImageProcess extinde Thread, permițând executarea procesării imaginii într-un fir de execuție separat.
+public class ImageProcess extends TimeProcessing {
+ private BlockingQueue<DecodedFrame> buffer; // Bufferul din care se extrag imaginile citite, cu histogramele lor.
+ private SegmentTransport output; // Transportul prin care segmentele procesate ajung la WriteImage.
+ private long timeProcess; // Variabilă pentru monitorizarea timpului de procesare.
+ private ParallelEqualizer parallel; // Motorul paralel pentru histogramă și LUT; null înseamnă procesare pe un singur fir.
+ private LutCache lutCache; // Cache-ul de LUT-uri pentru imagini repetate; null înseamnă calcul la fiecare imagine.
+ private EqualizationEngine engine; // Algoritmul de egalizare; null înseamnă egalizarea pe canale, cu lutCache.
+ private RasterPool rasterPool; // Rezerva din care se ia imaginea procesată; null înseamnă o imagine nouă.
+ private TileLayout tileLayout = TileLayout.defaults(); // Dalele pe care se aplică LUT-ul și care sunt trimise către WriteImage.
+ private final StageReporter reporter = new StageReporter(ProgressEvent.Stage.PROCESS); // Profilul și evenimentele de progres.
+
+ // Constructorul clasei ImageProcess; segmentele sunt trimise în formatul vechi, BMP prefixat de lungime.
+ public ImageProcess(BlockingQueue<DecodedFrame> buffer, PipedOutputStream output) {
+     this(buffer, new BmpStreamSegmentTransport(output));
+ }
+
+ // Constructorul clasei ImageProcess cu un transport ales de apelant (de exemplu RasterSegmentTransport).
+ public ImageProcess(BlockingQueue<DecodedFrame> buffer, SegmentTransport output) {
+     this.buffer = buffer;
+     this.output = output;
+ }
+
+ /**
+  * Activează procesarea paralelă a histogramei și a LUT-ului pe benzi de rânduri.
+  * O valoare de 1 revine la procesarea pe un singur fir. Rezultatul este identic în ambele moduri.
+  *
+  * param parallelism => numărul de fire din ForkJoinPool.
+  */
+ public void setParallelism(int parallelism) {
+     if (parallel != null) {
+         parallel.shutdown();
+     }
+     parallel = parallelism > 1 ? new ParallelEqualizer(parallelism) : null;
+ }
+
+ // Alege dimensiunile dalelor; pentru transporturile care nu păstrează poziția se folosesc benzi pe toată lățimea.
+ public void setTileLayout(TileLayout tileLayout) {
+     this.tileLayout = tileLayout;
+ }
+
+ // Refolosește LUT-urile calculate pentru histograme deja întâlnite; cache-ul poate fi partajat între etape.
+ public void setLutCache(LutCache lutCache) {
+     this.lutCache = lutCache;
+ }
+
+ // Alege algoritmul de egalizare (pe canale, pe luminanță sau CLAHE); null revine la egalizarea pe canale.
+ public void setEngine(EqualizationEngine engine) {
+     this.engine = engine;
+ }
+
+ /**
+  * Ia imaginea procesată din rezervă și înapoiază acolo imaginea primită de la ReadImage după procesare.
+  * Imaginea procesată se înapoiază doar dacă transportul copiază segmentele (SegmentTransport.copiesSegments);
+  * altfel WriteImage încă le citește după ce această etapă s-a terminat.
+  */
+ public void setRasterPool(RasterPool rasterPool) {
+     this.rasterPool = rasterPool;
+ }
+
+ // Alege profilul de execuție; implicit THROUGHPUT, DEMO păstrează pauzele și mesajele pentru fiecare segment.
+ public void setProfile(ExecutionProfile profile) {
+     reporter.setProfile(profile);
+ }
+
+ // Setează distribuitorul la care etapa își publică evenimentele de progres.
+ public void setProgressEvents(ProgressEvents events) {
+     reporter.setEvents(events);
+ }
+
+ // Înregistrează măsurătorile etapei (latențe, așteptarea la coadă și la transport, octeți, pixeli) în registrul comun.
+ public void setMetrics(PipelineMetrics metrics) {
+     reporter.setMetrics(metrics);
+ }
+
+ public StageMetrics getMetrics() {
+     return reporter.getMetrics();
+ }
+
+/**
+ * Metoda 'run' reprezintă funcția principală a firului de execuție pentru clasa ImageProcess.
+ * În această metodă, imaginea este preluată din buffer împreună cu histograma calculată de ReadImage, se construiește LUT-ul
+ * pentru toată imaginea, apoi LUT-ul se aplică pe dale. Fiecare dală este trimisă prin SegmentTransport imediat ce este gata,
+ * astfel încât WriteImage o poate așeza în imaginea finală în timp ce celelalte dale sunt încă procesate.
+ */
+@Override
+public void run() {
+    boolean finished = false;
+    Throwable failure = null;
+    try {
+        // Începe monitorizarea timpului de procesare; așteptarea imaginii în buffer este măsurată separat.
+        reporter.stageStarted();
+        long stageStart = System.nanoTime();
+
+        // Extrage imaginea din buffer.
+        DecodedFrame frame = buffer.take();
+        reporter.queueWait(System.nanoTime() - stageStart);
+        if (frame == DecodedFrame.FAILED) {
+            // Citirea a eșuat și a raportat deja eroarea; WriteImage primește doar întreruperea transmisiei.
+            failure = new IOException("Imaginea sursă nu a putut fi citită.");
+            return;
+        }
+        BufferedImage image = frame.getImage();
+        long processStart = System.nanoTime();
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        // Histograma are nevoie de toată imaginea; ReadImage a calculat-o deja în timpul citirii.
+        // După ce LUT-urile sunt gata, dalele sunt independente.
+        EqualizationEngine current = engine != null ? engine : new ChannelEngine(lutCache);
+        EqualizationEngine.Transform transform = current.prepare(image, frame.getHistogram(), parallel);
+        BufferedImage processedImage = rasterPool != null ? rasterPool.acquire(width, height, image.getType())
+                : new BufferedImage(width, height, image.getType());
+        reporter.pixels((long) width * height);
+
+        // Formatul vechi nu transmite poziția pe orizontală, așa că primește benzi pe toată lățimea, în ordine.
+        TileLayout layout = output.preservesLayout() ? tileLayout : tileLayout.fullWidth();
+        List<Rectangle> tiles = layout.tiles(width, height);
+        LongAdder sentBytes = new LongAdder();
+        ParallelEqualizer.TileAction action = (index, tile) ->
+                sentBytes.add(processTile(index, tile, image, processedImage, transform));
+        if (parallel != null && output.preservesLayout() && !reporter.isDemo()) {
+            parallel.forEachTile(tiles, action);
+        } else {
+            for (int i = 0; i < tiles.size(); i++) {
+                action.run(i, tiles.get(i));
+            }
+        }
+        timeProcess = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - processStart);
+
+        // Semnalează finalul transmisiei după trimiterea tuturor segmentelor.
+        long finishStart = System.nanoTime();
+        output.finish();
+        finished = true;
+        reporter.transportBlocked(System.nanoTime() - finishStart);
+        if (rasterPool != null) {
+            rasterPool.release(image);
+            if (output.copiesSegments()) {
+                rasterPool.release(processedImage);
+            }
+        }
+        reporter.stageFinished(sentBytes.sum(), System.nanoTime() - stageStart);
+        if (parallel != null) {
+            parallel.shutdown();
+        }
+    } catch (IOException | RuntimeException | OutOfMemoryError e) {
+        failure = e;
+        System.err.println("Eroare la procesarea sau scrierea imaginii: " + e);
+    } catch (InterruptedException e) {
+        failure = e;
+        Thread.currentThread().interrupt();
+        System.err.println("Thread-ul a fost întrerupt: " + e.getMessage());
+        e.printStackTrace();
+    } finally {
+        // Când procesarea se oprește la jumătate, WriteImage primește întreruperea transmisiei, nu finalul ei,
+        // ca să nu scrie o imagine din care lipsesc dale.
+        if (!finished) {
+            try {
+                output.fail(failure);
+            } catch (IOException e) {
+                System.err.println("Eroare la închiderea transmisiei: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
+
+/**
+ * Aplică transformarea motorului de egalizare pe o dală și o trimite către WriteImage.
+ * Poate fi apelată în paralel pentru dale diferite: fiecare dală scrie doar în propria zonă a imaginii procesate.
+ *
+ * returneaza numărul de octeți ai dalei trimise.
+ */
+private long processTile(int index, Rectangle tile, BufferedImage original, BufferedImage processedImage,
+        EqualizationEngine.Transform transform) throws IOException, InterruptedException {
+    long segmentStart = System.nanoTime();
+    reporter.segmentStarted(index);
+    BufferedImage segment = processedImage.getSubimage(tile.x, tile.y, tile.width, tile.height);
+    transform.apply(original, processedImage, tile);
+
+    // Trimite segmentul; transportul decide dacă îl predă prin referință sau îl codifică.
+    ImageSegment message = new ImageSegment(index, tile.x, tile.y, segment, processedImage.getWidth(), processedImage.getHeight());
+    long sendStart = System.nanoTime();
+    output.send(message);
+    reporter.transportBlocked(System.nanoTime() - sendStart);
+
+    // Afișează un mesaj în consolă pentru a indica transmiterea fiecărui segment.
+    if (reporter.isDemo()) {
+        System.out.println("Segmentul " + (index + 1) + " a fost transmis.");
+    }
+    reporter.segmentFinished(index, message.byteSize(), System.nanoTime() - segmentStart);
+    reporter.pace();
+    return message.byteSize();
+}
+
+/**
+ * Egalizează histograma unei imagini fără a depinde de un fir ImageProcess.
+ * Este folosită de modul batch, unde mai mulți workeri procesează imagini diferite.
+ *
+ * param original e imaginea originală care trebuie procesată.
+ * param parallel e motorul paralel folosit pentru histogramă și LUT, sau null pentru un singur fir.
+ * returneaza o imagine nouă, de același tip, cu histograma egalizată.
+ */
+public static BufferedImage equalize(BufferedImage original, ParallelEqualizer parallel) {
+    return equalize(original, parallel, (LutCache) null);
+}
+
+/**
+ * Egalizează histograma unei imagini, luând LUT-ul din cache când histograma a mai fost întâlnită.
+ *
+ * param original e imaginea originală care trebuie procesată.
+ * param parallel e motorul paralel folosit pentru histogramă și LUT, sau null pentru un singur fir.
+ * param cache e cache-ul de LUT-uri, sau null pentru calculul LUT-ului la fiecare imagine.
+ * returneaza o imagine nouă, de același tip, cu histograma egalizată.
+ */
+public static BufferedImage equalize(BufferedImage original, ParallelEqualizer parallel, LutCache cache) {
+    int width = original.getWidth();
+    int height = original.getHeight();
+
+    BufferedImage equalizedImage = new BufferedImage(width, height, original.getType());
+    ChannelLut histLUT = equalizeHistogram(original, parallel, cache);
+
+    // Setam noile valori ale pixelilor folosind histograma, direct pe datele rasterului
+    if (parallel != null) {
+        parallel.applyLut(original, equalizedImage, histLUT);
+    } else {
+        RasterKernel.applyLut(original, equalizedImage, 0, height, histLUT);
+    }
+    return equalizedImage;
+}
+
+/**
+ * Egalizează o imagine cu motorul dat, de exemplu LuminanceEngine sau ClaheEngine.
+ *
+ * param original e imaginea originală care trebuie procesată.
+ * param parallel e motorul paralel folosit pentru histograme și dale, sau null pentru un singur fir.
+ * param engine e algoritmul de egalizare.
+ * returneaza o imagine nouă, de același tip, cu histograma egalizată.
+ */
+public static BufferedImage equalize(BufferedImage original, ParallelEqualizer parallel, EqualizationEngine engine) {
+    return engine.equalize(original, parallel);
+}
+
+/**
+ * Calculează histogramele pentru fiecare canal de culoare al imaginii și creează o tabelă de căutare (LUT)
+ * pentru a egaliza histograma fiecărui canal. Aceasta îmbunătățește contrastul imaginii.
+ * 
+ * param original e imaginea originală pentru care se calculează histogramele.
+ * param parallel e motorul paralel pentru histogramă, sau null pentru un singur fir.
+ * param cache e cache-ul de LUT-uri, sau null.
+ * returneaza tabelele LUT pentru fiecare canal de culoare.
+ */
+
+private static ChannelLut equalizeHistogram(BufferedImage original, ParallelEqualizer parallel, LutCache cache) {
+    
+
+     // calculam valoare histogramei pentru fiecare canal de culoare
+     ChannelHistogram imageHist = parallel != null ? parallel.histogram(original) : saveHistogram(original);
+
+     // pentru cadre repetate LUT-ul se ia din cache in loc sa fie recalculat
+     return cache != null ? cache.lookup(imageHist) : histogramToLut(imageHist);
+}
+
+/**
+ * Construiește tabelele LUT de egalizare din histogramele deja calculate.
+ * Este separată de equalizeHistogram pentru modurile care nu țin toată imaginea în memorie
+ * și adună histograma pe benzi (de exemplu StreamingEqualizer).
+ * Nivelul i al fiecărui canal devine floor(255 * cdf(i) / total), calculat exact, în aritmetică întreagă.
+ *
+ * param imageHist histogramele pentru roșu, verde și albastru.
+ * returneaza tabelele LUT pentru fiecare canal de culoare.
+ */
+public static ChannelLut histogramToLut(ChannelHistogram imageHist) {
+     return ChannelLut.equalize(imageHist);
+}
+
+/**
+ * Salvează histogramele pentru fiecare canal de culoare al imaginii originale.
+ * Această metodă este folosită pentru a calcula distribuția pixelilor pe fiecare canal de culoare.
+ * 
+ * param original Imaginea originală pentru care se calculează histogramele.
+ * returneaza histograma celor trei canale de culoare.
+ */
+
+public static ChannelHistogram saveHistogram(BufferedImage original) {
+    // Numaram valorile fiecarui canal parcurgand rasterul pe randuri, fara obiecte Color
+    return ChannelHistogram.of(original);
+}
+
+/**
+ * Afișează și întoarce durata egalizării imaginii, fără așteptarea la buffer. Include trimiterea dalelor,
+ * care se suprapune cu aplicarea LUT-ului pe dalele următoare.
+ * Valorile detaliate (percentile pe segment, timpul blocat la transport) sunt în getMetrics().
+ *
+ * returneaza timpul de procesare, în milisecunde.
+ */
+@Override
+public long timpProcesare() {
+	System.out.println("Procesarea imaginii a durat " + timeProcess / 1000.0f + " secunde");
+	return timeProcess;
+}
+
+// Etapa de procesare nu citește fișierul; timpul de citire este raportat de ReadImage.
+@Override
+public long timpCitire() {
+	return 0;
+}
+
+
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package work;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Un segment al imaginii procesate, transmis de ImageProcess către WriteImage.
+ * Pe lângă pixeli, segmentul își cunoaște poziția în imaginea completă, astfel încât
+ * scriitorul îl poate așeza direct la locul lui. Dimensiunile totale sunt -1 când transportul
+ * nu le poate transmite (formatul vechi, cu BMP prefixat de lungime).
+ */
+public final class ImageSegment {
+    private final int index;
+    private final int x;
+    private final int y;
+    private final BufferedImage image;
+    private final int totalWidth;
+    private final int totalHeight;
+
+    public ImageSegment(int index, int x, int y, BufferedImage image, int totalWidth, int totalHeight) {
+        this.index = index;
+        this.x = x;
+        this.y = y;
+        this.image = image;
+        this.totalWidth = totalWidth;
+        this.totalHeight = totalHeight;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    // Pixelii segmentului; pentru transportul prin referință este o vedere (getSubimage) a imaginii procesate.
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public int getTotalWidth() {
+        return totalWidth;
+    }
+
+    public int getTotalHeight() {
+        return totalHeight;
+    }
+
+    // Adevărat dacă se cunosc dimensiunile imaginii complete.
+    public boolean hasTotalSize() {
+        return totalWidth > 0 && totalHeight > 0;
+    }
+
+    // Numărul de octeți ai pixelilor din segment, conform modelului de culoare.
+    public long byteSize() {
+        return (long) image.getWidth() * image.getHeight() * image.getColorModel().getPixelSize() / 8;
+    }
+}
@@ -0,0 +1,77 @@
+package work;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Scrie imaginea bandă cu bandă printr-un ImageWriter care permite prepareWriteEmpty și replacePixels
+ * (de exemplu TIFF). Imaginea goală este declarată la început, iar fiecare bandă înlocuiește pixelii ei.
+ */
+class ImageWriterStripSink implements StripSink {
+    private final ImageWriter writer;
+    private final ImageOutputStream stream;
+    private final int width;
+
+    ImageWriterStripSink(Path output, String formatName, ImageTypeSpecifier type, int width, int height) throws IOException {
+        this.width = width;
+        Files.deleteIfExists(output);
+        this.stream = ImageIO.createImageOutputStream(output.toFile());
+        this.writer = findWriter(formatName, stream);
+        if (writer == null) {
+            stream.close();
+            throw new IOException("Formatul " + formatName + " nu permite scrierea imaginii pe benzi.");
+        }
+        writer.prepareWriteEmpty(null, type, width, height, null, null, writer.getDefaultWriteParam());
+        // Înlocuirea pixelilor se poate verifica doar după ce imaginea goală a fost declarată.
+        if (!writer.canReplacePixels(0)) {
+            writer.dispose();
+            stream.close();
+            throw new IOException("Formatul " + formatName + " nu permite scrierea imaginii pe benzi.");
+        }
+    }
+
+    // Caută un scriitor pentru format care știe să scrie o imagine goală.
+    private static ImageWriter findWriter(String formatName, ImageOutputStream stream) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        while (writers.hasNext()) {
+            ImageWriter candidate = writers.next();
+            candidate.setOutput(stream);
+            if (candidate.canWriteEmpty()) {
+                return candidate;
+            }
+            candidate.dispose();
+        }
+        return null;
+    }
+
+    @Override
+    public void writeStrip(BufferedImage strip, int y, int rows) throws IOException {
+        writer.prepareReplacePixels(0, new Rectangle(0, y, width, rows));
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setSourceRegion(new Rectangle(0, 0, width, rows));
+        param.setDestinationOffset(new Point(0, y));
+        writer.replacePixels(strip, param);
+        writer.endReplacePixels();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.endWriteEmpty();
+        } finally {
+            writer.dispose();
+            stream.close();
+        }
+    }
+}
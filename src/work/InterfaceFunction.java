@@ -1,6 +1,7 @@
-package work;
-
-public interface InterfaceFunction {
-	
-	public abstract long timpScriere();
-}
+package work;
+
+// Etapă care raportează durata scrierii, în milisecunde; măsurătorile detaliate sunt în StageMetrics.
+public interface InterfaceFunction {
+	
+	public abstract long timpScriere();
+}
@@ -0,0 +1,61 @@
+package work;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executoare pentru etapele care stau mai mult blocate în I/O decât lucrează (citirea și scrierea fișierelor).
+ * Pe Java 21 sau mai nou fiecare sarcină primește un fir virtual, deci mii de fișiere pot aștepta după disc
+ * sau rețea fără câte un fir de sistem pentru fiecare. Pe versiunile mai vechi se folosește un pool de fire
+ * daemon create la nevoie. Metoda Java 21 este căutată prin reflecție, ca proiectul să compileze și pe Java 17.
+ */
+public final class IoExecutors {
+    // Executors.newVirtualThreadPerTaskExecutor, sau null înainte de Java 21.
+    private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+    private IoExecutors() {
+    }
+
+    // Adevărat dacă newPerTaskExecutor creează fire virtuale.
+    public static boolean isVirtual() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Un executor cu câte un fir pentru fiecare sarcină: virtual dacă JVM-ul îl oferă, altfel un fir daemon
+     * dintr-un pool fără limită, refolosit după 60 de secunde de inactivitate.
+     *
+     * param name => prefixul numelui firelor de rezervă, de exemplu "service-io".
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Metoda există dar nu poate fi apelată (de exemplu preview dezactivat); se folosește pool-ul de rezervă.
+            }
+        }
+        return Executors.newCachedThreadPool(daemonThreads(name));
+    }
+
+    // Fire daemon numite name-1, name-2, ..., ca un serviciu uitat deschis să nu țină JVM-ul pornit.
+    public static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Method findVirtualExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Egalizează doar luminanța: Y din spațiul YCbCr (BT.601, ca în JPEG) primește LUT-ul de egalizare,
+ * iar crominanța (Cb, Cr) rămâne neschimbată, deci nuanțele culorilor se păstrează.
+ *
+ * În conversia inversă YCbCr -> RGB luminanța intră cu coeficientul 1 în fiecare canal, așa că
+ * înlocuirea lui Y cu Y' înseamnă adunarea diferenței Y' - Y la roșu, verde și albastru; nu mai este
+ * nevoie de Cb și Cr. Valorile care ies din intervalul 0..255 sunt tăiate.
+ */
+public class LuminanceEngine implements EqualizationEngine {
+
+    @Override
+    public EqualizationEngine.Transform prepare(BufferedImage source, ParallelEqualizer parallel) {
+        List<Rectangle> tiles = TileLayout.defaults().tiles(source.getWidth(), source.getHeight());
+        long[] histogram = new long[ChannelHistogram.LEVELS];
+        for (long[] local : EqualizationEngine.mapTiles(parallel, tiles, tile -> lumaHistogram(source, tile))) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += local[i];
+            }
+        }
+        int[] lut = equalizeLevels(histogram);
+        return (in, out, region) -> apply(in, out, region, lut);
+    }
+
+    @Override
+    public String getName() {
+        return "luminance";
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * Luminanța unui pixel RGB, în aritmetică întreagă: (77 R + 150 G + 29 B) / 256, rotunjit.
+     */
+    static int luma(int rgb) {
+        return (77 * ((rgb >> 16) & 0xFF) + 150 * ((rgb >> 8) & 0xFF) + 29 * (rgb & 0xFF) + 128) >> 8;
+    }
+
+    // Adună delta la fiecare canal, cu tăiere la 0..255; alpha rămâne neschimbat.
+    static int shift(int rgb, int delta) {
+        int r = clamp(((rgb >> 16) & 0xFF) + delta);
+        int g = clamp(((rgb >> 8) & 0xFF) + delta);
+        int b = clamp((rgb & 0xFF) + delta);
+        return (rgb & 0xFF000000) | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * LUT-ul de egalizare pentru o histogramă de 256 de niveluri, cu aceeași formulă ca ChannelLut.equalize:
+     * nivelul i devine floor(255 * cdf(i) / total).
+     */
+    static int[] equalizeLevels(long[] histogram) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        int[] lut = new int[histogram.length];
+        long cdf = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            cdf += histogram[i];
+            lut[i] = total == 0 ? 0 : (int) (255 * cdf / total);
+        }
+        return lut;
+    }
+
+    // Histograma luminanței pentru o dală.
+    static long[] lumaHistogram(BufferedImage image, Rectangle tile) {
+        long[] histogram = new long[ChannelHistogram.LEVELS];
+        int[] row = new int[tile.width];
+        for (int y = tile.y; y < tile.y + tile.height; y++) {
+            RasterKernel.readRgbRow(image, tile.x, y, tile.width, row);
+            for (int x = 0; x < tile.width; x++) {
+                histogram[luma(row[x])]++;
+            }
+        }
+        return histogram;
+    }
+
+    private static void apply(BufferedImage source, BufferedImage target, Rectangle region, int[] lut) {
+        int[] row = new int[region.width];
+        for (int y = region.y; y < region.y + region.height; y++) {
+            RasterKernel.readRgbRow(source, region.x, y, region.width, row);
+            for (int x = 0; x < row.length; x++) {
+                int rgb = row[x];
+                int luma = luma(rgb);
+                row[x] = shift(rgb, lut[luma] - luma);
+            }
+            RasterKernel.writeRgbRow(target, region.x, y, region.width, row);
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+}
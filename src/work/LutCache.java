@@ -0,0 +1,191 @@
+package work;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache mărginit de tabele LUT, cu evacuarea celei mai vechi folosiri (LRU).
+ * Cheia este amprenta de 64 de biți a histogramei (ChannelHistogram.fingerprint); la o potrivire a amprentei
+ * histogramele se compară complet, deci o coliziune nu poate întoarce LUT-ul altei imagini.
+ *
+ * Opțional, în modul cu toleranță, LUT-ul cadrului anterior este refolosit dacă histograma nouă diferă de cea
+ * din care a fost calculat cu mai puțin decât pragul dat. Acest mod este gândit pentru cadre video consecutive
+ * și schimbă rezultatul față de calculul exact, cu cel mult diferența permisă de prag.
+ */
+public class LutCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, ChannelLut> entries;
+    private volatile double tolerance;
+    // Histograma (normalizată) din care a fost calculat LUT-ul refolosit în modul cu toleranță.
+    private double[][] referenceHistogram;
+    private ChannelLut referenceLut;
+    private long hits;
+    private long nearHits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * param capacity => numărul maxim de tabele păstrate; cel puțin 1.
+     */
+    public LutCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacitatea trebuie să fie cel puțin 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, ChannelLut>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ChannelLut> eldest) {
+                if (size() > LutCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Activează refolosirea LUT-ului cadrului anterior pentru histograme apropiate.
+     *
+     * param tolerance => fracțiunea maximă de pixeli care își pot schimba intervalul pe un canal (0..1);
+     *                    0 dezactivează modul, de exemplu 0.01 înseamnă cel mult 1% din pixeli.
+     */
+    public void setTolerance(double tolerance) {
+        if (tolerance < 0 || tolerance > 1) {
+            throw new IllegalArgumentException("Toleranța trebuie să fie între 0 și 1: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Întoarce LUT-ul pentru histograma dată, calculându-l cu ImageProcess.histogramToLut doar la nevoie.
+     *
+     * param histogram => histograma celor trei canale, ca în ImageProcess.saveHistogram.
+     * returneaza tabelele LUT pentru fiecare canal de culoare.
+     */
+    public synchronized ChannelLut lookup(ChannelHistogram histogram) {
+        // Căutarea folosește histograma apelantului; copia se face doar când intrarea este adăugată.
+        Key key = new Key(histogram, histogram.fingerprint());
+        ChannelLut lut = entries.get(key);
+        if (lut != null) {
+            hits++;
+            return lut;
+        }
+        double[][] normalized = null;
+        if (tolerance > 0) {
+            normalized = normalize(histogram);
+            if (referenceLut != null && distance(referenceHistogram, normalized) <= tolerance) {
+                nearHits++;
+                return referenceLut;
+            }
+        }
+        misses++;
+        lut = ImageProcess.histogramToLut(histogram);
+        entries.put(new Key(histogram.copy(), key.fingerprint), lut);
+        if (normalized != null) {
+            referenceHistogram = normalized;
+            referenceLut = lut;
+        }
+        return lut;
+    }
+
+    // Golește cache-ul și referința pentru toleranță; contoarele rămân.
+    public synchronized void clear() {
+        entries.clear();
+        referenceHistogram = null;
+        referenceLut = null;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    // Cadrele pentru care s-a refolosit LUT-ul anterior în modul cu toleranță.
+    public synchronized long getNearHits() {
+        return nearHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Raportul dintre cererile servite fără recalcularea LUT-ului și totalul cererilor.
+    public synchronized double hitRate() {
+        long total = hits + nearHits + misses;
+        return total == 0 ? 0 : (double) (hits + nearHits) / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("cache LUT: %d/%d intrări, %d potriviri exacte, %d apropiate, %d ratări, %d evacuări (%.1f%%)",
+                entries.size(), capacity, hits, nearHits, misses, evictions, hitRate() * 100);
+    }
+
+    // Fiecare canal împărțit la numărul lui de pixeli, ca imaginile de dimensiuni diferite să poată fi comparate.
+    private static double[][] normalize(ChannelHistogram histogram) {
+        double[][] result = new double[ChannelHistogram.CHANNELS][ChannelHistogram.LEVELS];
+        for (int c = 0; c < result.length; c++) {
+            long total = histogram.total(c);
+            for (int i = 0; i < ChannelHistogram.LEVELS; i++) {
+                result[c][i] = total == 0 ? 0 : (double) histogram.get(c, i) / total;
+            }
+        }
+        return result;
+    }
+
+    // Jumătate din distanța L1, maximul pe canale: fracțiunea de pixeli care ar trebui mutați între intervale.
+    private static double distance(double[][] a, double[][] b) {
+        double worst = 0;
+        for (int c = 0; c < a.length; c++) {
+            double sum = 0;
+            for (int i = 0; i < a[c].length; i++) {
+                sum += Math.abs(a[c][i] - b[c][i]);
+            }
+            worst = Math.max(worst, sum / 2);
+        }
+        return worst;
+    }
+
+    // Amprenta histogramei, împreună cu o copie a ei pentru comparația completă.
+    private static final class Key {
+        private final ChannelHistogram histogram;
+        private final long fingerprint;
+
+        Key(ChannelHistogram histogram, long fingerprint) {
+            this.histogram = histogram;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (fingerprint ^ (fingerprint >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return fingerprint == key.fingerprint && histogram.equals(key.histogram);
+        }
+    }
+}
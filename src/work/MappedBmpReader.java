@@ -0,0 +1,238 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Cititor BMP bazat pe FileChannel.map: antetul este interpretat o singură dată, iar rândurile de pixeli
+ * sunt expuse direct din zona mapată, cu ordinea de jos în sus și completarea rândurilor rezolvate aici.
+ * Citirea devine în mare parte o operație pe page cache, iar etapa de procesare poate lucra pe rândurile
+ * mapate fără să le copieze în heap.
+ */
+public class MappedBmpReader implements Closeable {
+    private final FileChannel channel;
+    private final BmpHeader header;
+    private final MappedRows rows;
+
+    private MappedBmpReader(FileChannel channel, BmpHeader header) {
+        this.channel = channel;
+        this.header = header;
+        this.rows = new MappedRows(channel, FileChannel.MapMode.READ_ONLY, header.dataOffset, header.rowSize,
+                header.height, header.topDown);
+    }
+
+    /**
+     * Deschide fișierul dacă este un BMP necomprimat pe 24 sau 32 de biți.
+     *
+     * param path => fișierul BMP.
+     * returneaza cititorul, sau null dacă fișierul are alt format (de exemplu un JPEG cu extensia .bmp).
+     */
+    public static MappedBmpReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer start = ByteBuffer.allocate(BmpHeader.MAX_HEADER_SIZE);
+            while (start.hasRemaining() && channel.read(start, start.position()) > 0) {
+                // citește până se umple antetul sau se termină fișierul
+            }
+            start.flip();
+            BmpHeader header = BmpHeader.parse(start, channel.size());
+            if (header == null) {
+                channel.close();
+                return null;
+            }
+            return new MappedBmpReader(channel, header);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Citește o imagine: BMP-urile acceptate trec prin cititorul mapat, orice alt format prin ImageIO.
+     *
+     * param path => fișierul sursă.
+     * returneaza imaginea, sau null dacă ImageIO nu recunoaște formatul.
+     */
+    public static BufferedImage read(Path path) throws IOException {
+        return read(path, null);
+    }
+
+    /**
+     * Ca read(path), dar imaginea BMP este luată din rezerva dată, dacă există una liberă de aceeași dimensiune.
+     *
+     * param pool => rezerva de imagini, sau null pentru o imagine nouă.
+     */
+    public static BufferedImage read(Path path, RasterPool pool) throws IOException {
+        return read(path, pool, null);
+    }
+
+    /**
+     * Citește imaginea și adaugă valorile ei în histogramă în aceeași trecere: fiecare rând BMP este numărat
+     * imediat după copiere. Formatele citite prin ImageIO sunt numărate după decodare.
+     *
+     * param pool => rezerva de imagini, sau null.
+     * param histogram => histograma în care se adună imaginea, sau null.
+     * returneaza imaginea, sau null dacă ImageIO nu recunoaște formatul.
+     */
+    public static BufferedImage read(Path path, RasterPool pool, ChannelHistogram histogram) throws IOException {
+        try (MappedBmpReader reader = open(path)) {
+            if (reader != null) {
+                return reader.toBufferedImage(pool, histogram);
+            }
+        }
+        BufferedImage image = ImageIO.read(path.toFile());
+        if (image != null && histogram != null) {
+            histogram.accumulate(image, 0, image.getHeight());
+        }
+        return image;
+    }
+
+    public int getWidth() {
+        return header.width;
+    }
+
+    public int getHeight() {
+        return header.height;
+    }
+
+    // 24 sau 32.
+    public int getBitsPerPixel() {
+        return header.bitsPerPixel;
+    }
+
+    public boolean hasAlpha() {
+        return header.hasAlpha;
+    }
+
+    /**
+     * Fereastra mapată care conține rândul y (numerotat de sus în jos).
+     * Pixelii rândului încep la rowOffset(y), în ordinea B, G, R (și A/X pentru 32 de biți).
+     */
+    public ByteBuffer rowBuffer(int y) throws IOException {
+        return rows.window(y);
+    }
+
+    // Poziția primului octet al rândului y în buffer-ul întors de rowBuffer(y).
+    public int rowOffset(int y) {
+        return rows.offset(y);
+    }
+
+    /**
+     * Copiază rândul y ca valori ARGB; pentru imaginile fără alpha, alpha este 0xFF.
+     *
+     * param y => rândul, numerotat de sus în jos.
+     * param argb => tabloul de cel puțin getWidth() elemente.
+     */
+    public void readRow(int y, int[] argb) throws IOException {
+        ByteBuffer window = rows.window(y);
+        int p = rows.offset(y);
+        int step = header.bytesPerPixel();
+        for (int x = 0; x < header.width; x++, p += step) {
+            int alpha = header.hasAlpha ? (window.get(p + 3) & 0xFF) << 24 : 0xFF000000;
+            argb[x] = alpha | (window.get(p + 2) & 0xFF) << 16 | (window.get(p + 1) & 0xFF) << 8 | (window.get(p) & 0xFF);
+        }
+    }
+
+    /**
+     * Adună histogramele canalelor direct din rândurile mapate, fără a crea o imagine în heap.
+     * Histograma nu este golită înainte.
+     */
+    public void accumulateHistogram(ChannelHistogram histogram) throws IOException {
+        accumulateHistogram(histogram, 0, header.height);
+    }
+
+    // Ca accumulateHistogram(histogram), doar pentru rândurile [fromRow, toRow), numerotate de sus în jos.
+    public void accumulateHistogram(ChannelHistogram histogram, int fromRow, int toRow) throws IOException {
+        long[] counts = histogram.counts();
+        int step = header.bytesPerPixel();
+        for (int y = fromRow; y < toRow; y++) {
+            ByteBuffer window = rows.window(y);
+            int p = rows.offset(y);
+            for (int x = 0; x < header.width; x++, p += step) {
+                counts[512 + (window.get(p) & 0xFF)]++;
+                counts[256 + (window.get(p + 1) & 0xFF)]++;
+                counts[window.get(p + 2) & 0xFF]++;
+            }
+        }
+    }
+
+    /**
+     * Copiază imaginea într-un BufferedImage: TYPE_3BYTE_BGR pentru 24 de biți (același tip pe care îl produce ImageIO),
+     * TYPE_INT_RGB sau TYPE_INT_ARGB pentru 32 de biți. Rândurile se copiază în bloc din zona mapată.
+     */
+    public BufferedImage toBufferedImage() throws IOException {
+        return toBufferedImage(null);
+    }
+
+    // Ca toBufferedImage(), cu imaginea luată din rezervă; fiecare rând este suprascris complet.
+    public BufferedImage toBufferedImage(RasterPool pool) throws IOException {
+        return toBufferedImage(pool, null);
+    }
+
+    // Ca toBufferedImage(pool), adunând fiecare rând copiat în histogramă (dacă nu este null).
+    public BufferedImage toBufferedImage(RasterPool pool, ChannelHistogram histogram) throws IOException {
+        long[] counts = histogram != null ? histogram.counts() : null;
+        int width = header.width;
+        int height = header.height;
+        if (header.bitsPerPixel == 24) {
+            BufferedImage image = allocate(pool, width, height, BufferedImage.TYPE_3BYTE_BGR);
+            ComponentSampleModel sm = (ComponentSampleModel) image.getRaster().getSampleModel();
+            byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            for (int y = 0; y < height; y++) {
+                // Ordinea B, G, R din BMP coincide cu cea din memoria unui TYPE_3BYTE_BGR.
+                int start = y * sm.getScanlineStride();
+                rows.window(y).get(rows.offset(y), data, start, width * 3);
+                if (counts != null) {
+                    for (int p = start, end = start + width * 3; p < end; p += 3) {
+                        counts[512 + (data[p] & 0xFF)]++;
+                        counts[256 + (data[p + 1] & 0xFF)]++;
+                        counts[data[p + 2] & 0xFF]++;
+                    }
+                }
+            }
+            return image;
+        }
+        BufferedImage image = allocate(pool, width, height,
+                header.hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            ByteBuffer row = rows.window(y).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            row.position(rows.offset(y));
+            row.asIntBuffer().get(data, y * width, width);
+            if (!header.hasAlpha) {
+                for (int i = y * width, end = i + width; i < end; i++) {
+                    data[i] &= 0x00FFFFFF;
+                }
+            }
+            if (counts != null) {
+                for (int i = y * width, end = i + width; i < end; i++) {
+                    int rgb = data[i];
+                    counts[(rgb >> 16) & 0xFF]++;
+                    counts[256 + ((rgb >> 8) & 0xFF)]++;
+                    counts[512 + (rgb & 0xFF)]++;
+                }
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage allocate(RasterPool pool, int width, int height, int type) {
+        return pool != null ? pool.acquire(width, height, type) : new BufferedImage(width, height, type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
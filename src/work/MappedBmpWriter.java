@@ -0,0 +1,157 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scriitor BMP pe 24 de biți bazat pe FileChannel.map.
+ * Fișierul este prealocat la dimensiunea finală, antetul se scrie la început, iar rândurile sunt completate
+ * direct în zona mapată, în ordinea de jos în sus cerută de BMP. Octeții rezultați sunt identici cu cei
+ * produși de ImageIO pentru o imagine TYPE_INT_RGB sau TYPE_3BYTE_BGR.
+ * Imaginile cu alpha se scriu pe 32 de biți (BGRA, antet BITMAPV4HEADER), ca alpha să nu se piardă.
+ */
+public class MappedBmpWriter implements StripSink {
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    // 3 pentru BGR, 4 pentru BGRA.
+    private final int bytesPerPixel;
+    private final MappedRows rows;
+    private final int[] rgbRow;
+
+    public MappedBmpWriter(Path output, int width, int height) throws IOException {
+        this(output, width, height, false);
+    }
+
+    /**
+     * param alpha => true pentru un BMP pe 32 de biți cu alpha; false pentru 24 de biți, alpha fiind ignorat.
+     */
+    public MappedBmpWriter(Path output, int width, int height, boolean alpha) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.bytesPerPixel = alpha ? 4 : 3;
+        this.rgbRow = new int[width];
+        int rowSize = BmpHeader.rowSize(width, bytesPerPixel * 8);
+        int headerSize = alpha ? BmpHeader.HEADER_SIZE_V4 : BmpHeader.HEADER_SIZE;
+        long total = headerSize + (long) rowSize * height;
+        // Antetul se construiește înainte de deschidere, ca o imagine prea mare să nu trunchieze sau să creeze fișierul.
+        ByteBuffer header = alpha ? BmpHeader.header32(width, height) : BmpHeader.header24(width, height, rowSize);
+        this.channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            // Prealocă fișierul: un octet scris la final îl extinde, iar restul rămâne zero (inclusiv completarea rândurilor).
+            channel.write(ByteBuffer.allocate(1), total - 1);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            this.rows = new MappedRows(channel, FileChannel.MapMode.READ_WRITE, headerSize, rowSize, height, false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Scrie o imagine întreagă într-un fișier BMP mapat, pe 32 de biți dacă imaginea are alpha, altfel pe 24.
+     *
+     * param image => imaginea de scris.
+     * param output => fișierul rezultat.
+     */
+    public static void write(BufferedImage image, Path output) throws IOException {
+        boolean alpha = image.getColorModel().hasAlpha();
+        try (MappedBmpWriter writer = new MappedBmpWriter(output, image.getWidth(), image.getHeight(), alpha)) {
+            writer.writeStrip(image, 0, image.getHeight());
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Numărul de octeți ai unui pixel în fișier: 3, sau 4 pentru imaginile cu alpha.
+    public int getBytesPerPixel() {
+        return bytesPerPixel;
+    }
+
+    // Fereastra mapată care conține rândul y (numerotat de sus în jos); pixelii se scriu în ordinea B, G, R (, A).
+    public ByteBuffer rowBuffer(int y) throws IOException {
+        return rows.window(y);
+    }
+
+    // Poziția primului octet al rândului y în buffer-ul întors de rowBuffer(y).
+    public int rowOffset(int y) {
+        return rows.offset(y);
+    }
+
+    // Scrie rândul y din valori ARGB; alpha se scrie doar în fișierele pe 32 de biți.
+    public void writeRow(int y, int[] rgb) throws IOException {
+        ByteBuffer window = rows.window(y);
+        int p = rows.offset(y);
+        if (bytesPerPixel == 4) {
+            for (int x = 0; x < width; x++, p += 4) {
+                int v = rgb[x];
+                window.put(p, (byte) v);
+                window.put(p + 1, (byte) (v >> 8));
+                window.put(p + 2, (byte) (v >> 16));
+                window.put(p + 3, (byte) (v >>> 24));
+            }
+            return;
+        }
+        for (int x = 0; x < width; x++, p += 3) {
+            int v = rgb[x];
+            window.put(p, (byte) v);
+            window.put(p + 1, (byte) (v >> 8));
+            window.put(p + 2, (byte) (v >> 16));
+        }
+    }
+
+    /**
+     * Scrie primele rows rânduri din strip începând cu rândul y.
+     * Pentru TYPE_3BYTE_BGR rândurile se copiază în bloc din raster; celelalte tipuri trec prin getRGB.
+     */
+    @Override
+    public void writeStrip(BufferedImage strip, int y, int rowCount) throws IOException {
+        if (strip.getType() == BufferedImage.TYPE_3BYTE_BGR && bytesPerPixel == 3) {
+            ComponentSampleModel sm = (ComponentSampleModel) strip.getRaster().getSampleModel();
+            if (sm.getPixelStride() == 3) {
+                byte[] data = ((DataBufferByte) strip.getRaster().getDataBuffer()).getData();
+                for (int r = 0; r < rowCount; r++) {
+                    int start = RasterKernel.componentRowStart(strip.getRaster(), sm, r) + minBandOffset(sm);
+                    rows.window(y + r).put(rows.offset(y + r), data, start, width * 3);
+                }
+                return;
+            }
+        }
+        for (int r = 0; r < rowCount; r++) {
+            strip.getRGB(0, r, width, 1, rgbRow, 0, width);
+            writeRow(y + r, rgbRow);
+        }
+    }
+
+    private static int minBandOffset(ComponentSampleModel sm) {
+        int min = Integer.MAX_VALUE;
+        for (int offset : sm.getBandOffsets()) {
+            min = Math.min(min, offset);
+        }
+        return min;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            rows.force();
+        } finally {
+            channel.close();
+        }
+    }
+}
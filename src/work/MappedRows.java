@@ -0,0 +1,71 @@
+package work;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Rândurile de pixeli ale unui BMP, mapate în memorie în ferestre de rânduri întregi.
+ * Un MappedByteBuffer poate acoperi cel mult 2 GB, așa că fișierele mari sunt mapate pe bucăți,
+ * la cerere. Rândul logic y (de sus în jos) este tradus în rândul din fișier, ținând cont de ordinea BMP.
+ */
+final class MappedRows {
+    // Dimensiunea maximă a unei ferestre mapate.
+    private static final long MAX_WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final long dataOffset;
+    private final int rowSize;
+    private final int height;
+    private final boolean topDown;
+    private final int rowsPerWindow;
+    private final MappedByteBuffer[] windows;
+
+    MappedRows(FileChannel channel, FileChannel.MapMode mode, long dataOffset, int rowSize, int height, boolean topDown) {
+        this.channel = channel;
+        this.mode = mode;
+        this.dataOffset = dataOffset;
+        this.rowSize = rowSize;
+        this.height = height;
+        this.topDown = topDown;
+        this.rowsPerWindow = (int) Math.max(1, Math.min(height, MAX_WINDOW / Math.max(1, rowSize)));
+        this.windows = new MappedByteBuffer[(height + rowsPerWindow - 1) / rowsPerWindow];
+    }
+
+    // Fereastra mapată care conține rândul logic y.
+    ByteBuffer window(int y) throws IOException {
+        int fileRow = fileRow(y);
+        int index = fileRow / rowsPerWindow;
+        MappedByteBuffer window = windows[index];
+        if (window == null) {
+            int first = index * rowsPerWindow;
+            int rows = Math.min(rowsPerWindow, height - first);
+            window = channel.map(mode, dataOffset + (long) first * rowSize, (long) rows * rowSize);
+            windows[index] = window;
+        }
+        return window;
+    }
+
+    // Poziția rândului logic y în fereastra lui.
+    int offset(int y) {
+        return (fileRow(y) % rowsPerWindow) * rowSize;
+    }
+
+    // Scrie pe disc modificările din ferestrele mapate pentru scriere.
+    void force() {
+        for (MappedByteBuffer window : windows) {
+            if (window != null) {
+                window.force();
+            }
+        }
+    }
+
+    private int fileRow(int y) {
+        if (y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Rând în afara imaginii: " + y);
+        }
+        return topDown ? y : height - 1 - y;
+    }
+}
@@ -0,0 +1,329 @@
+package work;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Interfață HTTP locală pentru NormalizeService, ca alte procese să trimită lucrări serviciului deja pornit.
+ * Parametrii se dau în query string, iar răspunsurile sunt JSON:
+ *
+ *   POST   /jobs?input=A&output=B[&engine=clahe][&timeout=MS][&wait=true]   trimite o lucrare; întoarce id-ul
+ *          (202), sau rezultatul când wait=true
+ *   GET    /jobs/ID      starea lucrării: running, done, failed, timeout sau cancelled
+ *   DELETE /jobs/ID      anulează lucrarea
+ *   GET    /metrics      măsurătorile serviciului, ca în PipelineMetrics.toJson
+ *
+ * Fiecare cerere trebuie să aibă antetul "Authorization: Bearer TOKEN". Un formular trimis de o pagină web
+ * nu poate adăuga antetul, iar cererile care au antetul Origin (venite din browser) sunt refuzate oricum,
+ * deci ascultarea doar pe 127.0.0.1 nu este singura apărare.
+ * Căile din lucrări se rezolvă față de rădăcina de intrare, respectiv de ieșire, și trebuie să rămână în ele
+ * după rezolvarea legăturilor simbolice; serverul nu citește și nu scrie fișiere din afara lor.
+ */
+public class NormalizeServer implements Closeable {
+    // Numărul de lucrări terminate păstrate pentru GET /jobs/ID; cele mai vechi sunt uitate primele.
+    private static final int FINISHED_JOBS_KEPT = 1024;
+
+    private final NormalizeService service;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final Map<Long, CompletableFuture<NormalizeService.Result>> jobs =
+            new ConcurrentHashMap<Long, CompletableFuture<NormalizeService.Result>>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final byte[] token;
+    private final Path inputRoot;
+    private final Path outputRoot;
+
+    /**
+     * Pornește serverul pe 127.0.0.1.
+     *
+     * param service => serviciul care rulează lucrările; nu este închis de close.
+     * param port => portul TCP, sau 0 pentru unul liber (vezi getPort).
+     * param token => valoarea cerută în antetul Authorization (vezi newToken).
+     * param inputRoot => directorul din care se pot citi imagini.
+     * param outputRoot => directorul în care se pot scrie rezultate.
+     * throws IOException dacă un director rădăcină nu există sau portul nu poate fi deschis.
+     */
+    public NormalizeServer(NormalizeService service, int port, String token, Path inputRoot, Path outputRoot)
+            throws IOException {
+        this(service, new InetSocketAddress("127.0.0.1", port), token, inputRoot, outputRoot);
+    }
+
+    public NormalizeServer(NormalizeService service, InetSocketAddress address, String token, Path inputRoot,
+            Path outputRoot) throws IOException {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Serverul are nevoie de un token.");
+        }
+        this.service = service;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.inputRoot = inputRoot.toRealPath();
+        this.outputRoot = outputRoot.toRealPath();
+        this.server = HttpServer.create(address, 0);
+        // Cererile cu wait=true stau blocate până la terminarea lucrării, deci fiecare primește propriul fir.
+        this.handlers = IoExecutors.newPerTaskExecutor("service-http");
+        server.setExecutor(handlers);
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/metrics", this::handleMetrics);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Un token aleator de 32 de octeți, în hexazecimal.
+    public static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    // Oprește serverul fără a aștepta cererile în curs; lucrările trimise continuă în serviciu.
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        if (!authorized(exchange)) {
+            return;
+        }
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/jobs") || path.equals("/jobs/")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, error("Se acceptă doar POST pe /jobs."));
+                    return;
+                }
+                submit(exchange);
+                return;
+            }
+            long id = parseLong(path.substring("/jobs/".length()), "id");
+            CompletableFuture<NormalizeService.Result> job = jobs.get(id);
+            if (job == null) {
+                send(exchange, 404, error("Lucrare necunoscută."));
+            } else if (method.equals("GET")) {
+                send(exchange, 200, status(id, job));
+            } else if (method.equals("DELETE")) {
+                job.cancel(true);
+                send(exchange, 200, status(id, job));
+            } else {
+                send(exchange, 405, error("Metodă neacceptată: " + method));
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            send(exchange, 503, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Serverul se oprește."));
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException, InterruptedException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String input = query.get("input");
+        String output = query.get("output");
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Parametrii input și output sunt obligatorii.");
+        }
+        NormalizeService.Job job = new NormalizeService.Job(confineInput(input), confineOutput(output));
+        if (query.containsKey("engine")) {
+            job.setEngine(EqualizationEngine.forName(query.get("engine")));
+        }
+        if (query.containsKey("timeout")) {
+            job.setTimeout(parseLong(query.get("timeout"), "timeout"), TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<NormalizeService.Result> future = service.submit(job);
+        long id = nextId.incrementAndGet();
+        jobs.put(id, future);
+        forgetFinishedJobs();
+        if (Boolean.parseBoolean(query.get("wait"))) {
+            try {
+                future.get();
+            } catch (ExecutionException | CancellationException e) {
+                // Starea lucrării descrie eroarea.
+            }
+            send(exchange, future.isCompletedExceptionally() ? 500 : 200, status(id, future));
+            return;
+        }
+        send(exchange, 202, status(id, future));
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!authorized(exchange)) {
+            return;
+        }
+        send(exchange, 200, PipelineMetrics.toJson(service.getMetrics().snapshot(), System.currentTimeMillis()));
+    }
+
+    // Verifică tokenul și refuză cererile venite din browser; la refuz răspunsul este deja trimis.
+    private boolean authorized(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            send(exchange, 403, error("Cererile din browser nu sunt acceptate."));
+            return false;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        byte[] given = header != null && header.startsWith("Bearer ")
+                ? header.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (!MessageDigest.isEqual(given, token)) {
+            send(exchange, 401, error("Token lipsă sau greșit."));
+            return false;
+        }
+        return true;
+    }
+
+    // Fișierul sursă, rezolvat față de rădăcina de intrare; trebuie să existe și să rămână în ea.
+    private Path confineInput(String input) {
+        Path path;
+        try {
+            path = inputRoot.resolve(Paths.get(input)).toRealPath();
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Fișier de intrare inexistent sau invalid: " + input);
+        }
+        if (!path.startsWith(inputRoot) || !Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Fișierul de intrare nu este în " + inputRoot + ": " + input);
+        }
+        return path;
+    }
+
+    /**
+     * Fișierul rezultat, rezolvat față de rădăcina de ieșire. Directorul lui trebuie să existe în rădăcină;
+     * un fișier existent poate fi înlocuit doar dacă nu este o legătură simbolică spre altă parte.
+     */
+    private Path confineOutput(String output) {
+        Path path;
+        Path parent;
+        try {
+            path = outputRoot.resolve(Paths.get(output)).normalize();
+            parent = path.getParent() != null ? path.getParent().toRealPath() : null;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Director de ieșire inexistent sau invalid: " + output);
+        }
+        if (parent == null || path.getFileName() == null || !parent.startsWith(outputRoot)) {
+            throw new IllegalArgumentException("Fișierul rezultat nu este în " + outputRoot + ": " + output);
+        }
+        path = parent.resolve(path.getFileName());
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)
+                && (Files.isSymbolicLink(path) || !Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))) {
+            throw new IllegalArgumentException("Fișierul rezultat există și nu este un fișier obișnuit: " + output);
+        }
+        return path;
+    }
+
+    // Uită cele mai vechi lucrări terminate când sunt prea multe; lucrările în curs rămân mereu.
+    private void forgetFinishedJobs() {
+        if (jobs.size() <= FINISHED_JOBS_KEPT) {
+            return;
+        }
+        long oldest = nextId.get() - FINISHED_JOBS_KEPT;
+        for (Iterator<Map.Entry<Long, CompletableFuture<NormalizeService.Result>>> it = jobs.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Long, CompletableFuture<NormalizeService.Result>> entry = it.next();
+            if (entry.getKey() <= oldest && entry.getValue().isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String status(long id, CompletableFuture<NormalizeService.Result> job) {
+        StringBuilder json = new StringBuilder("{\"id\":").append(id).append(",\"status\":\"");
+        if (!job.isDone()) {
+            return json.append("running\"}").toString();
+        }
+        if (job.isCancelled()) {
+            return json.append("cancelled\"}").toString();
+        }
+        try {
+            NormalizeService.Result result = job.join();
+            return json.append("done\",\"output\":\"").append(escape(result.getOutput().toString()))
+                    .append("\",\"width\":").append(result.getWidth())
+                    .append(",\"height\":").append(result.getHeight())
+                    .append(",\"readNanos\":").append(result.getReadNanos())
+                    .append(",\"processNanos\":").append(result.getProcessNanos())
+                    .append(",\"writeNanos\":").append(result.getWriteNanos())
+                    .append(",\"totalNanos\":").append(result.getTotalNanos())
+                    .append('}').toString();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            String state = cause instanceof TimeoutException ? "timeout" : "failed";
+            return json.append(state).append("\",\"error\":\"").append(escape(cause.toString()))
+                    .append("\"}").toString();
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + escape(message) + "\"}";
+    }
+
+    private static void send(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] body = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> values = new HashMap<String, String>();
+        if (query == null) {
+            return values;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            values.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static long parseLong(String text, String name) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valoare invalidă pentru " + name + ": " + text, e);
+        }
+    }
+
+    private static String escape(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
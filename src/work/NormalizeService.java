@@ -0,0 +1,400 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serviciu de egalizare care rămâne pornit între lucrări, ca fiecare imagine să nu plătească pornirea JVM-ului,
+ * încălzirea JIT și crearea firelor, ca în test.Main. Lucrările se trimit cu submit și întorc un CompletableFuture.
+ *
+ * Fiecare lucrare trece prin trei sarcini: citirea și scrierea rulează pe un executor pentru I/O (fire virtuale
+ * când sunt disponibile, vezi IoExecutors), iar egalizarea pe un ForkJoinPool mărginit la numărul de nuclee,
+ * folosit și de ParallelEqualizer pentru histogramele și dalele unei singure imagini.
+ *
+ * O lucrare poate fi anulată cu cancel(true) pe viitorul întors sau oprită de termenul ei (Job.setTimeout).
+ * Etapele care nu au început nu mai rulează, iar etapa în curs este întreruptă; fișierul rezultat apare doar
+ * dacă lucrarea se termină, fiind scris mai întâi într-un fișier temporar.
+ */
+public class NormalizeService implements Closeable {
+    private final ExecutorService io;
+    private final ForkJoinPool cpu;
+    private final ParallelEqualizer parallel;
+    private final PipelineMetrics metrics;
+    private final StageMetrics readMetrics;
+    private final StageMetrics processMetrics;
+    private final StageMetrics writeMetrics;
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private volatile EqualizationEngine engine = new ChannelEngine();
+    private volatile boolean closed;
+
+    // Un fir de calcul pentru fiecare nucleu.
+    public NormalizeService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * param cpuThreads => numărul maxim de fire care egalizează imagini în același timp; cel puțin 1.
+     */
+    public NormalizeService(int cpuThreads) {
+        if (cpuThreads < 1) {
+            throw new IllegalArgumentException("cpuThreads trebuie să fie cel puțin 1: " + cpuThreads);
+        }
+        this.io = IoExecutors.newPerTaskExecutor("service-io");
+        this.cpu = new ForkJoinPool(cpuThreads);
+        this.parallel = new ParallelEqualizer(cpu);
+        this.metrics = new PipelineMetrics();
+        this.readMetrics = metrics.stage(ProgressEvent.Stage.READ);
+        this.processMetrics = metrics.stage(ProgressEvent.Stage.PROCESS);
+        this.writeMetrics = metrics.stage(ProgressEvent.Stage.WRITE);
+    }
+
+    // Motorul folosit de lucrările care nu își aleg unul; implicit egalizarea pe canale.
+    public void setEngine(EqualizationEngine engine) {
+        this.engine = checkStateless(engine);
+    }
+
+    public EqualizationEngine getEngine() {
+        return engine;
+    }
+
+    // Măsurătorile cumulate ale tuturor lucrărilor, pe etapele READ, PROCESS și WRITE.
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Numărul de lucrări trimise care nu s-au terminat încă.
+    public int getActiveJobs() {
+        return activeJobs.get();
+    }
+
+    public int getCpuThreads() {
+        return cpu.getParallelism();
+    }
+
+    // Egalizează input și scrie rezultatul în output, fără termen.
+    public CompletableFuture<Result> submit(Path input, Path output) {
+        return submit(new Job(input, output));
+    }
+
+    /**
+     * Trimite o lucrare și se întoarce imediat.
+     *
+     * param job => fișierele, motorul și termenul lucrării.
+     * returneaza viitorul lucrării: se termină cu Result, cu excepția care a oprit-o (de exemplu IOException
+     *            sau TimeoutException) sau este anulat; cancel(true) oprește lucrarea.
+     */
+    public CompletableFuture<Result> submit(Job job) {
+        if (closed) {
+            throw new IllegalStateException("Serviciul a fost închis.");
+        }
+        Run run = new Run(job, job.engine != null ? job.engine : engine);
+        activeJobs.incrementAndGet();
+        run.result.whenComplete((result, error) -> {
+            activeJobs.decrementAndGet();
+            if (error != null) {
+                // Anularea sau termenul depășit opresc și etapa aflată în lucru.
+                run.cancel();
+            }
+        });
+        if (job.timeoutNanos > 0) {
+            run.result.orTimeout(job.timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        CompletableFuture.supplyAsync(run::read, io)
+                .thenApplyAsync(run::process, cpu)
+                .thenApplyAsync(run::write, io)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        run.result.completeExceptionally(unwrap(error));
+                    } else {
+                        run.result.complete(result);
+                    }
+                });
+        return run.result;
+    }
+
+    /**
+     * Nu mai acceptă lucrări noi, anulează lucrările în curs și oprește firele.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        io.shutdownNow();
+        cpu.shutdownNow();
+    }
+
+    /**
+     * Lucrările rulează în paralel pe aceeași instanță a motorului, deci un motor cu stare între cadre
+     * (isOrdered, de exemplu RunningEngine) ar amesteca histogramele unor imagini fără legătură.
+     *
+     * throws IllegalArgumentException dacă motorul păstrează stare între cadre.
+     */
+    private static EqualizationEngine checkStateless(EqualizationEngine engine) {
+        if (engine != null && engine.isOrdered()) {
+            throw new IllegalArgumentException("Motorul " + engine.getName()
+                    + " păstrează stare între cadre și nu poate fi folosit de serviciu.");
+        }
+        return engine;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException) {
+            return cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * O lucrare: fișierul sursă, fișierul rezultat (BMP), motorul de egalizare și termenul.
+     */
+    public static final class Job {
+        private final Path input;
+        private final Path output;
+        private EqualizationEngine engine;
+        private long timeoutNanos;
+
+        public Job(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+
+        public Path getInput() {
+            return input;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+
+        // Motorul acestei lucrări; null înseamnă motorul serviciului. Motoarele cu stare între cadre sunt refuzate.
+        public void setEngine(EqualizationEngine engine) {
+            this.engine = checkStateless(engine);
+        }
+
+        /**
+         * Timpul maxim de la trimitere până la scrierea rezultatului; 0 înseamnă fără termen.
+         * La depășire viitorul se termină cu TimeoutException, iar etapa în curs este întreruptă.
+         */
+        public void setTimeout(long timeout, TimeUnit unit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("Termenul nu poate fi negativ: " + timeout);
+            }
+            this.timeoutNanos = unit.toNanos(timeout);
+        }
+    }
+
+    /**
+     * Rezultatul unei lucrări terminate. Duratele sunt în nanosecunde.
+     */
+    public static final class Result {
+        private final Path input;
+        private final Path output;
+        private final int width;
+        private final int height;
+        private final long readNanos;
+        private final long processNanos;
+        private final long writeNanos;
+        private final long totalNanos;
+
+        Result(Path input, Path output, int width, int height, long readNanos, long processNanos, long writeNanos,
+                long totalNanos) {
+            this.input = input;
+            this.output = output;
+            this.width = width;
+            this.height = height;
+            this.readNanos = readNanos;
+            this.processNanos = processNanos;
+            this.writeNanos = writeNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        public Path getInput() {
+            return input;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getReadNanos() {
+            return readNanos;
+        }
+
+        public long getProcessNanos() {
+            return processNanos;
+        }
+
+        public long getWriteNanos() {
+            return writeNanos;
+        }
+
+        // De la trimitere până la scrierea rezultatului, inclusiv așteptarea la executoare.
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s: %dx%d, citire %.3f ms, procesare %.3f ms, scriere %.3f ms, total %.3f ms",
+                    input, output, width, height, readNanos / 1e6, processNanos / 1e6, writeNanos / 1e6, totalNanos / 1e6);
+        }
+    }
+
+    /**
+     * Starea unei lucrări în curs: imaginile dintre etape și firul care rulează etapa curentă, pentru anulare.
+     */
+    private final class Run {
+        private final Job job;
+        private final EqualizationEngine engine;
+        private final CompletableFuture<Result> result = new CompletableFuture<Result>();
+        private final long submitted = System.nanoTime();
+        private Thread runner;
+        private boolean cancelled;
+        private BufferedImage image;
+        private ChannelHistogram histogram;
+        private long readNanos;
+        private long processNanos;
+
+        Run(Job job, EqualizationEngine engine) {
+            this.job = job;
+            this.engine = engine;
+        }
+
+        Run read() {
+            enter();
+            try {
+                long start = System.nanoTime();
+                // Histograma se adună în timpul citirii, deci etapa de calcul nu mai parcurge imaginea pentru ea.
+                histogram = new ChannelHistogram();
+                image = MappedBmpReader.read(job.input, null, histogram);
+                if (image == null) {
+                    throw new IOException("Format de imagine necunoscut: " + job.input);
+                }
+                readNanos = System.nanoTime() - start;
+                readMetrics.recordLatency(readNanos);
+                readMetrics.addBytes(Files.size(job.input));
+                readMetrics.addPixels((long) image.getWidth() * image.getHeight());
+                return this;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                exit();
+            }
+        }
+
+        Run process(Run self) {
+            enter();
+            try {
+                long start = System.nanoTime();
+                image = engine.equalize(image, histogram,
+                        new BufferedImage(image.getWidth(), image.getHeight(), RasterKernel.workingType(image)), parallel);
+                processNanos = System.nanoTime() - start;
+                processMetrics.recordLatency(processNanos);
+                processMetrics.addPixels((long) image.getWidth() * image.getHeight());
+                return this;
+            } finally {
+                exit();
+            }
+        }
+
+        Result write(Run self) {
+            enter();
+            Path temporary = null;
+            try {
+                long start = System.nanoTime();
+                temporary = createPart(job.output);
+                // Formatul se alege după extensia fișierului rezultat, nu a celui temporar (.part).
+                OutputFormat.forPath(job.output).write(image, temporary);
+                // Ultima verificare: o lucrare anulată în timpul scrierii nu își înlocuiește fișierul rezultat.
+                synchronized (this) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                    Files.move(temporary, job.output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                long end = System.nanoTime();
+                writeMetrics.recordLatency(end - start);
+                writeMetrics.addBytes(Files.size(job.output));
+                writeMetrics.addPixels((long) image.getWidth() * image.getHeight());
+                return new Result(job.input, job.output, image.getWidth(), image.getHeight(), readNanos, processNanos,
+                        end - start, end - submitted);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    if (temporary != null) {
+                        Files.deleteIfExists(temporary);
+                    }
+                } catch (IOException ignored) {
+                    // Fișierul temporar rămâne; eroarea inițială este mai importantă.
+                }
+                if (e instanceof IOException) {
+                    throw new UncheckedIOException((IOException) e);
+                }
+                throw (RuntimeException) e;
+            } finally {
+                exit();
+            }
+        }
+
+        /**
+         * Creează fișierul temporar în care se scrie rezultatul, în directorul real al fișierului rezultat, ca mutarea
+         * finală să rămână atomică. Numele este nou și aleator, iar fișierul este creat exclusiv (CREATE_NEW),
+         * deci un .part sau o legătură simbolică pregătită dinainte nu poate fi urmată sau trunchiată.
+         * Pe sistemele POSIX drepturile sunt cele obișnuite ale unui fișier nou (rw-r--r--, filtrate de umask).
+         */
+        private static Path createPart(Path output) throws IOException {
+            Path parent = (output.getParent() != null ? output.getParent() : Paths.get("")).toRealPath();
+            String prefix = "." + output.getFileName() + ".";
+            if (parent.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                return Files.createTempFile(parent, prefix, ".part",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-r--r--")));
+            }
+            return Files.createTempFile(parent, prefix, ".part");
+        }
+
+        // Marchează începutul unei etape; o lucrare deja anulată nu mai pornește etape noi.
+        private synchronized void enter() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            runner = Thread.currentThread();
+        }
+
+        // Eliberează firul; o întrerupere cerută de cancel nu trebuie să ajungă la următoarea sarcină a firului.
+        private synchronized void exit() {
+            runner = null;
+            Thread.interrupted();
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
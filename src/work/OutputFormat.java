@@ -0,0 +1,116 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Formatul în care se scrie imaginea egalizată.
+ *
+ *   BMP  - necomprimat, prin fișierul mapat (MappedBmpWriter): 24 de biți, sau 32 de biți cu alpha dacă imaginea are alpha;
+ *   PNG  - comprimat fără pierderi, cu benzile comprimate în paralel (PngWriter);
+ *   RAW  - planar, fără antet: tot planul R, apoi G, apoi B (și A pentru imaginile cu alpha), câte un octet pe valoare,
+ *          rândurile de sus în jos. Dimensiunile nu sunt în fișier; le cunoaște cine l-a cerut.
+ *
+ * PNG și RAW se scriu secvențial prin BufferedFileOutput.
+ */
+public enum OutputFormat {
+    BMP("bmp") {
+        @Override
+        public void write(BufferedImage image, Path output) throws IOException {
+            MappedBmpWriter.write(image, output);
+        }
+    },
+    PNG("png") {
+        @Override
+        public void write(BufferedImage image, Path output) throws IOException {
+            PngWriter.write(image, output);
+        }
+    },
+    RAW("raw") {
+        @Override
+        public void write(BufferedImage image, Path output) throws IOException {
+            writePlanar(image, output);
+        }
+    };
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Scrie imaginea în fișier, în acest format.
+     *
+     * param image => imaginea de scris.
+     * param output => fișierul rezultat; este înlocuit dacă există.
+     */
+    public abstract void write(BufferedImage image, Path output) throws IOException;
+
+    // Extensia fișierelor în acest format, fără punct.
+    public String getExtension() {
+        return extension;
+    }
+
+    // Numele fișierului cu extensia înlocuită cu cea a formatului, de exemplu "a.bmp" -> "a.png".
+    public Path rename(Path fileName) {
+        String name = fileName.toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return Paths.get(base + "." + extension);
+    }
+
+    /**
+     * Alege formatul după nume: "bmp", "png" sau "raw".
+     *
+     * throws IllegalArgumentException dacă numele nu este cunoscut.
+     */
+    public static OutputFormat forName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.extension.equals(name.trim().toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Format de ieșire necunoscut: " + name + " (se acceptă bmp, png, raw)");
+    }
+
+    // Formatul dat de extensia fișierului; BMP dacă extensia lipsește sau nu este cunoscută.
+    public static OutputFormat forPath(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (OutputFormat format : values()) {
+            if (name.endsWith("." + format.extension)) {
+                return format;
+            }
+        }
+        return BMP;
+    }
+
+    // Scrie planurile R, G, B (și A) unul după altul; fiecare plan parcurge imaginea rând cu rând.
+    private static void writePlanar(BufferedImage image, Path output) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        int[] argb = new int[width];
+        byte[] row = new byte[width];
+        try (BufferedFileOutput out = new BufferedFileOutput(output)) {
+            // Deplasarea canalului în valoarea ARGB: R, G, B, apoi A.
+            int[] shifts = alpha ? new int[] {16, 8, 0, 24} : new int[] {16, 8, 0};
+            for (int shift : shifts) {
+                for (int y = 0; y < height; y++) {
+                    if (alpha) {
+                        image.getRGB(0, y, width, 1, argb, 0, width);
+                    } else {
+                        RasterKernel.readRgbRow(image, 0, y, width, argb);
+                    }
+                    for (int x = 0; x < width; x++) {
+                        row[x] = (byte) (argb[x] >>> shift);
+                    }
+                    out.write(row);
+                }
+            }
+        }
+    }
+}
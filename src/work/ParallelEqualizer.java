@@ -0,0 +1,228 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Varianta paralelă a pașilor de histogramă și de aplicare a LUT-ului.
+ * Rasterul este împărțit recursiv în benzi de rânduri pe un ForkJoinPool; fiecare bandă își construiește
+ * propria ChannelHistogram, luată dintr-o rezervă comună, și histogramele sunt adunate apoi cu merge.
+ * LUT-ul rezultat se aplică tot pe benzi, în paralel.
+ * Rezultatul este identic cu cel obținut pe un singur fir, deoarece fiecare bandă folosește RasterKernel.
+ */
+public class ParallelEqualizer {
+    // Numărul minim de rânduri dintr-o bandă, sub care nu mai are sens împărțirea.
+    private static final int MIN_BAND_ROWS = 16;
+
+    private final ForkJoinPool pool;
+    // Marchează dacă pool-ul a fost creat aici și trebuie închis de această clasă.
+    private final boolean ownsPool;
+    // Histogramele benzilor, refolosite de la o imagine la alta.
+    private final ChannelHistogram.Pool histograms;
+
+    // Creează un pool propriu cu paralelismul cerut.
+    public ParallelEqualizer(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Paralelismul trebuie să fie cel puțin 1: " + parallelism);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+        this.histograms = new ChannelHistogram.Pool(parallelism * 4);
+    }
+
+    // Folosește un pool existent, de exemplu ForkJoinPool.commonPool().
+    public ParallelEqualizer(ForkJoinPool pool) {
+        this.pool = pool;
+        this.ownsPool = false;
+        this.histograms = new ChannelHistogram.Pool(pool.getParallelism() * 4);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Calculează histogramele celor trei canale, ca ImageProcess.saveHistogram.
+     *
+     * param image => imaginea pentru care se calculează histogramele.
+     * returneaza histograma imaginii; apelantul o poate păstra.
+     */
+    public ChannelHistogram histogram(BufferedImage image) {
+        // Histograma rezultată rămâne la apelant; rezerva păstrează doar histogramele benzilor adunate în ea.
+        return pool.invoke(new HistogramTask(image, 0, image.getHeight(), bandRows(image), histograms));
+    }
+
+    /**
+     * Aplică în paralel tabelele LUT pe toată imaginea sursă și scrie rezultatul în destinație.
+     *
+     * param source => imaginea originală.
+     * param target => imaginea egalizată, cu aceleași dimensiuni.
+     * param lut => tabelele de căutare pentru roșu, verde și albastru.
+     */
+    public void applyLut(BufferedImage source, BufferedImage target, ChannelLut lut) {
+        pool.invoke(new LutTask(source, target, 0, source.getHeight(), bandRows(source), lut));
+    }
+
+    /**
+     * Rulează acțiunea pentru fiecare dală pe firele pool-ului, în orice ordine, și așteaptă terminarea tuturor.
+     * Fiecare dală este independentă, astfel încât rezultatul unei dale poate fi predat mai departe
+     * (de exemplu către WriteImage) imediat ce este gata, fără să aștepte celelalte dale.
+     *
+     * param tiles => dalele imaginii.
+     * param action => lucrul făcut pentru o dală; poate bloca, de exemplu la trimiterea prin transport.
+     * throws IOException sau InterruptedException, prima eroare aruncată de acțiune.
+     */
+    public void forEachTile(List<Rectangle> tiles, TileAction action) throws IOException, InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            int index = i;
+            Rectangle tile = tiles.get(i);
+            tasks.add(() -> {
+                action.run(index, tile);
+                return null;
+            });
+        }
+        for (Future<Void> result : pool.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+     * Calculează în paralel câte un rezultat pentru fiecare dală, de exemplu histogramele locale ale unei imagini.
+     *
+     * param tiles => dalele imaginii.
+     * param work => calculul pentru o dală; nu trebuie să blocheze.
+     * returneaza rezultatele, în ordinea dalelor.
+     */
+    public <T> List<T> mapTiles(List<Rectangle> tiles, Function<Rectangle, T> work) {
+        List<Callable<T>> tasks = new ArrayList<Callable<T>>(tiles.size());
+        for (Rectangle tile : tiles) {
+            tasks.add(() -> work.apply(tile));
+        }
+        List<T> results = new ArrayList<T>(tiles.size());
+        for (Future<T> result : pool.invokeAll(tasks)) {
+            try {
+                results.add(result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Calculul pe dale a fost întrerupt.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    // Lucrul făcut pentru o singură dală în forEachTile.
+    @FunctionalInterface
+    public interface TileAction {
+        void run(int index, Rectangle tile) throws IOException, InterruptedException;
+    }
+
+    // Închide pool-ul doar dacă a fost creat de această instanță.
+    public void shutdown() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    // Alege înălțimea benzii astfel încât fiecare fir să primească mai multe benzi (echilibrare prin work-stealing).
+    private int bandRows(BufferedImage image) {
+        int bands = pool.getParallelism() * 4;
+        return Math.max(MIN_BAND_ROWS, (image.getHeight() + bands - 1) / bands);
+    }
+
+    // Construiește histograma pentru o bandă și o adună cu cea a benzii vecine.
+    private static final class HistogramTask extends RecursiveTask<ChannelHistogram> {
+        private static final long serialVersionUID = 1L;
+        private final BufferedImage image;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandRows;
+        private final ChannelHistogram.Pool histograms;
+
+        HistogramTask(BufferedImage image, int fromRow, int toRow, int bandRows, ChannelHistogram.Pool histograms) {
+            this.image = image;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+            this.histograms = histograms;
+        }
+
+        @Override
+        protected ChannelHistogram compute() {
+            if (toRow - fromRow <= bandRows) {
+                ChannelHistogram hist = histograms.acquire();
+                hist.accumulate(image, fromRow, toRow);
+                return hist;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            HistogramTask top = new HistogramTask(image, fromRow, middle, bandRows, histograms);
+            HistogramTask bottom = new HistogramTask(image, middle, toRow, bandRows, histograms);
+            top.fork();
+            ChannelHistogram merged = bottom.compute();
+            ChannelHistogram other = top.join();
+            merged.merge(other);
+            histograms.release(other);
+            return merged;
+        }
+    }
+
+    // Aplică LUT-ul pe o bandă de rânduri.
+    private static final class LutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BufferedImage source;
+        private final BufferedImage target;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandRows;
+        private final ChannelLut lut;
+
+        LutTask(BufferedImage source, BufferedImage target, int fromRow, int toRow, int bandRows, ChannelLut lut) {
+            this.source = source;
+            this.target = target;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+            this.lut = lut;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandRows) {
+                RasterKernel.applyLut(source, target, fromRow, toRow, lut);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new LutTask(source, target, fromRow, middle, bandRows, lut),
+                    new LutTask(source, target, middle, toRow, bandRows, lut));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package work;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registrul de măsurători al unui lanț de etape. Fiecare etapă își obține StageMetrics după nume,
+ * iar valorile pot fi citite oricând ca snapshot sau scrise periodic într-un fișier JSON sau CSV,
+ * pentru a vedea sub sarcină care etapă limitează debitul.
+ */
+public class PipelineMetrics implements Closeable {
+    private final Map<String, StageMetrics> stages = new LinkedHashMap<String, StageMetrics>();
+    private ScheduledExecutorService dumper;
+    private volatile Path dumpFile;
+
+    // Măsurătorile etapei cu numele dat; sunt create la prima cerere.
+    public synchronized StageMetrics stage(String name) {
+        StageMetrics metrics = stages.get(name);
+        if (metrics == null) {
+            metrics = new StageMetrics(name);
+            stages.put(name, metrics);
+        }
+        return metrics;
+    }
+
+    public StageMetrics stage(ProgressEvent.Stage stage) {
+        return stage(stage.name());
+    }
+
+    // Valorile tuturor etapelor, în ordinea în care au fost înregistrate.
+    public synchronized List<StageMetrics.Snapshot> snapshot() {
+        List<StageMetrics.Snapshot> result = new ArrayList<StageMetrics.Snapshot>(stages.size());
+        for (StageMetrics metrics : stages.values()) {
+            result.add(metrics.snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * Scrie periodic snapshot-ul în fișier, adăugând la final: un obiect JSON pe linie pentru extensia .json,
+     * altfel câte un rând CSV pentru fiecare etapă. La close() se mai scrie un ultim snapshot.
+     *
+     * param file => fișierul în care se adaugă valorile.
+     * param period => intervalul dintre două scrieri.
+     * param unit => unitatea intervalului.
+     */
+    public synchronized void startDump(Path file, long period, TimeUnit unit) {
+        if (dumper != null) {
+            throw new IllegalStateException("Scrierea periodică este deja pornită.");
+        }
+        dumpFile = file;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(this::dumpQuietly, period, period, unit);
+    }
+
+    // Adaugă snapshot-ul curent în fișier, în formatul ales după extensie.
+    public void dump(Path file) throws IOException {
+        List<StageMetrics.Snapshot> snapshot = snapshot();
+        long timestamp = System.currentTimeMillis();
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        boolean header = !json && (!Files.exists(file) || Files.size(file) == 0);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(json ? toJson(snapshot, timestamp) + "\n" : toCsv(snapshot, timestamp, header));
+        }
+    }
+
+    /**
+     * Snapshot-ul ca obiect JSON pe o singură linie: {"timestamp":..., "stages":[{...}, ...]}.
+     */
+    public static String toJson(List<StageMetrics.Snapshot> snapshot, long timestamp) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"timestamp\":").append(timestamp).append(",\"stages\":[");
+        for (int i = 0; i < snapshot.size(); i++) {
+            StageMetrics.Snapshot s = snapshot.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"stage\":\"").append(s.getStage()).append('"')
+                    .append(",\"count\":").append(s.getCount())
+                    .append(",\"p50Nanos\":").append(s.getP50())
+                    .append(",\"p90Nanos\":").append(s.getP90())
+                    .append(",\"p99Nanos\":").append(s.getP99())
+                    .append(",\"p999Nanos\":").append(s.getP999())
+                    .append(",\"maxNanos\":").append(s.getMax())
+                    .append(",\"meanNanos\":").append(String.format(Locale.ROOT, "%.1f", s.getMean()))
+                    .append(",\"queueWaitNanos\":").append(s.getQueueWaitNanos())
+                    .append(",\"transportBlockedNanos\":").append(s.getTransportBlockedNanos())
+                    .append(",\"activeNanos\":").append(s.getActiveNanos())
+                    .append(",\"busyNanos\":").append(s.getBusyNanos())
+                    .append(",\"bytes\":").append(s.getBytes())
+                    .append(",\"pixels\":").append(s.getPixels())
+                    .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Snapshot-ul ca rânduri CSV, unul pentru fiecare etapă, opțional precedate de antet.
+     */
+    public static String toCsv(List<StageMetrics.Snapshot> snapshot, long timestamp, boolean header) {
+        StringBuilder sb = new StringBuilder();
+        if (header) {
+            sb.append("timestamp,stage,count,p50Nanos,p90Nanos,p99Nanos,p999Nanos,maxNanos,meanNanos,"
+                    + "queueWaitNanos,transportBlockedNanos,activeNanos,busyNanos,bytes,pixels\n");
+        }
+        for (StageMetrics.Snapshot s : snapshot) {
+            sb.append(timestamp).append(',').append(s.getStage())
+                    .append(',').append(s.getCount())
+                    .append(',').append(s.getP50())
+                    .append(',').append(s.getP90())
+                    .append(',').append(s.getP99())
+                    .append(',').append(s.getP999())
+                    .append(',').append(s.getMax())
+                    .append(',').append(String.format(Locale.ROOT, "%.1f", s.getMean()))
+                    .append(',').append(s.getQueueWaitNanos())
+                    .append(',').append(s.getTransportBlockedNanos())
+                    .append(',').append(s.getActiveNanos())
+                    .append(',').append(s.getBusyNanos())
+                    .append(',').append(s.getBytes())
+                    .append(',').append(s.getPixels())
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Oprește scrierea periodică și scrie ultimul snapshot, ca fișierul să conțină valorile finale.
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = dumper;
+            dumper = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dump(dumpFile);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (StageMetrics.Snapshot s : snapshot()) {
+            sb.append(s).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump(dumpFile);
+        } catch (IOException e) {
+            System.err.println("Eroare la scrierea măsurătorilor: " + e.getMessage());
+        }
+    }
+}
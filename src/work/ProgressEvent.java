@@ -0,0 +1,67 @@
+package work;
+
+/**
+ * Un eveniment de progres emis de o etapă a lanțului de procesare.
+ * Conține etapa, tipul evenimentului, indexul segmentului (sau al rândului pentru nivelul TRACE),
+ * numărul de octeți prelucrați și durata în nanosecunde pentru evenimentele de tip FINISHED.
+ */
+public final class ProgressEvent {
+
+    // Etapele lanțului de procesare.
+    public enum Stage {
+        READ, PROCESS, WRITE
+    }
+
+    // Tipul evenimentului.
+    public enum Type {
+        STAGE_STARTED, STAGE_FINISHED, SEGMENT_STARTED, SEGMENT_FINISHED, ROW
+    }
+
+    private final Stage stage;
+    private final Type type;
+    private final ProgressLevel level;
+    private final int index;
+    private final long bytes;
+    private final long nanos;
+
+    public ProgressEvent(Stage stage, Type type, ProgressLevel level, int index, long bytes, long nanos) {
+        this.stage = stage;
+        this.type = type;
+        this.level = level;
+        this.index = index;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public ProgressLevel getLevel() {
+        return level;
+    }
+
+    // Indexul segmentului sau al rândului; -1 pentru evenimentele care privesc întreaga etapă.
+    public int getIndex() {
+        return index;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return stage + " " + type + (index >= 0 ? " #" + index : "")
+                + (bytes > 0 ? " " + bytes + " octeți" : "")
+                + (nanos > 0 ? " " + nanos + " ns" : "");
+    }
+}
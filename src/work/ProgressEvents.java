@@ -0,0 +1,72 @@
+package work;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Distribuitorul de evenimente de progres, partajat de etapele lanțului.
+ * Abonații se înregistrează cu un nivel maxim de detaliu; etapele verifică isEnabled înainte
+ * de a construi un eveniment, astfel încât nivelurile fără abonați nu costă nimic în bucla de lucru.
+ */
+public class ProgressEvents {
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+    // Cel mai detaliat nivel cerut de vreun abonat, sau -1 dacă nu există abonați.
+    private volatile int maxOrdinal = -1;
+
+    /**
+     * Înregistrează un abonat pentru evenimentele până la nivelul dat, inclusiv.
+     *
+     * param level => cel mai detaliat nivel primit de abonat.
+     * param listener => abonatul.
+     */
+    public void subscribe(ProgressLevel level, ProgressListener listener) {
+        subscriptions.add(new Subscription(level, listener));
+        recomputeLevel();
+    }
+
+    public void unsubscribe(ProgressListener listener) {
+        subscriptions.removeIf(s -> s.listener == listener);
+        recomputeLevel();
+    }
+
+    // Verifică rapid dacă există cel puțin un abonat pentru nivelul dat.
+    public boolean isEnabled(ProgressLevel level) {
+        return level.ordinal() <= maxOrdinal;
+    }
+
+    /**
+     * Trimite evenimentul tuturor abonaților interesați de nivelul lui.
+     * O excepție aruncată de un abonat nu oprește etapa care a emis evenimentul.
+     */
+    public void publish(ProgressEvent event) {
+        if (!isEnabled(event.getLevel())) {
+            return;
+        }
+        for (Subscription s : subscriptions) {
+            if (event.getLevel().ordinal() <= s.level.ordinal()) {
+                try {
+                    s.listener.onEvent(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Abonatul de progres a aruncat o excepție: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void recomputeLevel() {
+        int max = -1;
+        for (Subscription s : subscriptions) {
+            max = Math.max(max, s.level.ordinal());
+        }
+        maxOrdinal = max;
+    }
+
+    private static final class Subscription {
+        final ProgressLevel level;
+        final ProgressListener listener;
+
+        Subscription(ProgressLevel level, ProgressListener listener) {
+            this.level = level;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package work;
+
+/**
+ * Nivelul de detaliu al evenimentelor de progres, de la cel mai general la cel mai detaliat.
+ * Un abonat înregistrat pentru un nivel primește evenimentele acelui nivel și ale nivelurilor mai generale.
+ */
+public enum ProgressLevel {
+    // Începutul și sfârșitul unei etape.
+    STAGE,
+    // Începutul și sfârșitul fiecărui segment.
+    SEGMENT,
+    // Câte un eveniment pentru fiecare rând citit; înlocuiește afișarea pixelilor în consolă.
+    TRACE
+}
@@ -0,0 +1,8 @@
+package work;
+
+// Abonat la evenimentele de progres ale lanțului de procesare.
+@FunctionalInterface
+public interface ProgressListener {
+
+    void onEvent(ProgressEvent event);
+}
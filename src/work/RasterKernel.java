@@ -0,0 +1,459 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * Nucleul de calcul pentru histograma și aplicarea LUT-ului direct pe datele rasterului.
+ * Citește băncile DataBufferByte/DataBufferInt fără a crea obiecte Color pentru fiecare pixel,
+ * parcurge imaginea pe rânduri (row-major) și nu alocă nimic în bucla interioară.
+ *
+ * Există căi specializate pentru TYPE_3BYTE_BGR, TYPE_INT_RGB și TYPE_INT_ARGB;
+ * orice alt tip de imagine trece printr-o cale generică ce folosește getRGB/setRGB pe rânduri întregi.
+ * Culorile rezultate sunt identice bit cu bit cu varianta veche bazată pe new Color(getRGB(i, j)).
+ * Spre deosebire de aceasta, care forța alpha la 255, pixelii imaginilor cu alpha își păstrează alpha din sursă;
+ * imaginile fără alpha primesc în continuare 0xFF.
+ *
+ * Când modulul jdk.incubator.vector este disponibil, rândurile căilor specializate trec prin VectorLutKernel,
+ * cu același rezultat. Calea vectorială poate fi oprită cu -Dwork.vectorLut=false.
+ */
+public final class RasterKernel {
+
+    // Valoarea alpha scrisă în pixelii imaginilor fără alpha, ca la new Color(r, g, b).getRGB().
+    private static final int OPAQUE = 0xFF000000;
+
+    // Implementarea vectorială a buclei de LUT, sau null dacă nu este disponibilă.
+    private static final VectorLut VECTOR = loadVectorLut();
+
+    private RasterKernel() {
+    }
+
+    /**
+     * Adună în histograma primită valorile canalelor pentru rândurile [fromRow, toRow).
+     * Histograma nu este golită, astfel încât mai multe benzi pot fi acumulate în aceeași instanță.
+     *
+     * param image => imaginea sursă.
+     * param fromRow => primul rând inclus.
+     * param toRow => primul rând exclus.
+     * param histogram => histograma celor trei canale.
+     */
+    public static void accumulateHistogram(BufferedImage image, int fromRow, int toRow, ChannelHistogram histogram) {
+        accumulateHistogram(image, fromRow, toRow, histogram.counts());
+    }
+
+    // Roșu la 0..255, verde la 256..511, albastru la 512..767, ca în ChannelHistogram.
+    static void accumulateHistogram(BufferedImage image, int fromRow, int toRow, long[] counts) {
+        checkRows(image, fromRow, toRow);
+        Raster raster = image.getRaster();
+        int width = image.getWidth();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = sm.getPixelStride();
+                int[] bands = sm.getBandOffsets();
+                for (int y = fromRow; y < toRow; y++) {
+                    int p = componentRowStart(raster, sm, y);
+                    for (int x = 0; x < width; x++, p += pixelStride) {
+                        counts[data[p + bands[0]] & 0xFF]++;
+                        counts[256 + (data[p + bands[1]] & 0xFF)]++;
+                        counts[512 + (data[p + bands[2]] & 0xFF)]++;
+                    }
+                }
+                return;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                for (int y = fromRow; y < toRow; y++) {
+                    int p = packedRowStart(raster, sm, y);
+                    for (int end = p + width; p < end; p++) {
+                        int rgb = data[p];
+                        counts[(rgb >> 16) & 0xFF]++;
+                        counts[256 + ((rgb >> 8) & 0xFF)]++;
+                        counts[512 + (rgb & 0xFF)]++;
+                    }
+                }
+                return;
+            }
+            default: {
+                int[] row = new int[width];
+                for (int y = fromRow; y < toRow; y++) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        int rgb = row[x];
+                        counts[(rgb >> 16) & 0xFF]++;
+                        counts[256 + ((rgb >> 8) & 0xFF)]++;
+                        counts[512 + (rgb & 0xFF)]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adună în histogramă doar fiecare al stride-lea pixel din fiecare al stride-lea rând, începând cu (0, 0).
+     * Pentru o estimare a distribuției costă de stride^2 ori mai puțin decât histograma completă.
+     */
+    static void accumulateSampled(BufferedImage image, int stride, long[] counts) {
+        Raster raster = image.getRaster();
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int step = sm.getPixelStride() * stride;
+                int[] bands = sm.getBandOffsets();
+                for (int y = 0; y < height; y += stride) {
+                    int p = componentRowStart(raster, sm, y);
+                    for (int x = 0; x < width; x += stride, p += step) {
+                        counts[data[p + bands[0]] & 0xFF]++;
+                        counts[256 + (data[p + bands[1]] & 0xFF)]++;
+                        counts[512 + (data[p + bands[2]] & 0xFF)]++;
+                    }
+                }
+                return;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                for (int y = 0; y < height; y += stride) {
+                    int p = packedRowStart(raster, sm, y);
+                    for (int x = 0; x < width; x += stride) {
+                        int rgb = data[p + x];
+                        counts[(rgb >> 16) & 0xFF]++;
+                        counts[256 + ((rgb >> 8) & 0xFF)]++;
+                        counts[512 + (rgb & 0xFF)]++;
+                    }
+                }
+                return;
+            }
+            default: {
+                int[] row = new int[width];
+                for (int y = 0; y < height; y += stride) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    for (int x = 0; x < width; x += stride) {
+                        int rgb = row[x];
+                        counts[(rgb >> 16) & 0xFF]++;
+                        counts[256 + ((rgb >> 8) & 0xFF)]++;
+                        counts[512 + (rgb & 0xFF)]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplică tabelele LUT pe rândurile [fromRow, toRow) din sursă și scrie rezultatul în destinație.
+     * Sursa și destinația trebuie să aibă aceleași dimensiuni; calea rapidă se folosește
+     * doar când ambele imagini au același tip specializat.
+     *
+     * param source => imaginea originală.
+     * param target => imaginea în care se scriu pixelii egalizați.
+     * param fromRow => primul rând inclus.
+     * param toRow => primul rând exclus.
+     * param lut => tabelele de căutare ale celor trei canale.
+     */
+    public static void applyLut(BufferedImage source, BufferedImage target, int fromRow, int toRow, ChannelLut lut) {
+        checkRows(source, fromRow, toRow);
+        if (target.getWidth() != source.getWidth() || target.getHeight() != source.getHeight()) {
+            throw new IllegalArgumentException("Imaginea destinație are alte dimensiuni decât sursa.");
+        }
+        int width = source.getWidth();
+        int type = source.getType();
+        byte[] table = lut.table();
+
+        if (type == target.getType() && type == BufferedImage.TYPE_3BYTE_BGR) {
+            Raster in = source.getRaster();
+            Raster out = target.getRaster();
+            ComponentSampleModel inSm = (ComponentSampleModel) in.getSampleModel();
+            ComponentSampleModel outSm = (ComponentSampleModel) out.getSampleModel();
+            byte[] src = ((DataBufferByte) in.getDataBuffer()).getData();
+            byte[] dst = ((DataBufferByte) out.getDataBuffer()).getData();
+            int inStep = inSm.getPixelStride();
+            int outStep = outSm.getPixelStride();
+            int[] inBands = inSm.getBandOffsets();
+            int[] outBands = outSm.getBandOffsets();
+            if (VECTOR != null && inStep == 3 && outStep == 3 && Arrays.equals(inBands, outBands)) {
+                // Tabela combinată, indexată după poziția octetului în pixel: valoarea nouă pentru fiecare canal.
+                int[] byPosition = new int[768];
+                for (int c = 0; c < 3; c++) {
+                    System.arraycopy(lut.intTable(), c * 256, byPosition, inBands[c] * 256, 256);
+                }
+                for (int y = fromRow; y < toRow; y++) {
+                    VECTOR.applyInterleaved(src, componentRowStart(in, inSm, y), dst, componentRowStart(out, outSm, y),
+                            width * 3, byPosition);
+                }
+                return;
+            }
+            for (int y = fromRow; y < toRow; y++) {
+                int p = componentRowStart(in, inSm, y);
+                int q = componentRowStart(out, outSm, y);
+                for (int x = 0; x < width; x++, p += inStep, q += outStep) {
+                    dst[q + outBands[0]] = table[src[p + inBands[0]] & 0xFF];
+                    dst[q + outBands[1]] = table[256 + (src[p + inBands[1]] & 0xFF)];
+                    dst[q + outBands[2]] = table[512 + (src[p + inBands[2]] & 0xFF)];
+                }
+            }
+            return;
+        }
+
+        if (type == target.getType()
+                && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)) {
+            Raster in = source.getRaster();
+            Raster out = target.getRaster();
+            SinglePixelPackedSampleModel inSm = (SinglePixelPackedSampleModel) in.getSampleModel();
+            SinglePixelPackedSampleModel outSm = (SinglePixelPackedSampleModel) out.getSampleModel();
+            int[] src = ((DataBufferInt) in.getDataBuffer()).getData();
+            int[] dst = ((DataBufferInt) out.getDataBuffer()).getData();
+            // TYPE_INT_ARGB păstrează alpha sursei; TYPE_INT_RGB primește alpha 0xFF, ca înainte.
+            boolean keepAlpha = type == BufferedImage.TYPE_INT_ARGB;
+            int alphaMask = keepAlpha ? OPAQUE : 0;
+            int alphaFill = keepAlpha ? 0 : OPAQUE;
+            for (int y = fromRow; y < toRow; y++) {
+                int p = packedRowStart(in, inSm, y);
+                int q = packedRowStart(out, outSm, y);
+                if (VECTOR != null) {
+                    VECTOR.applyPacked(src, p, dst, q, width, lut.intTable(), keepAlpha);
+                    continue;
+                }
+                for (int end = p + width; p < end; p++, q++) {
+                    int rgb = src[p];
+                    dst[q] = (rgb & alphaMask) | alphaFill
+                            | (table[(rgb >> 16) & 0xFF] & 0xFF) << 16
+                            | (table[256 + ((rgb >> 8) & 0xFF)] & 0xFF) << 8
+                            | (table[512 + (rgb & 0xFF)] & 0xFF);
+                }
+            }
+            return;
+        }
+
+        // Calea generică: un singur tablou pentru rândul curent, refolosit pentru citire și scriere.
+        // getRGB întoarce alpha 0xFF pentru imaginile fără alpha, deci alpha se poate copia direct.
+        int[] row = new int[width];
+        for (int y = fromRow; y < toRow; y++) {
+            source.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                row[x] = (rgb & OPAQUE)
+                        | (table[(rgb >> 16) & 0xFF] & 0xFF) << 16
+                        | (table[256 + ((rgb >> 8) & 0xFF)] & 0xFF) << 8
+                        | (table[512 + (rgb & 0xFF)] & 0xFF);
+            }
+            target.setRGB(0, y, width, 1, row, 0, width);
+        }
+    }
+
+    /**
+     * Copiază o dală din sursă în destinație, la aceeași poziție, și adaugă valorile ei în histogramă.
+     * Fiecare rând este numărat imediat după copiere, cât este încă în memoria cache, deci histograma nu mai cere
+     * o trecere separată peste imagine. Pentru același tip specializat se copiază octeții direct; altfel se copiază
+     * culorile (getRGB/setRGB pe rânduri), pentru că eșantioanele brute ale unei imagini indexate sau binare
+     * nu înseamnă același lucru în paleta destinației.
+     *
+     * param source => imaginea citită.
+     * param target => imaginea în care se copiază, cu aceleași dimensiuni.
+     * param tile => zona copiată.
+     * param histogram => histograma în care se adună dala.
+     */
+    public static void copyTile(BufferedImage source, BufferedImage target, Rectangle tile, ChannelHistogram histogram) {
+        int type = source.getType();
+        long[] counts = histogram.counts();
+        if (type == target.getType() && type == BufferedImage.TYPE_3BYTE_BGR) {
+            Raster in = source.getRaster();
+            Raster out = target.getRaster();
+            ComponentSampleModel inSm = (ComponentSampleModel) in.getSampleModel();
+            ComponentSampleModel outSm = (ComponentSampleModel) out.getSampleModel();
+            if (inSm.getPixelStride() == 3 && outSm.getPixelStride() == 3
+                    && Arrays.equals(inSm.getBandOffsets(), outSm.getBandOffsets())) {
+                byte[] src = ((DataBufferByte) in.getDataBuffer()).getData();
+                byte[] dst = ((DataBufferByte) out.getDataBuffer()).getData();
+                int[] bands = outSm.getBandOffsets();
+                int length = tile.width * 3;
+                for (int y = tile.y; y < tile.y + tile.height; y++) {
+                    int q = componentRowStart(out, outSm, y) + tile.x * 3;
+                    System.arraycopy(src, componentRowStart(in, inSm, y) + tile.x * 3, dst, q, length);
+                    for (int end = q + length; q < end; q += 3) {
+                        counts[dst[q + bands[0]] & 0xFF]++;
+                        counts[256 + (dst[q + bands[1]] & 0xFF)]++;
+                        counts[512 + (dst[q + bands[2]] & 0xFF)]++;
+                    }
+                }
+                return;
+            }
+        }
+        if (type == target.getType() && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)) {
+            Raster in = source.getRaster();
+            Raster out = target.getRaster();
+            SinglePixelPackedSampleModel inSm = (SinglePixelPackedSampleModel) in.getSampleModel();
+            SinglePixelPackedSampleModel outSm = (SinglePixelPackedSampleModel) out.getSampleModel();
+            int[] src = ((DataBufferInt) in.getDataBuffer()).getData();
+            int[] dst = ((DataBufferInt) out.getDataBuffer()).getData();
+            for (int y = tile.y; y < tile.y + tile.height; y++) {
+                int q = packedRowStart(out, outSm, y) + tile.x;
+                System.arraycopy(src, packedRowStart(in, inSm, y) + tile.x, dst, q, tile.width);
+                for (int end = q + tile.width; q < end; q++) {
+                    int rgb = dst[q];
+                    counts[(rgb >> 16) & 0xFF]++;
+                    counts[256 + ((rgb >> 8) & 0xFF)]++;
+                    counts[512 + (rgb & 0xFF)]++;
+                }
+            }
+            return;
+        }
+        // Histograma numără culorile citite înapoi din destinație, adică exact ce primește etapa următoare.
+        int[] row = new int[tile.width];
+        for (int y = tile.y; y < tile.y + tile.height; y++) {
+            source.getRGB(tile.x, y, tile.width, 1, row, 0, tile.width);
+            target.setRGB(tile.x, y, tile.width, 1, row, 0, tile.width);
+            target.getRGB(tile.x, y, tile.width, 1, row, 0, tile.width);
+            for (int rgb : row) {
+                counts[(rgb >> 16) & 0xFF]++;
+                counts[256 + ((rgb >> 8) & 0xFF)]++;
+                counts[512 + (rgb & 0xFF)]++;
+            }
+        }
+    }
+
+    /**
+     * Tipul imaginii de lucru în care se copiază o imagine citită: același tip, cu excepția imaginilor
+     * nestandard (TYPE_CUSTOM, care nu pot fi create cu new BufferedImage) și a celor indexate, a căror paletă
+     * nu s-ar păstra; acestea devin TYPE_INT_ARGB dacă au alpha, altfel TYPE_INT_RGB.
+     */
+    public static int workingType(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_CUSTOM || image.getColorModel() instanceof IndexColorModel) {
+            return image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        }
+        return type;
+    }
+
+    /**
+     * Citește pixelii [x, x + width) din rândul y ca valori ARGB împachetate, ca getRGB: 0xAARRGGBB, cu alpha 0xFF
+     * pentru imaginile fără alpha. Folosită de motoarele care lucrează pe luminanță, unde canalele nu se pot
+     * trata separat printr-un LUT.
+     */
+    static void readRgbRow(BufferedImage image, int x, int y, int width, int[] rgb) {
+        Raster raster = image.getRaster();
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int step = sm.getPixelStride();
+                int[] bands = sm.getBandOffsets();
+                int p = componentRowStart(raster, sm, y) + x * step;
+                for (int i = 0; i < width; i++, p += step) {
+                    rgb[i] = OPAQUE | (data[p + bands[0]] & 0xFF) << 16 | (data[p + bands[1]] & 0xFF) << 8
+                            | (data[p + bands[2]] & 0xFF);
+                }
+                return;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int p = packedRowStart(raster, sm, y) + x;
+                int alphaMask = image.getType() == BufferedImage.TYPE_INT_ARGB ? OPAQUE : 0;
+                int alphaFill = OPAQUE & ~alphaMask;
+                for (int i = 0; i < width; i++) {
+                    rgb[i] = (data[p + i] & (alphaMask | 0xFFFFFF)) | alphaFill;
+                }
+                return;
+            }
+            default:
+                image.getRGB(x, y, width, 1, rgb, 0, width);
+        }
+    }
+
+    // Scrie pixelii [x, x + width) din rândul y, ca valori ARGB; ca în applyLut, alpha se păstrează doar în imaginile cu alpha.
+    static void writeRgbRow(BufferedImage image, int x, int y, int width, int[] rgb) {
+        Raster raster = image.getRaster();
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int step = sm.getPixelStride();
+                int[] bands = sm.getBandOffsets();
+                int p = componentRowStart(raster, sm, y) + x * step;
+                for (int i = 0; i < width; i++, p += step) {
+                    int value = rgb[i];
+                    data[p + bands[0]] = (byte) (value >> 16);
+                    data[p + bands[1]] = (byte) (value >> 8);
+                    data[p + bands[2]] = (byte) value;
+                }
+                return;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int p = packedRowStart(raster, sm, y) + x;
+                int alphaFill = image.getType() == BufferedImage.TYPE_INT_ARGB ? 0 : OPAQUE;
+                for (int i = 0; i < width; i++) {
+                    data[p + i] = alphaFill | rgb[i];
+                }
+                return;
+            }
+            default:
+                image.setRGB(x, y, width, 1, rgb, 0, width);
+        }
+    }
+
+    // Adevărat dacă aplicarea LUT-ului folosește Vector API.
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Încarcă VectorLutKernel doar dacă modulul jdk.incubator.vector face parte din configurația de pornire;
+     * altfel clasa nici nu este atinsă, ca lipsa modulului să nu producă NoClassDefFoundError.
+     * Clasa se compilează separat (src/vector), deci poate lipsi cu totul din classpath.
+     */
+    private static VectorLut loadVectorLut() {
+        if (!Boolean.parseBoolean(System.getProperty("work.vectorLut", "true"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (VectorLut) Class.forName("work.VectorLutKernel").getDeclaredMethod("create").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Indexul primului octet din rândul y pentru un raster cu componente intercalate.
+    static int componentRowStart(Raster raster, ComponentSampleModel sm, int y) {
+        int x0 = raster.getMinX() - raster.getSampleModelTranslateX();
+        int y0 = raster.getMinY() - raster.getSampleModelTranslateY();
+        return bankOffset(raster) + (y0 + y) * sm.getScanlineStride() + x0 * sm.getPixelStride();
+    }
+
+    // Indexul primului pixel din rândul y pentru un raster cu pixeli împachetați în int.
+    private static int packedRowStart(Raster raster, SinglePixelPackedSampleModel sm, int y) {
+        int x0 = raster.getMinX() - raster.getSampleModelTranslateX();
+        int y0 = raster.getMinY() - raster.getSampleModelTranslateY();
+        return bankOffset(raster) + (y0 + y) * sm.getScanlineStride() + x0;
+    }
+
+    private static int bankOffset(Raster raster) {
+        return raster.getDataBuffer().getOffset();
+    }
+
+    private static void checkRows(BufferedImage image, int fromRow, int toRow) {
+        if (fromRow < 0 || toRow > image.getHeight() || fromRow > toRow) {
+            throw new IllegalArgumentException("Interval de rânduri invalid: [" + fromRow + ", " + toRow + ")");
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rezervă de imagini (BufferedImage) refolosite, grupate după lățime, înălțime și tip.
+ * În loturile cu imagini de aceeași dimensiune, fiecare etapă ia imaginea de lucru cu acquire și o înapoiază
+ * cu release când nu mai are nevoie de ea, în loc să aloce câte o imagine nouă de mai mulți MB pentru fiecare cadru;
+ * astfel tablourile mari nu mai ajung în generația veche doar ca să fie colectate imediat după.
+ *
+ * Conținutul unei imagini luate cu acquire este nedefinit: apelantul trebuie să scrie toți pixelii.
+ * Memoria păstrată este mărginită; imaginile înapoiate peste limită sunt lăsate colectorului.
+ * Toate metodele pot fi apelate din mai multe fire.
+ */
+public class RasterPool {
+    // Limita implicită a memoriei păstrate: aproximativ 10 imagini de 8 MP pe 24 de biți.
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    private final long maxBytes;
+    private final Map<Key, Deque<BufferedImage>> free = new ConcurrentHashMap<Key, Deque<BufferedImage>>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public RasterPool() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * param maxBytes => memoria maximă ocupată de imaginile libere; 0 dezactivează refolosirea.
+     */
+    public RasterPool(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Limita de memorie nu poate fi negativă: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * O imagine cu dimensiunile și tipul cerute: una liberă din rezervă dacă există, altfel una nouă.
+     *
+     * param type => tipul BufferedImage (de exemplu TYPE_3BYTE_BGR); TYPE_CUSTOM nu este acceptat.
+     * returneaza imaginea, cu pixeli nedefiniți.
+     */
+    public BufferedImage acquire(int width, int height, int type) {
+        Deque<BufferedImage> images = free.get(new Key(width, height, type));
+        BufferedImage image = images != null ? images.pollFirst() : null;
+        if (image != null) {
+            retainedBytes.addAndGet(-sizeOf(image));
+            hits.increment();
+            return image;
+        }
+        misses.increment();
+        return new BufferedImage(width, height, type);
+    }
+
+    /**
+     * Înapoiază o imagine pentru refolosire; apelantul nu o mai folosește după acest apel.
+     * Sunt ignorate null, subimaginile (getSubimage) și imaginile de tip TYPE_CUSTOM.
+     */
+    public void release(BufferedImage image) {
+        if (image == null || image.getType() == BufferedImage.TYPE_CUSTOM || image.getRaster().getParent() != null) {
+            return;
+        }
+        released.increment();
+        long size = sizeOf(image);
+        if (retainedBytes.addAndGet(size) > maxBytes) {
+            retainedBytes.addAndGet(-size);
+            dropped.increment();
+            return;
+        }
+        // Ultima imagine înapoiată este prima refolosită, cât timp este încă în memoria cache a procesorului.
+        free.computeIfAbsent(new Key(image.getWidth(), image.getHeight(), image.getType()),
+                key -> new ConcurrentLinkedDeque<BufferedImage>()).offerFirst(image);
+    }
+
+    // Lasă colectorului toate imaginile libere; contoarele rămân.
+    public void clear() {
+        for (Deque<BufferedImage> images : free.values()) {
+            BufferedImage image;
+            while ((image = images.pollFirst()) != null) {
+                retainedBytes.addAndGet(-sizeOf(image));
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Imaginile înapoiate care nu au fost păstrate, pentru că limita de memorie era atinsă.
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // Imaginile luate cu acquire și neînapoiate încă (sau niciodată).
+    public long getOutstanding() {
+        return hits.sum() + misses.sum() - released.sum();
+    }
+
+    // Numărul de imagini libere din rezervă.
+    public int getIdleCount() {
+        int count = 0;
+        for (Deque<BufferedImage> images : free.values()) {
+            count += images.size();
+        }
+        return count;
+    }
+
+    // Memoria ocupată de imaginile libere, în octeți.
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Raportul dintre cererile servite din rezervă și totalul cererilor.
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rezervă de imagini: %d libere (%.1f/%.1f MB), %d refolosite, %d alocate, %d aruncate (%.1f%%)",
+                getIdleCount(), getRetainedBytes() / 1e6, maxBytes / 1e6, getHits(), getMisses(), getDropped(), hitRate() * 100);
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private static final class Key {
+        private final int width;
+        private final int height;
+        private final int type;
+
+        Key(int width, int height, int type) {
+            this.width = width;
+            this.height = height;
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode() {
+            return (width * 31 + height) * 31 + type;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return width == key.width && height == key.height && type == key.type;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package work;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport în aceeași mașină virtuală care predă segmentele prin referință.
+ * Segmentele sunt vederi ale rasterului procesat (getSubimage), deci nu se codifică, nu se copiază
+ * printr-un pipe și nu se decodifică din nou. Coada mărginită limitează câte segmente pot aștepta.
+ * După close (de exemplu când WriteImage s-a oprit cu o eroare), send și finish aruncă IOException în loc să aștepte
+ * loc într-o coadă pe care nu o mai golește nimeni.
+ */
+public class RasterSegmentTransport implements SegmentTransport {
+    // Marcaj de sfârșit pus în coadă de finish.
+    private static final ImageSegment END = new ImageSegment(-1, 0, 0, null, -1, -1);
+    // Marcaj de întrerupere pus în coadă de fail.
+    private static final ImageSegment ABORT = new ImageSegment(-2, 0, 0, null, -1, -1);
+    // Cât așteaptă send loc în coadă înainte de a verifica din nou dacă transportul a fost închis.
+    private static final long CLOSED_CHECK_MILLIS = 50;
+
+    private final BlockingQueue<ImageSegment> queue;
+    private volatile boolean finished;
+    // Eroarea transmisă prin fail; receive o raportează în locul finalului.
+    private volatile Throwable failure;
+    // Devine true la close; cel care primește nu mai golește coada.
+    private volatile boolean closed;
+
+    public RasterSegmentTransport() {
+        this(16);
+    }
+
+    // Capacitatea este numărul maxim de segmente care pot aștepta să fie scrise.
+    public RasterSegmentTransport(int capacity) {
+        this.queue = new ArrayBlockingQueue<ImageSegment>(capacity);
+    }
+
+    @Override
+    public void send(ImageSegment segment) throws IOException, InterruptedException {
+        put(segment);
+    }
+
+    @Override
+    public void finish() throws IOException, InterruptedException {
+        put(END);
+    }
+
+    // Segmentele încă nepreluate nu mai contează; marcajul intră fără să blocheze, chiar dacă firul a fost întrerupt.
+    @Override
+    public void fail(Throwable cause) {
+        failure = cause;
+        while (!queue.offer(ABORT)) {
+            queue.clear();
+        }
+    }
+
+    @Override
+    public ImageSegment receive() throws IOException, InterruptedException {
+        if (finished) {
+            return null;
+        }
+        ImageSegment segment = queue.take();
+        if (segment == END) {
+            finished = true;
+            return null;
+        }
+        if (segment == ABORT) {
+            finished = true;
+            throw new IOException("Transmisia a fost întreruptă de procesare: " + failure, failure);
+        }
+        return segment;
+    }
+
+    @Override
+    public boolean preservesLayout() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.clear();
+    }
+
+    /**
+     * Pune un segment în coadă, așteptând loc cât timp transportul este deschis.
+     *
+     * throws IOException dacă transportul a fost închis de cel care primește.
+     */
+    private void put(ImageSegment segment) throws IOException, InterruptedException {
+        while (!closed) {
+            if (queue.offer(segment, CLOSED_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+        throw new IOException("Transportul a fost închis de cel care primește segmentele.");
+    }
+}
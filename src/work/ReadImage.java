@@ -1,118 +1,197 @@
-package work;
-
-import java.awt.Graphics;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
-import javax.imageio.ImageIO;
-
-// Clasa ReadImage este un fir de execuție care se ocupă de citirea și preprocesarea unei imagini.
-public class ReadImage extends TimeProcessing {
-    // Bufferul pentru partajarea imaginii cu alte thread-uri.
-    private final BlockingQueue<BufferedImage> buffer;
-    // Calea către fișierul de intrare care conține imaginea.
-    private final String inputPath;
-    // Variabilă pentru a marca dacă procesul de citire s-a încheiat.
-    private volatile boolean isComplete;
-    // Variabilă pentru monitorizarea timpului necesar citirii imaginii.
-    private long timeRead;
-    
-    // Bloc de inițializare non-static pentru a inițializa variabilele timeRead și isComplete.
-    {
-        timeRead = 0;
-        isComplete = false;
-    }
-
-    // Constructorul clasei ReadImage.
-    public ReadImage(BlockingQueue<BufferedImage> buffer, String inputPath) {
-        this.buffer = buffer;
-        this.inputPath = inputPath;
-    }
-
-    // Metoda run care este executată atunci când thread-ul este pornit.
-    @Override
-    public void run() {
-        try {
-            // Începe monitorizarea timpului de citire.
-            timeRead = System.currentTimeMillis();
-            // Citirea imaginii originale de la calea specificată.
-            BufferedImage originalImage = ImageIO.read(new File(inputPath));
-            int width = originalImage.getWidth();
-            int height = originalImage.getHeight();
-            // Calcularea înălțimii fiecărui segment.
-            int segmentHeight = height / 4;
-
-            // Crearea unei imagini noi pentru a reasambla segmentele citite.
-            BufferedImage reconstructedImage = new BufferedImage(width, height, originalImage.getType());
-            Graphics g = reconstructedImage.getGraphics();
-
-            // Procesul de citire și adăugare a fiecărui segment în imaginea reconstruită.
-            for (int i = 0; i < 4; i++) {
-            	int y = i * segmentHeight;
-                int h = (i == 3) ? (height - y) : segmentHeight;
-
-                System.out.println("Începe citirea segmentului " + (i + 1));
-                
-                for (int row = y; row < y + h; row++) {
-                  System.out.print("Producer a citit rândul " + row + ": ");
-                  for (int col = 0; col < width; col++) {
-                      System.out.printf("Pixel [%d,%d] ", col, row);
-                  }
-                  
-                  System.out.println();
-                 
-            }
-                BufferedImage segment = originalImage.getSubimage(0, y, width, h);
-                g.drawImage(segment, 0, y, null); // Adaugă segmentul la imaginea reconstruită
-                
-                System.out.println("Segmentul " + (i + 1) + " a fost citit.");
-              Thread.sleep(1000);
-            }
-            // Finalizarea procesului de citire și adăugare a imaginii în buffer.
-            g.dispose();
-            buffer.put(reconstructedImage);
-
-            // Marcarea finalizării procesului de citire și notificarea altor thread-uri.
-            synchronized (this) {
-                isComplete = true;
-                notifyAll();
-            }
-            // Calcularea timpului total necesar pentru citire.
-            timeRead = System.currentTimeMillis() - timeRead;
-        } catch (IOException e) {
-            // Gestionarea erorilor de citire a imaginii.
-            System.err.println("Eroare la citirea imaginii: " + e.getMessage());
-        } catch (InterruptedException e) {
-            // Gestionarea întreruperilor thread-ului.
-            Thread.currentThread().interrupt();
-            System.err.println("Thread-ul a fost întrerupt: " + e.getMessage());
-        }
-    }
-
-    // Metoda pentru a verifica dacă procesul de citire s-a încheiat. 
-    //Această metodă este utilă pentru a sincroniza firul de execuție al procesului de citire cu alte firuri de execuție.
-
-public synchronized boolean isComplete() {
-    return isComplete;
-}
-
-/**
- * Calculează și afișează timpul total necesar pentru citirea și preprocesarea imaginii.
- * Această metodă este utilă pentru a evalua performanța procesului de citire.
- *
- * returneaza Timpul total necesar pentru citirea imaginii, în secunde.
- */
-@Override
-public long timpCitire() {
-    System.out.println("Citirea imaginii a durat " + timeRead / 1000.0f + " secunde");
-    return timeRead;
-}
-
-@Override
-public long timpProcesare() {
-	// TODO Auto-generated method stub
-	
-	return 0;
-}
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Clasa ReadImage este un fir de execuție care se ocupă de citirea și preprocesarea unei imagini.
+public class ReadImage extends TimeProcessing {
+    // Bufferul pentru partajarea imaginii, împreună cu histograma ei, cu alte thread-uri.
+    private final BlockingQueue<DecodedFrame> buffer;
+    // Calea către fișierul de intrare care conține imaginea.
+    private final String inputPath;
+    // Variabilă pentru a marca dacă procesul de citire s-a încheiat.
+    private volatile boolean isComplete;
+    // Variabilă pentru monitorizarea timpului necesar citirii imaginii.
+    private long timeRead;
+    // Dalele în care este parcursă imaginea citită.
+    private TileLayout tileLayout = TileLayout.defaults();
+    // Rezerva din care se iau imaginile citite; null înseamnă o imagine nouă la fiecare citire.
+    private RasterPool rasterPool;
+    // Profilul de execuție și evenimentele de progres ale etapei de citire.
+    private final StageReporter reporter = new StageReporter(ProgressEvent.Stage.READ);
+    
+    // Bloc de inițializare non-static pentru a inițializa variabilele timeRead și isComplete.
+    {
+        timeRead = 0;
+        isComplete = false;
+    }
+
+    // Constructorul clasei ReadImage.
+    public ReadImage(BlockingQueue<DecodedFrame> buffer, String inputPath) {
+        this.buffer = buffer;
+        this.inputPath = inputPath;
+    }
+
+    // Alege dimensiunile dalelor în care este parcursă imaginea.
+    public void setTileLayout(TileLayout tileLayout) {
+        this.tileLayout = tileLayout;
+    }
+
+    /**
+     * Refolosește imaginile din rezervă pentru imaginea decodată și pentru cea reconstruită.
+     * Imaginea decodată se înapoiază în rezervă după copierea dalelor; cea pusă în buffer este înapoiată de ImageProcess.
+     */
+    public void setRasterPool(RasterPool rasterPool) {
+        this.rasterPool = rasterPool;
+    }
+
+    // Alege profilul de execuție; implicit THROUGHPUT, DEMO păstrează pauzele și afișarea pixelilor.
+    public void setProfile(ExecutionProfile profile) {
+        reporter.setProfile(profile);
+    }
+
+    // Setează distribuitorul la care etapa își publică evenimentele de progres.
+    public void setProgressEvents(ProgressEvents events) {
+        reporter.setEvents(events);
+    }
+
+    // Înregistrează măsurătorile etapei (latențe, așteptarea la coadă, octeți, pixeli) în registrul comun.
+    public void setMetrics(PipelineMetrics metrics) {
+        reporter.setMetrics(metrics);
+    }
+
+    public StageMetrics getMetrics() {
+        return reporter.getMetrics();
+    }
+
+    // Metoda run care este executată atunci când thread-ul este pornit.
+    @Override
+    public void run() {
+        boolean sent = false;
+        try {
+            // Începe monitorizarea timpului de citire.
+            reporter.stageStarted();
+            long stageStart = System.nanoTime();
+            // Citirea imaginii originale de la calea specificată.
+            // BMP-urile necomprimate sunt citite prin maparea fișierului; celelalte formate prin ImageIO.
+            BufferedImage originalImage = MappedBmpReader.read(Paths.get(inputPath), rasterPool);
+            if (originalImage == null) {
+                throw new IOException("Format de imagine necunoscut: " + inputPath);
+            }
+            int width = originalImage.getWidth();
+            int height = originalImage.getHeight();
+            // Împărțirea imaginii în dale, după dimensiunile alese cu setTileLayout.
+            List<Rectangle> tiles = tileLayout.tiles(width, height);
+
+            // Histograma se calculează în timpul copierii dalelor, ca ImageProcess să nu mai parcurgă imaginea pentru ea.
+            ChannelHistogram histogram = new ChannelHistogram();
+
+            // Crearea unei imagini noi pentru a reasambla dalele citite; imaginile indexate și nestandard devin INT_RGB/INT_ARGB.
+            int type = RasterKernel.workingType(originalImage);
+            BufferedImage reconstructedImage = rasterPool != null ? rasterPool.acquire(width, height, type)
+                    : new BufferedImage(width, height, type);
+
+            // Procesul de citire și adăugare a fiecărei dale în imaginea reconstruită.
+            int pixelBits = originalImage.getColorModel().getPixelSize();
+            long rowBytes = (long) width * pixelBits / 8;
+            for (int i = 0; i < tiles.size(); i++) {
+                Rectangle tile = tiles.get(i);
+                long segmentStart = System.nanoTime();
+                reporter.segmentStarted(i);
+
+                if (reporter.isDemo()) {
+                    System.out.println("Începe citirea segmentului " + (i + 1));
+                }
+
+                // Afișarea pixelilor este păstrată doar în profilul DEMO; altfel rândurile sunt raportate ca evenimente TRACE,
+                // o singură dată pentru fiecare rând, la prima dală de pe rând.
+                if (reporter.isDemo() || (tile.x == 0 && reporter.isEnabled(ProgressLevel.TRACE))) {
+                    for (int row = tile.y; row < tile.y + tile.height; row++) {
+                        if (reporter.isDemo()) {
+                            System.out.print("Producer a citit rândul " + row + ": ");
+                            for (int col = tile.x; col < tile.x + tile.width; col++) {
+                                System.out.printf("Pixel [%d,%d] ", col, row);
+                            }
+                            System.out.println();
+                        }
+                        if (tile.x == 0) {
+                            reporter.row(row, rowBytes);
+                        }
+                    }
+                }
+                // Adaugă dala la imaginea reconstruită, copiind direct între rastere de același tip, și o numără în histogramă.
+                RasterKernel.copyTile(originalImage, reconstructedImage, tile, histogram);
+
+                if (reporter.isDemo()) {
+                    System.out.println("Segmentul " + (i + 1) + " a fost citit.");
+                }
+                long tilePixels = (long) tile.width * tile.height;
+                reporter.pixels(tilePixels);
+                reporter.segmentFinished(i, tilePixels * pixelBits / 8, System.nanoTime() - segmentStart);
+                reporter.pace();
+            }
+            // Imaginea decodată nu mai este folosită; ImageProcess o poate lua din rezervă pentru rezultat.
+            if (rasterPool != null) {
+                rasterPool.release(originalImage);
+            }
+            // Finalizarea procesului de citire și adăugare a imaginii în buffer.
+            long putStart = System.nanoTime();
+            buffer.put(new DecodedFrame(reconstructedImage, histogram));
+            sent = true;
+            reporter.queueWait(System.nanoTime() - putStart);
+
+            // Marcarea finalizării procesului de citire și notificarea altor thread-uri.
+            synchronized (this) {
+                isComplete = true;
+                notifyAll();
+            }
+            // Calcularea timpului total necesar pentru citire.
+            long stageNanos = System.nanoTime() - stageStart;
+            reporter.stageFinished(rowBytes * height, stageNanos);
+            timeRead = TimeUnit.NANOSECONDS.toMillis(stageNanos);
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            // Gestionarea erorilor de citire a imaginii, inclusiv a celor neverificate (de exemplu o imagine prea mare).
+            System.err.println("Eroare la citirea imaginii: " + e);
+        } catch (InterruptedException e) {
+            // Gestionarea întreruperilor thread-ului.
+            Thread.currentThread().interrupt();
+            System.err.println("Thread-ul a fost întrerupt: " + e.getMessage());
+        } finally {
+            // Fără imagine, ImageProcess primește marcajul de eșec; bufferul este gol, deci offer nu poate eșua.
+            if (!sent) {
+                buffer.offer(DecodedFrame.FAILED);
+            }
+        }
+    }
+
+    // Metoda pentru a verifica dacă procesul de citire s-a încheiat. 
+    //Această metodă este utilă pentru a sincroniza firul de execuție al procesului de citire cu alte firuri de execuție.
+
+public synchronized boolean isComplete() {
+    return isComplete;
+}
+
+/**
+ * Calculează și afișează timpul total necesar pentru citirea și preprocesarea imaginii.
+ * Această metodă este utilă pentru a evalua performanța procesului de citire.
+ * Valorile detaliate (percentile pe segment, așteptarea la coadă) sunt în getMetrics().
+ *
+ * returneaza Timpul total necesar pentru citirea imaginii, în milisecunde.
+ */
+@Override
+public long timpCitire() {
+    System.out.println("Citirea imaginii a durat " + timeRead / 1000.0f + " secunde");
+    return timeRead;
+}
+
+// Etapa de citire nu procesează imaginea; timpul de procesare este raportat de ImageProcess.
+@Override
+public long timpProcesare() {
+	return 0;
+}
 }
\ No newline at end of file
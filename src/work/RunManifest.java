@@ -0,0 +1,398 @@
+package work;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evidența persistentă a rulărilor, pentru a nu egaliza din nou imaginile care nu s-au schimbat.
+ * Pentru fiecare pereche (intrare, ieșire) se păstrează dimensiunea, data modificării și un hash al conținutului
+ * intrării, parametrii procesării și aceleași date pentru fișierul rezultat.
+ *
+ * Verificarea este O(stat): dacă dimensiunea și data coincid, fișierul nu se citește. Doar când data s-a schimbat
+ * (de exemplu un fișier copiat sau atins) se calculează hash-ul, iar dacă acesta coincide, înregistrarea se actualizează.
+ *
+ * Fișierul este text, o înregistrare pe linie, și se scrie doar prin adăugare la sfârșit; la încărcare ultima
+ * înregistrare a unei perechi o înlocuiește pe cea anterioară. Când liniile învechite sunt majoritare, fișierul
+ * este compactat: rescris într-un fișier temporar cu câte o linie pe pereche și mutat atomic peste cel vechi.
+ *
+ * Metodele pot fi apelate din mai multe fire (de exemplu de workerii de scriere ai lui BatchPipeline).
+ */
+public class RunManifest implements Closeable {
+    // Prima linie a fișierului; identifică formatul.
+    private static final String HEADER = "# equalize-manifest v1";
+    // Mărimea unei bucăți hash-uite separat; bucățile se mapează și se hash-uiesc în paralel.
+    private static final long HASH_CHUNK = 8L << 20;
+    // Constantele lui XXH64.
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    // Compactarea se face când fișierul are de două ori mai multe linii decât perechi, dar nu pentru câteva linii.
+    private static final int COMPACT_SLACK = 64;
+
+    private final Path file;
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private FileChannel log;
+    private int lines;
+    private final AtomicLong hashedBytes = new AtomicLong();
+    private long skipped;
+
+    private RunManifest(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Încarcă evidența din fișier (sau pornește una goală dacă fișierul nu există) și o deschide pentru adăugare.
+     * Liniile neterminate sau invalide, rămase de la o rulare întreruptă, sunt ignorate.
+     */
+    public static RunManifest open(Path file) throws IOException {
+        RunManifest manifest = new RunManifest(file.toAbsolutePath());
+        manifest.load();
+        if (manifest.lines > 2 * manifest.entries.size() + COMPACT_SLACK) {
+            manifest.compact();
+        } else {
+            manifest.openLog();
+        }
+        return manifest;
+    }
+
+    /**
+     * Adevărat dacă ieșirea există și a fost produsă din intrarea actuală cu aceiași parametri.
+     *
+     * param input => fișierul sursă.
+     * param output => fișierul rezultat.
+     * param parameters => descrierea parametrilor care influențează rezultatul (motor, format etc.).
+     */
+    public boolean isUpToDate(Path input, Path output, String parameters) throws IOException {
+        String key = key(input, output);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !entry.parameters.equals(parameters)) {
+            return false;
+        }
+        BasicFileAttributes in = stat(input);
+        BasicFileAttributes out = stat(output);
+        if (in == null || out == null || in.size() != entry.inputSize || out.size() != entry.outputSize) {
+            return false;
+        }
+        long inputTime = in.lastModifiedTime().toMillis();
+        long outputTime = out.lastModifiedTime().toMillis();
+        boolean touched = false;
+        // Aceeași dimensiune, dar altă dată: conținutul decide.
+        if (inputTime != entry.inputTime) {
+            if (!contentHash(input).equals(entry.inputHash)) {
+                return false;
+            }
+            touched = true;
+        }
+        if (outputTime != entry.outputTime) {
+            if (!contentHash(output).equals(entry.outputHash)) {
+                return false;
+            }
+            touched = true;
+        }
+        if (touched) {
+            // Data nouă se reține, ca rularea următoare să nu mai citească fișierul.
+            append(key, new Entry(entry.inputSize, inputTime, entry.inputHash, parameters,
+                    entry.outputSize, outputTime, entry.outputHash));
+        }
+        synchronized (this) {
+            skipped++;
+        }
+        return true;
+    }
+
+    /**
+     * Înregistrează o procesare reușită: stat și hash pentru intrare și ieșire, adăugate la sfârșitul fișierului.
+     */
+    public void record(Path input, Path output, String parameters) throws IOException {
+        BasicFileAttributes in = Files.readAttributes(input, BasicFileAttributes.class);
+        BasicFileAttributes out = Files.readAttributes(output, BasicFileAttributes.class);
+        append(key(input, output), new Entry(in.size(), in.lastModifiedTime().toMillis(), contentHash(input),
+                parameters, out.size(), out.lastModifiedTime().toMillis(), contentHash(output)));
+    }
+
+    // Rescrie fișierul cu câte o linie pe pereche și îl înlocuiește atomic pe cel vechi.
+    public synchronized void compact() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        StringBuilder text = new StringBuilder(HEADER).append('\n');
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            text.append(format(entry.getKey(), entry.getValue()));
+        }
+        Files.write(temporary, text.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lines = entries.size() + 1;
+        openLog();
+    }
+
+    // Numărul de perechi (intrare, ieșire) cunoscute.
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Câte verificări isUpToDate au găsit ieșirea la zi.
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    // Octeții citiți pentru hash-uri; rămâne 0 când toate verificările se rezolvă prin stat.
+    public long getHashedBytes() {
+        return hashedBytes.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "evidență: %d perechi, %d sărite, %.1f MB hash-uiți (%s)",
+                entries.size(), skipped, hashedBytes.get() / 1e6, file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * Hash-ul conținutului unui fișier: fișierul se mapează în bucăți de 8 MB, fiecare bucată primește un XXH64
+     * calculat pe ForkJoinPool.commonPool(), iar hash-urile bucăților se combină în ordine, împreună cu lungimea,
+     * tot cu amestecul XXH64. Fiecare bucată contribuie cu toți cei 64 de biți, deci și un fișier de o singură bucată
+     * are un hash pe 64 de biți. Nu este criptografic; este suficient pentru a recunoaște un fișier neschimbat.
+     */
+    public String contentHash(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<CompletableFuture<Long>> chunks = new ArrayList<CompletableFuture<Long>>();
+            for (long position = 0; position < size; position += HASH_CHUNK) {
+                long start = position;
+                long length = Math.min(HASH_CHUNK, size - position);
+                chunks.add(CompletableFuture.supplyAsync(() -> chunkHash(channel, start, length)));
+            }
+            long hash = PRIME5 + size;
+            for (CompletableFuture<Long> chunk : chunks) {
+                hash ^= round(0, join(chunk));
+                hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            }
+            hashedBytes.addAndGet(size);
+            return String.format("%016x", avalanche(hash));
+        }
+    }
+
+    private static long chunkHash(FileChannel channel, long start, long length) {
+        try {
+            return xxh64(channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.LITTLE_ENDIAN));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * XXH64 cu seed 0 peste octeții rămași în buffer (ordinea octeților trebuie să fie LITTLE_ENDIAN):
+     * patru benzi independente pe blocuri de 32 de octeți, apoi restul câte 8, 4 și 1 octet.
+     */
+    static long xxh64(ByteBuffer data) {
+        int length = data.remaining();
+        long hash;
+        if (length >= 32) {
+            long v1 = PRIME1 + PRIME2;
+            long v2 = PRIME2;
+            long v3 = 0;
+            long v4 = -PRIME1;
+            while (data.remaining() >= 32) {
+                v1 = round(v1, data.getLong());
+                v2 = round(v2, data.getLong());
+                v3 = round(v3, data.getLong());
+                v4 = round(v4, data.getLong());
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += length;
+        while (data.remaining() >= 8) {
+            hash ^= round(0, data.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (data.remaining() >= 4) {
+            hash ^= (data.getInt() & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        while (data.hasRemaining()) {
+            hash ^= (data.get() & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        return avalanche(hash);
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long hash, long value) {
+        return (hash ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    private static long avalanche(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static long join(CompletableFuture<Long> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void append(String key, Entry entry) throws IOException {
+        entries.put(key, entry);
+        ByteBuffer line = ByteBuffer.wrap(format(key, entry).getBytes(StandardCharsets.UTF_8));
+        // O singură scriere pe linie, în modul APPEND: o rulare întreruptă lasă cel mult ultima linie neterminată.
+        while (line.hasRemaining()) {
+            log.write(line);
+        }
+        lines++;
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 10 || !fields[9].equals(".")) {
+                    continue;
+                }
+                try {
+                    entries.put(unescape(fields[0]) + '\0' + unescape(fields[1]), new Entry(
+                            Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4], unescape(fields[5]),
+                            Long.parseLong(fields[6]), Long.parseLong(fields[7]), fields[8]));
+                } catch (NumberFormatException e) {
+                    // Linie deteriorată; se ignoră.
+                }
+            }
+        }
+    }
+
+    private void openLog() throws IOException {
+        boolean created = !Files.exists(file);
+        // O linie neterminată de la o rulare întreruptă este închisă, ca prima înregistrare nouă să nu se lipească de ea.
+        boolean unterminated = false;
+        if (!created) {
+            try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                unterminated = reader.size() > 0 && reader.read(last, reader.size() - 1) == 1 && last.get(0) != '\n';
+            }
+        }
+        log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (created) {
+            log.write(ByteBuffer.wrap((HEADER + "\n").getBytes(StandardCharsets.UTF_8)));
+            lines = 1;
+        } else if (unterminated) {
+            log.write(ByteBuffer.wrap(new byte[] {'\n'}));
+        }
+    }
+
+    // intrare, ieșire, dimensiune, dată, hash, parametri, dimensiune, dată, hash ai ieșirii, apoi "." ca linia să fie completă.
+    private static String format(String key, Entry entry) {
+        int separator = key.indexOf('\0');
+        return escape(key.substring(0, separator)) + '\t' + escape(key.substring(separator + 1)) + '\t'
+                + entry.inputSize + '\t' + entry.inputTime + '\t' + entry.inputHash + '\t' + escape(entry.parameters) + '\t'
+                + entry.outputSize + '\t' + entry.outputTime + '\t' + entry.outputHash + "\t.\n";
+    }
+
+    private static String key(Path input, Path output) {
+        return input.toAbsolutePath().normalize() + "\0" + output.toAbsolutePath().normalize();
+    }
+
+    private static BasicFileAttributes stat(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    static String unescape(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static final class Entry {
+        final long inputSize;
+        final long inputTime;
+        final String inputHash;
+        final String parameters;
+        final long outputSize;
+        final long outputTime;
+        final String outputHash;
+
+        Entry(long inputSize, long inputTime, String inputHash, String parameters,
+              long outputSize, long outputTime, String outputHash) {
+            this.inputSize = inputSize;
+            this.inputTime = inputTime;
+            this.inputHash = inputHash;
+            this.parameters = parameters;
+            this.outputSize = outputSize;
+            this.outputTime = outputTime;
+            this.outputHash = outputHash;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Egalizare pentru fluxuri de cadre (video): în loc ca fiecare cadru să fie egalizat separat, ceea ce produce
+ * pâlpâire, se păstrează o histogramă cumulată cu uitare exponențială peste cadrele anterioare, din care se
+ * calculează LUT-ul, ca în ImageProcess.histogramToLut.
+ *
+ * Pentru fiecare cadru:
+ *   - histograma se poate estima doar din fiecare al stride-lea rând și coloană (stride^2 ori mai puțini pixeli);
+ *     cu stride 1 se folosește histograma completă a cititorului (DecodedFrame), dacă există, iar cu stride mai mare
+ *     estimarea are întâietate și cititorii lotului nu mai calculează histograma (usesReaderHistogram);
+ *   - histograma cumulată devine (1 - alpha) * cumulată + alpha * histograma cadrului, fiecare normalizată
+ *     la numărul ei de pixeli, deci cadrele de dimensiuni diferite cântăresc la fel;
+ *   - fiecare valoare a LUT-ului se apropie de cea nouă cu cel mult maxStep niveluri pe cadru, deci
+ *     o schimbare bruscă de scenă se vede treptat, fără salturi de luminozitate. LUT-ul rămâne crescător.
+ *
+ * Instanța păstrează starea fluxului, deci cadrele trebuie trimise în ordine; isOrdered întoarce true,
+ * iar BatchPipeline folosește atunci un singur cititor și un singur worker de procesare.
+ */
+public class RunningEngine implements EqualizationEngine {
+    public static final double DEFAULT_ALPHA = 0.1;
+    public static final int DEFAULT_STRIDE = 1;
+    public static final int DEFAULT_MAX_STEP = 4;
+
+    private final double alpha;
+    private final int stride;
+    private final int maxStep;
+    // Histograma cumulată, normalizată: suma pe fiecare canal este 1 după primul cadru.
+    private final double[] running = new double[ChannelHistogram.CHANNELS * ChannelHistogram.LEVELS];
+    // LUT-ul folosit pentru cadrul anterior.
+    private final int[] current = new int[ChannelHistogram.CHANNELS * ChannelHistogram.LEVELS];
+    private long frames;
+
+    public RunningEngine() {
+        this(DEFAULT_ALPHA, DEFAULT_STRIDE, DEFAULT_MAX_STEP);
+    }
+
+    /**
+     * param alpha => ponderea cadrului nou în histograma cumulată, între 0 (exclus) și 1; 1 egalizează fiecare cadru separat.
+     * param stride => se numără fiecare al stride-lea rând și coloană; 1 numără toți pixelii.
+     * param maxStep => schimbarea maximă a unei valori din LUT între două cadre, în niveluri; 0 înseamnă fără limită.
+     */
+    public RunningEngine(double alpha, int stride, int maxStep) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("alpha trebuie să fie în intervalul (0, 1]: " + alpha);
+        }
+        if (stride < 1) {
+            throw new IllegalArgumentException("stride trebuie să fie cel puțin 1: " + stride);
+        }
+        if (maxStep < 0) {
+            throw new IllegalArgumentException("maxStep nu poate fi negativ: " + maxStep);
+        }
+        this.alpha = alpha;
+        this.stride = stride;
+        this.maxStep = maxStep;
+    }
+
+    // Părțile numelui din EqualizationEngine.forName: "running", apoi opțional alpha, stride și maxStep.
+    static RunningEngine parse(String[] parts) {
+        try {
+            double alpha = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : DEFAULT_ALPHA;
+            int stride = parts.length > 2 ? Integer.parseInt(parts[2].trim()) : DEFAULT_STRIDE;
+            int maxStep = parts.length > 3 ? Integer.parseInt(parts[3].trim()) : DEFAULT_MAX_STEP;
+            return new RunningEngine(alpha, stride, maxStep);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parametri invalizi pentru running: " + String.join(":", parts), e);
+        }
+    }
+
+    @Override
+    public EqualizationEngine.Transform prepare(BufferedImage source, ParallelEqualizer parallel) {
+        return prepare(source, null, parallel);
+    }
+
+    @Override
+    public EqualizationEngine.Transform prepare(BufferedImage source, ChannelHistogram histogram, ParallelEqualizer parallel) {
+        if (histogram == null || stride > 1) {
+            histogram = new ChannelHistogram();
+            if (stride == 1) {
+                histogram.accumulate(source, 0, source.getHeight());
+            } else {
+                RasterKernel.accumulateSampled(source, stride, histogram.counts());
+            }
+        }
+        ChannelLut lut = update(histogram);
+        return (in, out, region) -> apply(in, out, region, lut);
+    }
+
+    @Override
+    public boolean usesReaderHistogram() {
+        return stride == 1;
+    }
+
+    /**
+     * Adaugă histograma unui cadru în histograma cumulată și întoarce LUT-ul pentru acest cadru.
+     *
+     * param histogram => histograma (sau estimarea) cadrului.
+     * returneaza LUT-ul, limitat la maxStep niveluri față de cel al cadrului anterior.
+     */
+    public synchronized ChannelLut update(ChannelHistogram histogram) {
+        int levels = ChannelHistogram.LEVELS;
+        // Primul cadru înlocuiește complet starea inițială, care este goală.
+        double weight = frames == 0 ? 1 : alpha;
+        for (int c = 0; c < ChannelHistogram.CHANNELS; c++) {
+            long total = histogram.total(c);
+            for (int i = 0; i < levels; i++) {
+                double share = total == 0 ? 0 : (double) histogram.get(c, i) / total;
+                running[c * levels + i] = (1 - weight) * running[c * levels + i] + weight * share;
+            }
+        }
+        int[][] channels = new int[ChannelHistogram.CHANNELS][levels];
+        for (int c = 0; c < ChannelHistogram.CHANNELS; c++) {
+            double sum = 0;
+            for (int i = 0; i < levels; i++) {
+                sum += running[c * levels + i];
+            }
+            double cdf = 0;
+            for (int i = 0; i < levels; i++) {
+                cdf += running[c * levels + i];
+                // Aceeași formulă ca ChannelLut.equalize; marja acoperă erorile de rotunjire ale sumelor în double.
+                int target = sum == 0 ? 0 : Math.min(255, (int) (255 * cdf / sum + 1e-9));
+                int index = c * levels + i;
+                if (frames > 0 && maxStep > 0) {
+                    target = Math.max(current[index] - maxStep, Math.min(current[index] + maxStep, target));
+                }
+                current[index] = target;
+                channels[c][i] = target;
+            }
+        }
+        frames++;
+        return ChannelLut.of(channels[0], channels[1], channels[2]);
+    }
+
+    // Uită cadrele anterioare; următorul cadru este egalizat ca primul din flux.
+    public synchronized void reset() {
+        Arrays.fill(running, 0);
+        Arrays.fill(current, 0);
+        frames = 0;
+    }
+
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    // Rezultatul depinde de cadrele anterioare, deci cadrele trebuie procesate în ordine.
+    @Override
+    public boolean isOrdered() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "running";
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "running:%.3f:%d:%d", alpha, stride, maxStep);
+    }
+
+    private static void apply(BufferedImage source, BufferedImage target, Rectangle region, ChannelLut lut) {
+        RasterKernel.applyLut(source.getSubimage(region.x, region.y, region.width, region.height),
+                target.getSubimage(region.x, region.y, region.width, region.height), 0, region.height, lut);
+    }
+}
@@ -0,0 +1,48 @@
+package work;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Canalul prin care ImageProcess trimite segmentele procesate către WriteImage.
+ * Partea care trimite apelează send pentru fiecare segment și finish la final, sau fail dacă procesarea
+ * s-a oprit la jumătate; partea care primește apelează receive până când acesta întoarce null.
+ */
+public interface SegmentTransport extends Closeable {
+
+    // Trimite un segment; poate bloca dacă cel care primește nu ține pasul.
+    void send(ImageSegment segment) throws IOException, InterruptedException;
+
+    // Semnalează că nu mai urmează alte segmente.
+    void finish() throws IOException, InterruptedException;
+
+    /**
+     * Semnalează că transmisia s-a întrerupt: segmentele trimise până acum nu acoperă imaginea,
+     * iar receive aruncă IOException în loc să întoarcă null, ca imaginea incompletă să nu fie scrisă.
+     *
+     * param cause => eroarea care a oprit procesarea.
+     */
+    void fail(Throwable cause) throws IOException, InterruptedException;
+
+    /**
+     * Primește următorul segment, sau null după ce trimițătorul a apelat finish.
+     *
+     * throws IOException dacă trimițătorul a apelat fail sau transmisia s-a întrerupt.
+     */
+    ImageSegment receive() throws IOException, InterruptedException;
+
+    // Adevărat dacă segmentele primite își păstrează poziția și dimensiunile imaginii complete.
+    boolean preservesLayout();
+
+    /**
+     * Adevărat dacă send copiază (sau codifică) pixelii segmentului, deci imaginea din care provine segmentul
+     * poate fi refolosită după finish. Transporturile care predau segmentele prin referință întorc false.
+     */
+    default boolean copiesSegments() {
+        return false;
+    }
+
+    // Eliberează resursele transportului.
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,226 @@
+package work;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+
+/**
+ * Decodifică o imagine o singură dată, de sus în jos, și o predă pe benzi, cu memorie O(înălțimea benzii x lățime).
+ * Este calea pentru formatele comprimate ca flux (JPEG, PNG, GIF), unde citirea unei regiuni sursă decodifică
+ * din nou toate rândurile de deasupra ei, iar benzile citite prin regiuni ar costa O(înălțime²).
+ *
+ * Cititorul primește ca destinație o imagine cu dimensiunile complete, al cărei raster scrie rândul y în rândul
+ * y mod înălțimea benzii al benzii refolosite. Cititorul anunță prin IIOReadUpdateListener fiecare rând decodificat;
+ * când banda s-a umplut, ea este predată mai departe înainte ca următorul rând să fie scris peste primul ei rând.
+ *
+ * Merge doar pentru cititoarele care scriu fiecare rând o singură dată, în ordine. O imagine cu mai multe treceri
+ * (JPEG progresiv, PNG sau GIF întrețesut) este refuzată cu IOException.
+ */
+final class SequentialStripReader implements IIOReadUpdateListener {
+
+    // Primește rândurile [y, y + rows) ale imaginii, aflate în primele rows rânduri ale benzii.
+    interface StripConsumer {
+        void accept(int y, int rows) throws IOException;
+    }
+
+    private final int stripRows;
+    private final StripConsumer consumer;
+    // Primul rând care nu a fost încă decodificat.
+    private int nextRow;
+    // Primul rând al benzii care se umple.
+    private int stripStart;
+
+    private SequentialStripReader(int stripRows, StripConsumer consumer) {
+        this.stripRows = stripRows;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Decodifică imaginea 0 a cititorului în banda dată și apelează consumer pentru fiecare bandă plină,
+     * iar la final pentru banda rămasă.
+     *
+     * param reader => cititorul, cu intrarea deja setată.
+     * param strip => banda refolosită, de tipul pe care îl produce cititorul și de lățimea imaginii.
+     * param height => înălțimea imaginii.
+     * throws IOException dacă imaginea nu poate fi citită, are mai multe treceri sau consumer a eșuat.
+     */
+    static void read(ImageReader reader, BufferedImage strip, int height, StripConsumer consumer) throws IOException {
+        SequentialStripReader listener = new SequentialStripReader(strip.getHeight(), consumer);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setDestination(new RingImage(strip, height));
+        reader.addIIOReadUpdateListener(listener);
+        try {
+            reader.read(0, param);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalStateException | UnsupportedOperationException e) {
+            throw new IOException("Cititorul " + reader.getFormatName() + " nu scrie rândurile în ordine: " + e.getMessage(), e);
+        } finally {
+            reader.removeIIOReadUpdateListener(listener);
+        }
+        if (listener.nextRow != height) {
+            throw new IOException("Imaginea s-a terminat după " + listener.nextRow + " din " + height + " rânduri.");
+        }
+    }
+
+    @Override
+    public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY, int width, int height,
+                            int periodX, int periodY, int[] bands) {
+        if (periodY != 1 || minY != nextRow) {
+            throw new UncheckedIOException(new IOException("Imaginea are mai multe treceri (JPEG progresiv sau PNG/GIF "
+                    + "întrețesut) și nu poate fi egalizată pe benzi; convertiți-o întâi într-un format secvențial."));
+        }
+        nextRow = minY + height;
+        if (nextRow - stripStart == stripRows || nextRow == theImage.getHeight()) {
+            try {
+                consumer.accept(stripStart, nextRow - stripStart);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            stripStart = nextRow;
+        }
+    }
+
+    @Override
+    public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass,
+                            int minX, int minY, int periodX, int periodY, int[] bands) {
+    }
+
+    @Override
+    public void passComplete(ImageReader source, BufferedImage theImage) {
+    }
+
+    @Override
+    public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass, int maxPass,
+                                     int minX, int minY, int periodX, int periodY, int[] bands) {
+    }
+
+    @Override
+    public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY, int width,
+                                int height, int periodX, int periodY, int[] bands) {
+    }
+
+    @Override
+    public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+    }
+
+    // Imaginea de dimensiunile complete pe care o vede cititorul; pixelii ei sunt cei ai benzii.
+    private static final class RingImage extends BufferedImage {
+        private final RingRaster ring;
+
+        RingImage(BufferedImage strip, int height) {
+            super(strip.getColorModel(), strip.getRaster(), strip.isAlphaPremultiplied(), null);
+            this.ring = new RingRaster(strip.getRaster(), height);
+        }
+
+        @Override
+        public int getWidth() {
+            return ring.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return ring.getHeight();
+        }
+
+        @Override
+        public int getWidth(ImageObserver observer) {
+            return ring.getWidth();
+        }
+
+        @Override
+        public int getHeight(ImageObserver observer) {
+            return ring.getHeight();
+        }
+
+        @Override
+        public WritableRaster getRaster() {
+            return ring;
+        }
+
+        @Override
+        public WritableRaster getWritableTile(int tileX, int tileY) {
+            return ring;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            return ring;
+        }
+    }
+
+    /**
+     * Rasterul de înălțimea imaginii care scrie rândul y în rândul y mod înălțimea benzii.
+     * Sunt acceptate doar scrierile prin care cititoarele ImageIO umplu destinația; o scriere care ar trece
+     * peste capătul benzii aruncă IllegalStateException.
+     */
+    private static final class RingRaster extends WritableRaster {
+        private final WritableRaster strip;
+
+        RingRaster(WritableRaster strip, int height) {
+            super(strip.getSampleModel(), strip.getDataBuffer(), new Rectangle(0, 0, strip.getWidth(), height),
+                    new Point(0, 0), null);
+            this.strip = strip;
+        }
+
+        // Rândul din bandă în care ajung rândurile [y, y + rows).
+        private int row(int y, int rows) {
+            int stripRow = y % strip.getHeight();
+            if (stripRow + rows > strip.getHeight()) {
+                throw new IllegalStateException("rândurile " + y + ".." + (y + rows - 1) + " trec peste capătul benzii");
+            }
+            return stripRow;
+        }
+
+        @Override
+        public void setRect(int dx, int dy, Raster src) {
+            strip.setRect(dx, row(dy + src.getMinY(), src.getHeight()) - src.getMinY(), src);
+        }
+
+        @Override
+        public void setDataElements(int x, int y, Object inData) {
+            strip.setDataElements(x, row(y, 1), inData);
+        }
+
+        @Override
+        public void setDataElements(int x, int y, int w, int h, Object inData) {
+            strip.setDataElements(x, row(y, h), w, h, inData);
+        }
+
+        @Override
+        public void setPixel(int x, int y, int[] iArray) {
+            strip.setPixel(x, row(y, 1), iArray);
+        }
+
+        @Override
+        public void setPixels(int x, int y, int w, int h, int[] iArray) {
+            strip.setPixels(x, row(y, h), w, h, iArray);
+        }
+
+        @Override
+        public void setSample(int x, int y, int b, int s) {
+            strip.setSample(x, row(y, 1), b, s);
+        }
+
+        @Override
+        public void setSamples(int x, int y, int w, int h, int b, int[] iArray) {
+            strip.setSamples(x, row(y, h), w, h, b, iArray);
+        }
+
+        // Un copil ar scrie prin modelul benzii la rândurile imaginii, deci nu este permis.
+        @Override
+        public WritableRaster createWritableChild(int parentX, int parentY, int w, int h, int childMinX, int childMinY,
+                                                  int[] bandList) {
+            throw new UnsupportedOperationException("rasterul benzii nu are copii");
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un worker care ia unități dintr-o WorkQueue comună până când coada se termină. Se pornesc oricâte procese
+ * (Main --queue DIR work), pe una sau mai multe mașini care văd același director.
+ *
+ * Cât lucrează la o unitate, un fir daemon reînnoiește revendicarea la fiecare treime din termen, deci un
+ * worker lent nu își pierde unitatea, iar unul oprit (kill -9, mașină căzută) o eliberează după cel mult un termen.
+ * Rezultatele se scriu idempotent: imaginile întregi într-un fișier ".part" mutat atomic, fragmentele în rândurile
+ * lor din fișierul prealocat, histogramele parțiale prin fișier temporar; o unitate reluată suprascrie același rezultat.
+ */
+public class ShardWorker {
+    // Cât se așteaptă între două încercări când nu există nicio unitate disponibilă.
+    private static final long DEFAULT_POLL_MILLIS = 200;
+    // Dimensiunea aproximativă a unei scrieri poziționale în fișierul rezultat al unui fragment.
+    private static final int SHARD_WRITE_BYTES = 1 << 20;
+
+    private final WorkQueue queue;
+    private final String name;
+    private final EqualizationEngine engine = new ChannelEngine();
+    private long leaseMillis = WorkQueue.DEFAULT_LEASE_MILLIS;
+    private long pollMillis = DEFAULT_POLL_MILLIS;
+    private int completed;
+    private int failed;
+    private long pixels;
+    private long busyNanos;
+
+    // Numele implicit este "pid@mașină", unic între procesele care folosesc coada.
+    public ShardWorker(WorkQueue queue) {
+        this(queue, ManagementFactory.getRuntimeMXBean().getName());
+    }
+
+    public ShardWorker(WorkQueue queue, String name) {
+        this.queue = queue;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Termenul revendicărilor; un worker oprit își eliberează unitatea după cel mult atât.
+    public void setLeaseMillis(long leaseMillis) {
+        if (leaseMillis < 100) {
+            throw new IllegalArgumentException("Termenul trebuie să fie de cel puțin 100 ms: " + leaseMillis);
+        }
+        this.leaseMillis = leaseMillis;
+    }
+
+    public void setPollMillis(long pollMillis) {
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * Lucrează până când toate unitățile cozii sunt terminate sau eșuate. Așteaptă și când unitățile rămase sunt
+     * revendicate de alți workeri, pentru că le poate prelua dacă termenul lor expiră.
+     */
+    public void run() throws IOException, InterruptedException {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(IoExecutors.daemonThreads("lease"));
+        try {
+            while (true) {
+                WorkUnit unit = queue.claim(name, leaseMillis);
+                if (unit == null) {
+                    if (queue.isFinished()) {
+                        return;
+                    }
+                    Thread.sleep(pollMillis);
+                    continue;
+                }
+                long period = Math.max(1, leaseMillis / 3);
+                ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renew(unit), period, period,
+                        TimeUnit.MILLISECONDS);
+                long start = System.nanoTime();
+                try {
+                    long done = execute(unit);
+                    long nanos = System.nanoTime() - start;
+                    renewal.cancel(false);
+                    if (queue.complete(unit, name, done, nanos)) {
+                        completed++;
+                        pixels += unit.getKind() == WorkUnit.Kind.HISTOGRAM ? 0 : done;
+                        busyNanos += nanos;
+                    } else {
+                        System.err.println(name + ": revendicarea pentru " + unit + " a expirat; rezultatul este ignorat");
+                    }
+                } catch (IOException | RuntimeException e) {
+                    renewal.cancel(false);
+                    failed++;
+                    System.err.println(name + ": " + unit + " a eșuat: " + e);
+                    queue.fail(unit, name, String.valueOf(e.getMessage()));
+                }
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    private void renew(WorkUnit unit) {
+        try {
+            queue.renew(unit, name, leaseMillis);
+        } catch (IOException e) {
+            // Următoarea reînnoire încearcă din nou; dacă termenul expiră între timp, complete o va respinge.
+            System.err.println(name + ": revendicarea nu a putut fi reînnoită: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Execută unitatea.
+     *
+     * returneaza pixelii procesați.
+     */
+    private long execute(WorkUnit unit) throws IOException {
+        switch (unit.getKind()) {
+            case IMAGE: return equalizeImage(unit);
+            case HISTOGRAM: return histogram(unit);
+            case APPLY: return applyLut(unit);
+            default: throw new IllegalStateException("Tip de unitate necunoscut: " + unit.getKind());
+        }
+    }
+
+    // O imagine întreagă: citire cu histogramă într-o singură trecere, egalizare pe canale, scriere în fișier ".part".
+    private long equalizeImage(WorkUnit unit) throws IOException {
+        ChannelHistogram histogram = new ChannelHistogram();
+        BufferedImage image = MappedBmpReader.read(unit.getInput(), null, histogram);
+        if (image == null) {
+            throw new IOException("Format necunoscut: " + unit.getInput());
+        }
+        BufferedImage equalized = engine.equalize(image, histogram,
+                new BufferedImage(image.getWidth(), image.getHeight(), image.getType()), null);
+        Path output = unit.getOutput();
+        Path part = output.resolveSibling(output.getFileName() + ".part");
+        OutputFormat.forPath(output).write(equalized, part);
+        Files.move(part, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return (long) image.getWidth() * image.getHeight();
+    }
+
+    // Histograma rândurilor fragmentului, numărată direct din fișierul mapat.
+    private long histogram(WorkUnit unit) throws IOException {
+        ChannelHistogram histogram = new ChannelHistogram();
+        try (MappedBmpReader reader = openShardInput(unit)) {
+            reader.accumulateHistogram(histogram, unit.getFromRow(), unit.getToRow());
+            WorkQueue.writeHistogram(histogram, queue.histogramFile(unit));
+            return (long) reader.getWidth() * (unit.getToRow() - unit.getFromRow());
+        }
+    }
+
+    /**
+     * LUT-ul histogramei unite, aplicat din rândurile mapate ale sursei în rândurile fragmentului din ieșire.
+     * Ieșirea nu se mapează: marginile fragmentelor nu sunt aliniate la pagini, iar pe un sistem de fișiere în rețea
+     * o pagină mapată se scrie înapoi întreagă, peste rândurile altor mașini. Se scrie pozițional exact intervalul
+     * de octeți al fragmentului, apoi force, înainte ca unitatea să fie raportată terminată.
+     */
+    private long applyLut(WorkUnit unit) throws IOException {
+        byte[] lut = ImageProcess.histogramToLut(WorkQueue.readHistogram(queue.mergedHistogramFile(unit.getGroup()))).table();
+        try (MappedBmpReader reader = openShardInput(unit);
+             FileChannel output = FileChannel.open(unit.getOutput(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            BmpHeader header = BmpHeader.read(output);
+            if (header == null || header.width != reader.getWidth() || header.height != reader.getHeight()
+                    || header.bytesPerPixel() != 3) {
+                throw new IOException("Fișierul rezultat nu corespunde imaginii fragmentate: " + unit.getOutput());
+            }
+            int width = reader.getWidth();
+            int step = reader.getBitsPerPixel() / 8;
+            int rowsPerWrite = Math.max(1, SHARD_WRITE_BYTES / header.rowSize);
+            // Completarea rândurilor rămâne zero, ca în fișierul prealocat.
+            ByteBuffer block = ByteBuffer.allocate(rowsPerWrite * header.rowSize);
+            byte[] dst = block.array();
+            for (int y = unit.getFromRow(); y < unit.getToRow(); y += rowsPerWrite) {
+                int count = Math.min(rowsPerWrite, unit.getToRow() - y);
+                for (int r = 0; r < count; r++) {
+                    ByteBuffer src = reader.rowBuffer(y + r);
+                    int p = reader.rowOffset(y + r);
+                    // Într-un BMP de jos în sus, rândurile benzii apar în fișier în ordine inversă.
+                    int q = (header.topDown ? r : count - 1 - r) * header.rowSize;
+                    for (int x = 0; x < width; x++, p += step, q += 3) {
+                        dst[q] = lut[512 + (src.get(p) & 0xFF)];
+                        dst[q + 1] = lut[256 + (src.get(p + 1) & 0xFF)];
+                        dst[q + 2] = lut[src.get(p + 2) & 0xFF];
+                    }
+                }
+                int firstFileRow = header.topDown ? y : header.height - y - count;
+                long position = header.dataOffset + (long) firstFileRow * header.rowSize;
+                block.clear().limit(count * header.rowSize);
+                while (block.hasRemaining()) {
+                    position += output.write(block, position);
+                }
+            }
+            output.force(false);
+            return (long) width * (unit.getToRow() - unit.getFromRow());
+        }
+    }
+
+    private static MappedBmpReader openShardInput(WorkUnit unit) throws IOException {
+        MappedBmpReader reader = MappedBmpReader.open(unit.getInput());
+        if (reader == null) {
+            throw new IOException("Fragmentul nu este dintr-un BMP necomprimat: " + unit.getInput());
+        }
+        return reader;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s: %d unități terminate, %d eșuate, %.1f MP egalizați în %.2f s",
+                name, completed, failed, pixels / 1e6, busyNanos / 1e9);
+    }
+}
@@ -0,0 +1,182 @@
+package work;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Măsurătorile unei etape a lanțului, în nanosecunde (System.nanoTime):
+ * latența fiecărei unități de lucru (segment sau imagine), timpul petrecut în BlockingQueue,
+ * timpul în care transportul dintre etape a blocat etapa, octeții și pixelii prelucrați.
+ * Toate metodele pot fi apelate din mai multe fire; snapshot() întoarce o copie care nu se mai modifică.
+ */
+public final class StageMetrics {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram transportBlocked = new LatencyHistogram();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder pixels = new LongAdder();
+    private final LongAdder activeNanos = new LongAdder();
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Durata unei unități de lucru terminate.
+    public void recordLatency(long nanos) {
+        latency.record(nanos);
+    }
+
+    // Cât a așteptat etapa la take() sau put() pe coada dintre etape.
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    // Cât a stat etapa blocată la trimiterea sau primirea unui segment prin SegmentTransport (de exemplu un pipe plin).
+    public void recordTransportBlocked(long nanos) {
+        transportBlocked.record(nanos);
+    }
+
+    public void addBytes(long count) {
+        bytes.add(count);
+    }
+
+    public void addPixels(long count) {
+        pixels.add(count);
+    }
+
+    // Durata totală a etapei, de la pornire până la ultimul segment; se adună dacă etapa rulează de mai multe ori.
+    public void addActiveTime(long nanos) {
+        activeNanos.add(nanos);
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Valorile unei etape la un moment dat. Duratele sunt în nanosecunde.
+     */
+    public static final class Snapshot {
+        private final String stage;
+        private final long count;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+        private final double mean;
+        private final long queueWaitNanos;
+        private final long queueWaitMax;
+        private final long transportBlockedNanos;
+        private final long transportBlockedMax;
+        private final long bytes;
+        private final long pixels;
+        private final long activeNanos;
+
+        private Snapshot(StageMetrics metrics) {
+            this.stage = metrics.name;
+            this.count = metrics.latency.getCount();
+            this.p50 = metrics.latency.getPercentile(50);
+            this.p90 = metrics.latency.getPercentile(90);
+            this.p99 = metrics.latency.getPercentile(99);
+            this.p999 = metrics.latency.getPercentile(99.9);
+            this.max = metrics.latency.getMax();
+            this.mean = metrics.latency.getMean();
+            this.queueWaitNanos = metrics.queueWait.getTotal();
+            this.queueWaitMax = metrics.queueWait.getMax();
+            this.transportBlockedNanos = metrics.transportBlocked.getTotal();
+            this.transportBlockedMax = metrics.transportBlocked.getMax();
+            this.bytes = metrics.bytes.sum();
+            this.pixels = metrics.pixels.sum();
+            this.activeNanos = metrics.activeNanos.sum();
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getQueueWaitNanos() {
+            return queueWaitNanos;
+        }
+
+        public long getQueueWaitMax() {
+            return queueWaitMax;
+        }
+
+        public long getTransportBlockedNanos() {
+            return transportBlockedNanos;
+        }
+
+        public long getTransportBlockedMax() {
+            return transportBlockedMax;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getPixels() {
+            return pixels;
+        }
+
+        public long getActiveNanos() {
+            return activeNanos;
+        }
+
+        // Timpul activ fără așteptări: etapa cu cea mai mare valoare este, de regulă, cea care limitează lanțul.
+        public long getBusyNanos() {
+            return Math.max(0, activeNanos - queueWaitNanos - transportBlockedNanos);
+        }
+
+        public double megabytesPerSecond() {
+            return activeNanos == 0 ? 0 : bytes / 1e6 / (activeNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %6d unități  p50 %s  p99 %s  max %s  coadă %s  transport %s  ocupat %s  %.1f MP  %.1f MB/s",
+                    stage, count, millis(p50), millis(p99), millis(max), millis(queueWaitNanos),
+                    millis(transportBlockedNanos), millis(getBusyNanos()), pixels / 1e6, megabytesPerSecond());
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.3f ms", nanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package work;
+
+/**
+ * Legătura unei etape cu profilul de execuție, cu distribuitorul de evenimente și cu măsurătorile ei.
+ * Grupează în același loc pauza demonstrativă, emiterea evenimentelor de progres și înregistrarea în StageMetrics,
+ * ca ReadImage, ImageProcess și WriteImage să nu repete aceeași logică.
+ */
+final class StageReporter {
+    private final ProgressEvent.Stage stage;
+    private volatile ExecutionProfile profile = ExecutionProfile.THROUGHPUT;
+    private volatile ProgressEvents events = new ProgressEvents();
+    private volatile StageMetrics metrics;
+
+    StageReporter(ProgressEvent.Stage stage) {
+        this.stage = stage;
+        this.metrics = new StageMetrics(stage.name());
+    }
+
+    void setProfile(ExecutionProfile profile) {
+        this.profile = profile;
+    }
+
+    void setEvents(ProgressEvents events) {
+        this.events = events;
+    }
+
+    // Înregistrează măsurătorile etapei în registrul comun al lanțului.
+    void setMetrics(PipelineMetrics registry) {
+        this.metrics = registry.stage(stage);
+    }
+
+    StageMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Adevărat doar în profilul DEMO, când se păstrează mesajele detaliate în consolă.
+    boolean isDemo() {
+        return profile == ExecutionProfile.DEMO;
+    }
+
+    boolean isEnabled(ProgressLevel level) {
+        return events.isEnabled(level);
+    }
+
+    // Pauza de vizualizare dintre segmente; nu face nimic în profilul THROUGHPUT.
+    void pace() throws InterruptedException {
+        if (isDemo()) {
+            Thread.sleep(ExecutionProfile.DEMO_PAUSE_MILLIS);
+        }
+    }
+
+    void stageStarted() {
+        publish(ProgressEvent.Type.STAGE_STARTED, ProgressLevel.STAGE, -1, 0, 0);
+    }
+
+    // Durata include și așteptările etapei, ca ele să poată fi scăzute pentru timpul efectiv de lucru.
+    void stageFinished(long bytes, long nanos) {
+        metrics.addActiveTime(nanos);
+        publish(ProgressEvent.Type.STAGE_FINISHED, ProgressLevel.STAGE, -1, bytes, nanos);
+    }
+
+    void segmentStarted(int index) {
+        publish(ProgressEvent.Type.SEGMENT_STARTED, ProgressLevel.SEGMENT, index, 0, 0);
+    }
+
+    void segmentFinished(int index, long bytes, long nanos) {
+        metrics.recordLatency(nanos);
+        metrics.addBytes(bytes);
+        publish(ProgressEvent.Type.SEGMENT_FINISHED, ProgressLevel.SEGMENT, index, bytes, nanos);
+    }
+
+    void pixels(long count) {
+        metrics.addPixels(count);
+    }
+
+    // Timpul petrecut la take() sau put() pe BlockingQueue.
+    void queueWait(long nanos) {
+        metrics.recordQueueWait(nanos);
+    }
+
+    // Timpul în care send() sau receive() pe SegmentTransport a blocat etapa.
+    void transportBlocked(long nanos) {
+        metrics.recordTransportBlocked(nanos);
+    }
+
+    void row(int row, long bytes) {
+        publish(ProgressEvent.Type.ROW, ProgressLevel.TRACE, row, bytes, 0);
+    }
+
+    private void publish(ProgressEvent.Type type, ProgressLevel level, int index, long bytes, long nanos) {
+        ProgressEvents current = events;
+        if (current.isEnabled(level)) {
+            current.publish(new ProgressEvent(stage, type, level, index, bytes, nanos));
+        }
+    }
+}
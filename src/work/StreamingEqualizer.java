@@ -0,0 +1,201 @@
+package work;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Egalizare în două treceri cu memorie mărginită, pentru imagini mai mari decât heap-ul.
+ * Prima trecere citește imaginea pe benzi și construiește histograma; a doua trecere citește din nou benzile,
+ * aplică LUT-ul și le scrie imediat în fișierul de ieșire.
+ * Formatele care se pot citi pe regiuni (de exemplu BMP, TIFF) se citesc prin ImageReader cu regiuni sursă;
+ * formatele comprimate ca flux (JPEG, PNG, GIF) se decodifică o singură dată pe trecere, de sus în jos,
+ * prin SequentialStripReader, pentru că acolo fiecare regiune ar decodifica din nou tot ce este deasupra ei.
+ * Memoria folosită este O(înălțimea benzii x lățime) și nu depinde de înălțimea imaginii.
+ */
+public class StreamingEqualizer {
+    // Înălțimea implicită a unei benzi, în rânduri.
+    public static final int DEFAULT_STRIP_HEIGHT = 256;
+    // Formatele citite secvențial, o dată pe trecere (numele dat de ImageReader.getFormatName, cu litere mici).
+    private static final Set<String> SEQUENTIAL_FORMATS = Set.of("jpeg", "png", "gif");
+
+    private final int stripHeight;
+
+    public StreamingEqualizer() {
+        this(DEFAULT_STRIP_HEIGHT);
+    }
+
+    public StreamingEqualizer(int stripHeight) {
+        if (stripHeight < 1) {
+            throw new IllegalArgumentException("Înălțimea benzii trebuie să fie cel puțin 1: " + stripHeight);
+        }
+        this.stripHeight = stripHeight;
+    }
+
+    /**
+     * Egalizează imaginea de intrare și o scrie în formatul cerut.
+     * Un BMP necomprimat scris tot ca BMP trece prin calea mapată, fără benzi în heap.
+     * BMP și PNG se scriu direct pe benzi, cu alpha dacă sursa are alpha; celelalte formate trebuie să aibă
+     * un ImageWriter cu replacePixels (de exemplu TIFF).
+     *
+     * param input => fișierul sursă.
+     * param output => fișierul rezultat.
+     * param formatName => formatul fișierului rezultat, de exemplu "bmp" sau "tiff".
+     * throws IOException dacă imaginea nu poate fi citită sau scrisă.
+     */
+    public void equalize(Path input, Path output, String formatName) throws IOException {
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            // A doua trecere recitește sursa, pe care deschiderea ieșirii ar trunchia-o (în calea mapată, chiar sub
+            // rândurile mapate). Rezultatul se scrie alături și înlocuiește sursa abia la final.
+            Path temporary = output.resolveSibling(output.getFileName() + ".part");
+            try {
+                equalizeFile(input, temporary, formatName);
+                Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            return;
+        }
+        equalizeFile(input, output, formatName);
+    }
+
+    private void equalizeFile(Path input, Path output, String formatName) throws IOException {
+        if (formatName.equalsIgnoreCase("bmp")) {
+            try (MappedBmpReader mapped = MappedBmpReader.open(input)) {
+                if (mapped != null) {
+                    equalizeMapped(mapped, output);
+                    return;
+                }
+            }
+        }
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input.toFile())) {
+            if (stream == null) {
+                throw new IOException("Fișierul nu poate fi deschis: " + input);
+            }
+            ImageReader reader = findReader(stream);
+            try {
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageTypeSpecifier type = reader.getImageTypes(0).next();
+                // Banda citită este refolosită pentru toate regiunile, în ambele treceri.
+                BufferedImage strip = type.createBufferedImage(width, Math.min(stripHeight, height));
+
+                // Prima trecere: histograma pe benzi.
+                ChannelHistogram hist = new ChannelHistogram();
+                forEachStrip(reader, strip, width, height, (y, rows) -> hist.accumulate(strip, 0, rows));
+                ChannelLut lut = ImageProcess.histogramToLut(hist);
+
+                // A doua trecere: LUT-ul aplicat pe fiecare bandă, scrisă imediat în fișier.
+                BufferedImage equalized = type.createBufferedImage(width, strip.getHeight());
+                try (StripSink sink = openSink(output, formatName, type, width, height)) {
+                    forEachStrip(reader, strip, width, height, (y, rows) -> {
+                        RasterKernel.applyLut(strip, equalized, 0, rows, lut);
+                        sink.writeStrip(equalized, y, rows);
+                    });
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Egalizează un BMP mapat direct în alt BMP mapat: histograma se calculează pe rândurile mapate,
+     * iar LUT-ul se aplică de la octeții sursei la octeții destinației, fără copii intermediare în heap.
+     */
+    private static void equalizeMapped(MappedBmpReader reader, Path output) throws IOException {
+        int width = reader.getWidth();
+        int height = reader.getHeight();
+        ChannelHistogram hist = new ChannelHistogram();
+        reader.accumulateHistogram(hist);
+        byte[] lut = ImageProcess.histogramToLut(hist).table();
+
+        try (MappedBmpWriter writer = new MappedBmpWriter(output, width, height)) {
+            applyLut(reader, writer, lut, 0, height);
+        }
+    }
+
+    /**
+     * Aplică LUT-ul pe rândurile [fromRow, toRow), de la octeții sursei mapate la cei ai destinației pe 24 de biți.
+     * Folosit și de ShardWorker, unde fiecare proces scrie doar rândurile fragmentului său.
+     *
+     * param lut => tabela ChannelLut.table(): R la 0, G la 256, B la 512.
+     */
+    static void applyLut(MappedBmpReader reader, MappedBmpWriter writer, byte[] lut, int fromRow, int toRow)
+            throws IOException {
+        int width = reader.getWidth();
+        int step = reader.getBitsPerPixel() / 8;
+        for (int y = fromRow; y < toRow; y++) {
+            ByteBuffer src = reader.rowBuffer(y);
+            ByteBuffer dst = writer.rowBuffer(y);
+            int p = reader.rowOffset(y);
+            int q = writer.rowOffset(y);
+            for (int x = 0; x < width; x++, p += step, q += 3) {
+                dst.put(q, lut[512 + (src.get(p) & 0xFF)]);
+                dst.put(q + 1, lut[256 + (src.get(p + 1) & 0xFF)]);
+                dst.put(q + 2, lut[src.get(p + 2) & 0xFF]);
+            }
+        }
+    }
+
+    /**
+     * Citește imaginea bandă cu bandă în strip și apelează consumer pentru fiecare bandă.
+     * Formatele din SEQUENTIAL_FORMATS se decodifică o singură dată, de sus în jos; celelalte prin regiuni sursă.
+     */
+    private static void forEachStrip(ImageReader reader, BufferedImage strip, int width, int height,
+                                     SequentialStripReader.StripConsumer consumer) throws IOException {
+        if (SEQUENTIAL_FORMATS.contains(reader.getFormatName().toLowerCase(Locale.ROOT))) {
+            SequentialStripReader.read(reader, strip, height, consumer);
+            return;
+        }
+        for (int y = 0; y < height; y += strip.getHeight()) {
+            int rows = Math.min(strip.getHeight(), height - y);
+            readStrip(reader, strip, y, width, rows);
+            consumer.accept(y, rows);
+        }
+    }
+
+    // Citește rândurile [y, y + rows) în banda refolosită.
+    private static void readStrip(ImageReader reader, BufferedImage strip, int y, int width, int rows) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, y, width, rows));
+        param.setDestination(strip);
+        reader.read(0, param);
+    }
+
+    private static ImageReader findReader(ImageInputStream stream) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            throw new IOException("Nu există un cititor pentru acest format de imagine.");
+        }
+        ImageReader reader = readers.next();
+        // Căutarea înapoi trebuie permisă, deoarece fiecare trecere recitește regiunile de la început.
+        reader.setInput(stream, false, true);
+        return reader;
+    }
+
+    private static StripSink openSink(Path output, String formatName, ImageTypeSpecifier type,
+                                      int width, int height) throws IOException {
+        boolean alpha = type.getColorModel().hasAlpha();
+        if (formatName.equalsIgnoreCase("bmp")) {
+            return new MappedBmpWriter(output, width, height, alpha);
+        }
+        if (formatName.equalsIgnoreCase("png")) {
+            return new PngWriter().openStrips(output, width, height, alpha);
+        }
+        return new ImageWriterStripSink(output, formatName, type, width, height);
+    }
+}
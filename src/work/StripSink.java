@@ -0,0 +1,21 @@
+package work;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destinația în care modul de streaming scrie imaginea egalizată bandă cu bandă.
+ * Implementările scriu fiecare bandă imediat, fără să păstreze imaginea completă în memorie.
+ */
+interface StripSink extends Closeable {
+
+    /**
+     * Scrie primele rows rânduri din strip la rândul y al imaginii finale.
+     *
+     * param strip => banda egalizată; poate fi mai înaltă decât rows, pentru a fi refolosită.
+     * param y => rândul din imaginea finală la care începe banda.
+     * param rows => numărul de rânduri valide din bandă.
+     */
+    void writeStrip(BufferedImage strip, int y, int rows) throws IOException;
+}
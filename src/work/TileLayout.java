@@ -0,0 +1,135 @@
+package work;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Împărțirea unei imagini în dale dreptunghiulare, parcurse rând cu rând de la stânga la dreapta.
+ * Dalele de pe marginea din dreapta și de jos sunt mai mici când dimensiunile nu se împart exact.
+ * Dimensiunile implicite (512 x 64) țin o dală sursă și una destinație pe 24 de biți în aproximativ 192 KB,
+ * adică în memoria cache L2 a unui nucleu, și dau destule dale pentru a ocupa toate nucleele.
+ */
+public final class TileLayout {
+    public static final int DEFAULT_TILE_WIDTH = 512;
+    public static final int DEFAULT_TILE_HEIGHT = 64;
+
+    // 0 înseamnă toată lățimea imaginii.
+    private final int tileWidth;
+    // 0 când imaginea se împarte într-un număr fix de benzi.
+    private final int tileHeight;
+    // Numărul fix de benzi, sau 0 când se folosesc dimensiuni fixe.
+    private final int bandCount;
+
+    /**
+     * param tileWidth => lățimea unei dale, în pixeli; cel puțin 1.
+     * param tileHeight => înălțimea unei dale, în pixeli; cel puțin 1.
+     */
+    public TileLayout(int tileWidth, int tileHeight) {
+        this(positive(tileWidth, "tileWidth"), positive(tileHeight, "tileHeight"), 0);
+    }
+
+    private TileLayout(int tileWidth, int tileHeight, int bandCount) {
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.bandCount = bandCount;
+    }
+
+    public static TileLayout defaults() {
+        return new TileLayout(DEFAULT_TILE_WIDTH, DEFAULT_TILE_HEIGHT);
+    }
+
+    // Benzi pe toată lățimea imaginii, cu înălțimea dată.
+    public static TileLayout bands(int rows) {
+        return new TileLayout(0, positive(rows, "rows"), 0);
+    }
+
+    /**
+     * Un număr fix de benzi pe toată lățimea, cu restul rândurilor în ultima bandă.
+     * Cu 4 benzi se obține împărțirea inițială a aplicației, folosită în profilul DEMO.
+     */
+    public static TileLayout bandCount(int count) {
+        return new TileLayout(0, 0, positive(count, "count"));
+    }
+
+    /**
+     * Citește dimensiunile în forma "LATIMExINALTIME" (de exemplu "512x64") sau "INALTIME" pentru benzi.
+     */
+    public static TileLayout parse(String spec) {
+        int x = spec.toLowerCase(Locale.ROOT).indexOf('x');
+        try {
+            if (x < 0) {
+                return bands(Integer.parseInt(spec.trim()));
+            }
+            return new TileLayout(Integer.parseInt(spec.substring(0, x).trim()), Integer.parseInt(spec.substring(x + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Dimensiuni de dală invalide: " + spec, e);
+        }
+    }
+
+    // Aceeași înălțime, dar pe toată lățimea; necesar pentru transporturile care nu transmit poziția pe orizontală.
+    public TileLayout fullWidth() {
+        return tileWidth == 0 ? this : bands(tileHeight);
+    }
+
+    public boolean isFullWidth() {
+        return tileWidth == 0;
+    }
+
+    // Lățimea dalei, sau 0 pentru toată lățimea imaginii.
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    // Înălțimea dalei, sau 0 pentru un număr fix de benzi.
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Dalele unei imagini, în ordinea rândurilor de dale.
+     *
+     * param width => lățimea imaginii.
+     * param height => înălțimea imaginii.
+     * returneaza dreptunghiurile care acoperă imaginea fără suprapuneri.
+     */
+    public List<Rectangle> tiles(int width, int height) {
+        if (bandCount > 0) {
+            List<Rectangle> bands = new ArrayList<Rectangle>(bandCount);
+            int bandHeight = height / bandCount;
+            for (int i = 0; i < bandCount; i++) {
+                int y = i * bandHeight;
+                int h = i == bandCount - 1 ? height - y : bandHeight;
+                if (h > 0) {
+                    bands.add(new Rectangle(0, y, width, h));
+                }
+            }
+            return bands;
+        }
+        int w = tileWidth == 0 ? Math.max(1, width) : tileWidth;
+        List<Rectangle> tiles = new ArrayList<Rectangle>(((width + w - 1) / w) * ((height + tileHeight - 1) / tileHeight));
+        for (int y = 0; y < height; y += tileHeight) {
+            int h = Math.min(tileHeight, height - y);
+            for (int x = 0; x < width; x += w) {
+                tiles.add(new Rectangle(x, y, Math.min(w, width - x), h));
+            }
+        }
+        return tiles;
+    }
+
+    @Override
+    public String toString() {
+        if (bandCount > 0) {
+            return bandCount + " benzi";
+        }
+        return (tileWidth == 0 ? "toată lățimea" : String.valueOf(tileWidth)) + "x" + tileHeight;
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " trebuie să fie cel puțin 1: " + value);
+        }
+        return value;
+    }
+}
@@ -1,6 +1,10 @@
-package work;
-
-public abstract class TimeProcessing extends Thread{
-    public abstract long timpCitire();
-    public abstract long timpProcesare();
+package work;
+
+/**
+ * Etapă a lanțului care raportează durata citirii și a procesării, în milisecunde.
+ * Etapa care nu are una dintre faze întoarce 0 pentru ea; măsurătorile detaliate sunt în StageMetrics.
+ */
+public abstract class TimeProcessing extends Thread{
+    public abstract long timpCitire();
+    public abstract long timpProcesare();
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package work;
+
+/**
+ * Bucla interioară de aplicare a LUT-ului pe un rând de pixeli, pentru implementările cu instrucțiuni vectoriale.
+ * RasterKernel rezolvă poziția rândurilor în raster și delegă aici doar parcurgerea unui rând contiguu.
+ * Implementarea (VectorLutKernel) este încărcată prin reflecție, ca aplicația să ruleze și fără jdk.incubator.vector.
+ */
+interface VectorLut {
+
+    /**
+     * Rând de octeți intercalați, câte 3 pe pixel (de exemplu B, G, R).
+     *
+     * param table => 768 de valori: tabela pentru octetul 0 al pixelului, apoi pentru octetul 1, apoi pentru octetul 2.
+     * param length => numărul de octeți, multiplu de 3.
+     */
+    void applyInterleaved(byte[] src, int p, byte[] dst, int q, int length, int[] table);
+
+    /**
+     * Rând de pixeli împachetați în int (0xAARRGGBB).
+     *
+     * param table => 768 de valori, în ordinea din ChannelLut: roșu, verde, albastru.
+     * param length => numărul de pixeli.
+     * param keepAlpha => true pentru a copia alpha din sursă (TYPE_INT_ARGB); altfel alpha rezultat este 0xFF.
+     */
+    void applyPacked(int[] src, int p, int[] dst, int q, int length, int[] table, boolean keepAlpha);
+}
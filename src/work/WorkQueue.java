@@ -0,0 +1,585 @@
+package work;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Coadă de lucru comună mai multor procese (pe aceeași mașină sau pe mașini cu un sistem de fișiere comun),
+ * păstrată într-un director. Nu există un proces coordonator: fiecare operație blochează fișierul "queue.lock"
+ * cu FileChannel.lock, citește starea din "queue.txt", o modifică și o rescrie printr-un fișier temporar mutat
+ * atomic peste cel vechi, apoi eliberează blocarea. Operațiile sunt scurte, deci blocarea se ține puțin.
+ *
+ * Excepție face reînnoirea termenului, cea mai deasă operație (fiecare worker o repetă de câteva ori pe termen):
+ * termenul unei unități revendicate este ținut în fișierul ei "lease-ID", blocat separat, iar renew scrie doar
+ * acel fișier, fără blocarea cozii și fără să rescrie "queue.txt". Blocările se iau mereu în ordinea coadă, apoi
+ * termen, deci claim, complete și fail pot citi și modifica termenele sub blocarea cozii.
+ *
+ * Un worker revendică o unitate pentru un termen (lease) pe care îl reînnoiește cât lucrează. Dacă procesul
+ * moare, termenul expiră și unitatea poate fi revendicată de alt worker; după MAX_ATTEMPTS revendicări fără
+ * rezultat, unitatea este marcată FAILED, ca o imagine care oprește procesul să nu fie reluată la nesfârșit.
+ * Un worker care și-a pierdut revendicarea nu mai poate marca unitatea terminată; rezultatul lui este
+ * suprascris de cel care a preluat-o, iar fișierele se scriu idempotent.
+ *
+ * Imaginile mari pot fi împărțite în fragmente de rânduri (addShards). Histogramele parțiale ale fragmentelor se
+ * scriu în director ("hist-GRUP-ID.bin"), iar ultimul fragment terminat le unește în "hist-GRUP.bin", sub aceeași
+ * blocare, deci o singură dată. Abia apoi devin disponibile unitățile care aplică LUT-ul, toate cu aceeași histogramă.
+ */
+public class WorkQueue {
+    // Termenul implicit al unei revendicări.
+    public static final long DEFAULT_LEASE_MILLIS = 30_000;
+    // De câte ori poate fi revendicată o unitate înainte de a fi considerată eșuată.
+    public static final int MAX_ATTEMPTS = 3;
+    private static final String HEADER = "# equalize-queue v1";
+    // Monitoarele fișierelor de termen între firele aceluiași JVM, împărțite după id-ul unității.
+    private static final Object[] LEASE_MONITORS = new Object[64];
+
+    static {
+        for (int i = 0; i < LEASE_MONITORS.length; i++) {
+            LEASE_MONITORS[i] = new Object();
+        }
+    }
+
+    private final Path directory;
+    private final Path stateFile;
+    private final Path lockFile;
+
+    /**
+     * Deschide coada din director; directorul și fișierul de stare sunt create dacă lipsesc.
+     */
+    public WorkQueue(Path directory) throws IOException {
+        this.directory = directory.toAbsolutePath();
+        this.stateFile = this.directory.resolve("queue.txt");
+        this.lockFile = this.directory.resolve("queue.lock");
+        Files.createDirectories(this.directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Adaugă câte o unitate IMAGE pentru fiecare fișier de intrare.
+     *
+     * param inputs => fișierele de intrare.
+     * param outputDir => directorul rezultatelor, creat dacă lipsește.
+     * param format => formatul rezultatelor; extensia numelui este înlocuită cu a lui.
+     * returneaza numărul de unități adăugate.
+     */
+    public int addImages(List<Path> inputs, Path outputDir, OutputFormat format) throws IOException {
+        Files.createDirectories(outputDir);
+        return locked(true, units -> {
+            int id = nextId(units);
+            for (Path input : inputs) {
+                Path output = outputDir.toAbsolutePath().resolve(format.rename(input.getFileName()));
+                units.add(new WorkUnit(id++, WorkUnit.Kind.IMAGE, -1, input.toAbsolutePath(), output, 0, 0));
+            }
+            return inputs.size();
+        });
+    }
+
+    /**
+     * Împarte o imagine BMP necomprimată în fragmente de rânduri egale (ultimul poate fi mai scurt).
+     * Fișierul rezultat este prealocat aici, ca BMP pe 24 de biți, iar fiecare fragment își scrie apoi rândurile în el.
+     * Prealocarea trunchiază fișierul, deci se face sub blocarea cozii și doar dacă nicio unitate neterminată
+     * nu mai scrie în el.
+     *
+     * param shards => numărul de fragmente; limitat la numărul de rânduri.
+     * returneaza numărul de fragmente.
+     * throws IOException dacă intrarea nu este un BMP necomprimat pe 24 sau 32 de biți, dacă ieșirea este chiar
+     *        intrarea sau dacă ieșirea este încă scrisă de unități din coadă.
+     */
+    public int addShards(Path input, Path output, int shards) throws IOException {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Numărul de fragmente trebuie să fie cel puțin 1: " + shards);
+        }
+        int width;
+        int height;
+        try (MappedBmpReader reader = MappedBmpReader.open(input)) {
+            if (reader == null) {
+                throw new IOException("Fragmentarea acceptă doar BMP necomprimat pe 24 sau 32 de biți: " + input);
+            }
+            width = reader.getWidth();
+            height = reader.getHeight();
+        }
+        Path target = output.toAbsolutePath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        int count = Math.min(shards, height);
+        int rowsPerShard = (height + count - 1) / count;
+        return locked(true, units -> {
+            // Fragmentele citesc intrarea până la ultima unitate, deci ea nu poate fi și ieșirea.
+            if (Files.exists(target) && Files.isSameFile(input, target)) {
+                throw new IOException("Fișierul rezultat este chiar intrarea: " + target);
+            }
+            for (WorkUnit unit : units) {
+                if (unit.output.equals(target) && unit.state != WorkUnit.State.DONE && unit.state != WorkUnit.State.FAILED) {
+                    throw new IOException("Fișierul rezultat este încă scris de unitatea " + unit.id + ": " + target);
+                }
+            }
+            new MappedBmpWriter(target, width, height).close();
+            int id = nextId(units);
+            // Grupul primește id-ul primei unități, deci este unic în coadă.
+            int group = id;
+            int added = 0;
+            for (WorkUnit.Kind kind : new WorkUnit.Kind[] {WorkUnit.Kind.HISTOGRAM, WorkUnit.Kind.APPLY}) {
+                added = 0;
+                for (int y = 0; y < height; y += rowsPerShard, added++) {
+                    units.add(new WorkUnit(id++, kind, group, input.toAbsolutePath(), target, y,
+                            Math.min(height, y + rowsPerShard)));
+                }
+            }
+            return added;
+        });
+    }
+
+    /**
+     * Revendică prima unitate disponibilă: PENDING, sau CLAIMED cu termenul expirat (workerul a murit).
+     * Unitățile APPLY sunt disponibile doar după ce toate unitățile HISTOGRAM ale grupului s-au terminat.
+     *
+     * param worker => numele workerului, unic între procesele care folosesc coada.
+     * param leaseMillis => durata revendicării; trebuie reînnoită cu renew înainte să expire.
+     * returneaza o copie a unității revendicate, sau null dacă acum nu există nimic disponibil.
+     */
+    public WorkUnit claim(String worker, long leaseMillis) throws IOException {
+        return locked(true, units -> {
+            long now = System.currentTimeMillis();
+            for (WorkUnit unit : units) {
+                if (unit.state != WorkUnit.State.PENDING && unit.state != WorkUnit.State.CLAIMED) {
+                    continue;
+                }
+                if (unit.kind == WorkUnit.Kind.APPLY) {
+                    WorkUnit.State histograms = groupState(units, unit.group);
+                    if (histograms == WorkUnit.State.FAILED) {
+                        unit.state = WorkUnit.State.FAILED;
+                        unit.owner = null;
+                        unit.error = "histograma imaginii nu a putut fi calculată";
+                        continue;
+                    }
+                    if (histograms != WorkUnit.State.DONE) {
+                        continue;
+                    }
+                }
+                // Termenul se verifică și se preia sub blocarea lui, ca o reînnoire concurentă să nu se piardă.
+                boolean taken = withLease(unit.id, true, lease -> {
+                    if (unit.state == WorkUnit.State.CLAIMED && leaseUntil(lease, unit) > now) {
+                        return false;
+                    }
+                    if (unit.attempts >= MAX_ATTEMPTS) {
+                        unit.state = WorkUnit.State.FAILED;
+                        unit.error = "termenul a expirat de " + unit.attempts + " ori (ultimul worker: " + unit.owner + ")";
+                        unit.owner = null;
+                        return false;
+                    }
+                    unit.state = WorkUnit.State.CLAIMED;
+                    unit.owner = worker;
+                    unit.leaseUntil = now + leaseMillis;
+                    unit.attempts++;
+                    unit.started = now;
+                    writeLease(lease, worker, unit.leaseUntil);
+                    return true;
+                });
+                if (unit.state == WorkUnit.State.FAILED) {
+                    deleteLease(unit.id);
+                }
+                if (taken) {
+                    return unit.copy();
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Prelungește revendicarea cât timp workerul încă lucrează. Scrie doar fișierul de termen al unității,
+     * fără blocarea cozii.
+     *
+     * returneaza false dacă unitatea nu mai aparține workerului (termenul a expirat și a preluat-o altcineva,
+     *            sau unitatea a fost deja terminată).
+     */
+    public boolean renew(WorkUnit claimed, String worker, long leaseMillis) throws IOException {
+        try {
+            return withLease(claimed.id, false, lease -> {
+                String[] current = readLease(lease);
+                if (current == null || !worker.equals(current[1])) {
+                    return false;
+                }
+                writeLease(lease, worker, System.currentTimeMillis() + leaseMillis);
+                return true;
+            });
+        } catch (NoSuchFileException e) {
+            // complete sau fail au șters deja termenul.
+            return false;
+        }
+    }
+
+    /**
+     * Marchează unitatea terminată. Pentru ultima unitate HISTOGRAM a unui grup, unește histogramele parțiale.
+     *
+     * param pixels => pixelii procesați, pentru debitul agregat.
+     * param nanos => durata lucrului, fără așteptarea la coadă.
+     * returneaza false dacă unitatea nu mai aparține workerului; rezultatul este atunci ignorat.
+     */
+    public boolean complete(WorkUnit claimed, String worker, long pixels, long nanos) throws IOException {
+        return locked(true, units -> {
+            WorkUnit unit = find(units, claimed.id);
+            if (!isOwner(unit, worker)) {
+                return false;
+            }
+            if (unit.kind == WorkUnit.Kind.HISTOGRAM && isLastHistogram(units, unit)) {
+                mergeHistograms(units, unit.group);
+            }
+            // owner rămâne, pentru statistica pe workeri.
+            deleteLease(unit.id);
+            unit.state = WorkUnit.State.DONE;
+            unit.pixels = pixels;
+            unit.nanos = nanos;
+            unit.finished = System.currentTimeMillis();
+            unit.error = null;
+            return true;
+        });
+    }
+
+    /**
+     * Raportează o eroare: unitatea redevine PENDING pentru alt worker, sau FAILED după MAX_ATTEMPTS încercări.
+     */
+    public void fail(WorkUnit claimed, String worker, String error) throws IOException {
+        locked(true, units -> {
+            WorkUnit unit = find(units, claimed.id);
+            if (isOwner(unit, worker)) {
+                deleteLease(unit.id);
+                unit.state = unit.attempts >= MAX_ATTEMPTS ? WorkUnit.State.FAILED : WorkUnit.State.PENDING;
+                unit.owner = null;
+                unit.leaseUntil = 0;
+                unit.error = error;
+            }
+            return null;
+        });
+    }
+
+    // Adevărat dacă toate unitățile sunt DONE sau FAILED.
+    public boolean isFinished() throws IOException {
+        return locked(false, units -> {
+            for (WorkUnit unit : units) {
+                if (unit.state != WorkUnit.State.DONE && unit.state != WorkUnit.State.FAILED) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    // Copii ale tuturor unităților, în ordinea din coadă.
+    public List<WorkUnit> list() throws IOException {
+        return locked(false, units -> {
+            List<WorkUnit> copies = new ArrayList<WorkUnit>(units.size());
+            for (WorkUnit unit : units) {
+                copies.add(unit.copy());
+            }
+            return copies;
+        });
+    }
+
+    // Situația cozii și debitul agregat al tuturor workerilor.
+    public Summary summary() throws IOException {
+        return new Summary(list());
+    }
+
+    // Termenul revendicării unei unități: "ms-de-la-epoch<TAB>worker".
+    Path leaseFile(int id) {
+        return directory.resolve("lease-" + id);
+    }
+
+    // Histograma parțială a unui fragment.
+    Path histogramFile(WorkUnit unit) {
+        return directory.resolve("hist-" + unit.group + "-" + unit.id + ".bin");
+    }
+
+    // Histograma unită a grupului, scrisă de ultimul fragment HISTOGRAM terminat.
+    Path mergedHistogramFile(int group) {
+        return directory.resolve("hist-" + group + ".bin");
+    }
+
+    // Scrie histograma ca 768 de valori long big-endian, printr-un fișier temporar mutat atomic.
+    static void writeHistogram(ChannelHistogram histogram, Path file) throws IOException {
+        long[] counts = histogram.counts();
+        ByteBuffer data = ByteBuffer.allocate(counts.length * 8);
+        data.asLongBuffer().put(counts);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, data.array());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ChannelHistogram readHistogram(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        ChannelHistogram histogram = new ChannelHistogram();
+        long[] counts = histogram.counts();
+        if (data.length != counts.length * 8) {
+            throw new IOException("Histogramă deteriorată: " + file);
+        }
+        ByteBuffer.wrap(data).asLongBuffer().get(counts);
+        return histogram;
+    }
+
+    // DONE dacă toate unitățile HISTOGRAM ale grupului sunt terminate, FAILED dacă vreuna a eșuat, altfel PENDING.
+    private static WorkUnit.State groupState(List<WorkUnit> units, int group) {
+        WorkUnit.State state = WorkUnit.State.DONE;
+        for (WorkUnit unit : units) {
+            if (unit.group == group && unit.kind == WorkUnit.Kind.HISTOGRAM) {
+                if (unit.state == WorkUnit.State.FAILED) {
+                    return WorkUnit.State.FAILED;
+                }
+                if (unit.state != WorkUnit.State.DONE) {
+                    state = WorkUnit.State.PENDING;
+                }
+            }
+        }
+        return state;
+    }
+
+    private static boolean isLastHistogram(List<WorkUnit> units, WorkUnit last) {
+        for (WorkUnit unit : units) {
+            if (unit != last && unit.group == last.group && unit.kind == WorkUnit.Kind.HISTOGRAM
+                    && unit.state != WorkUnit.State.DONE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void mergeHistograms(List<WorkUnit> units, int group) throws IOException {
+        ChannelHistogram merged = new ChannelHistogram();
+        for (WorkUnit unit : units) {
+            if (unit.group == group && unit.kind == WorkUnit.Kind.HISTOGRAM) {
+                merged.merge(readHistogram(histogramFile(unit)));
+            }
+        }
+        writeHistogram(merged, mergedHistogramFile(group));
+    }
+
+    /**
+     * Execută acțiunea sub blocarea fișierului de termen al unității: între fire prin monitorul id-ului, între procese
+     * prin FileChannel.lock pe fișier. Fișierul se rescrie pe loc, nu prin mutare, ca blocarea să rămână pe același fișier;
+     * un worker oprit la jumătatea scrierii lasă un termen ilizibil, tratat ca expirat.
+     *
+     * param create => dacă fișierul este creat când lipsește; altfel lipsa lui aruncă NoSuchFileException.
+     */
+    private <T> T withLease(int id, boolean create, LeaseAction<T> action) throws IOException {
+        synchronized (LEASE_MONITORS[Math.floorMod(id, LEASE_MONITORS.length)]) {
+            try (FileChannel channel = create
+                    ? FileChannel.open(leaseFile(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(leaseFile(id), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.lock();
+                return action.apply(channel);
+            }
+        }
+    }
+
+    // Termenul citit din fișier ca {ms, worker}, sau null dacă fișierul este gol sau deteriorat.
+    private static String[] readLease(FileChannel lease) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(lease.size(), 4096));
+        int read = 0;
+        while (data.hasRemaining() && read >= 0) {
+            read = lease.read(data, data.position());
+        }
+        String text = new String(data.array(), 0, data.position(), StandardCharsets.UTF_8);
+        int tab = text.indexOf('\t');
+        if (tab < 0 || !text.endsWith("\n")) {
+            return null;
+        }
+        try {
+            Long.parseLong(text.substring(0, tab));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new String[] {text.substring(0, tab), text.substring(tab + 1, text.length() - 1)};
+    }
+
+    private static void writeLease(FileChannel lease, String worker, long until) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap((until + "\t" + worker + "\n").getBytes(StandardCharsets.UTF_8));
+        lease.truncate(0);
+        while (data.hasRemaining()) {
+            lease.write(data, data.position());
+        }
+    }
+
+    // Termenul unei unități CLAIMED; fără fișier valid, cel scris în coadă la revendicare.
+    private static long leaseUntil(FileChannel lease, WorkUnit unit) throws IOException {
+        String[] current = readLease(lease);
+        return current != null && current[1].equals(unit.owner) ? Long.parseLong(current[0]) : unit.leaseUntil;
+    }
+
+    // Se apelează sub blocarea cozii, când unitatea nu mai este revendicată.
+    private void deleteLease(int id) throws IOException {
+        synchronized (LEASE_MONITORS[Math.floorMod(id, LEASE_MONITORS.length)]) {
+            Files.deleteIfExists(leaseFile(id));
+        }
+    }
+
+    private static boolean isOwner(WorkUnit unit, String worker) {
+        return unit != null && unit.state == WorkUnit.State.CLAIMED && worker.equals(unit.owner);
+    }
+
+    private static WorkUnit find(List<WorkUnit> units, int id) {
+        for (WorkUnit unit : units) {
+            if (unit.id == id) {
+                return unit;
+            }
+        }
+        return null;
+    }
+
+    private static int nextId(List<WorkUnit> units) {
+        int next = 1;
+        for (WorkUnit unit : units) {
+            next = Math.max(next, unit.id + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Execută acțiunea sub blocarea cozii: între fire prin monitorul clasei (FileChannel.lock nu poate fi luat de două
+     * ori în același JVM), între procese prin blocarea exclusivă a fișierului "queue.lock".
+     *
+     * param write => dacă starea modificată trebuie rescrisă.
+     */
+    private <T> T locked(boolean write, QueueAction<T> action) throws IOException {
+        synchronized (WorkQueue.class) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Blocarea se eliberează la închiderea canalului.
+                channel.lock();
+                List<WorkUnit> units = read();
+                T result = action.apply(units);
+                if (write) {
+                    write(units);
+                }
+                return result;
+            }
+        }
+    }
+
+    private List<WorkUnit> read() throws IOException {
+        List<WorkUnit> units = new ArrayList<WorkUnit>();
+        if (!Files.exists(stateFile)) {
+            return units;
+        }
+        for (String line : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                units.add(WorkUnit.parse(line));
+            }
+        }
+        return units;
+    }
+
+    // Starea este rescrisă integral; mutarea atomică face ca un proces oprit la jumătate să lase fișierul vechi intact.
+    private void write(List<WorkUnit> units) throws IOException {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        for (WorkUnit unit : units) {
+            sb.append(unit.format()).append('\n');
+        }
+        Path temp = stateFile.resolveSibling("queue.txt.tmp");
+        Files.write(temp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Modificarea stării cozii; poate arunca IOException (de exemplu la unirea histogramelor).
+    private interface QueueAction<T> {
+        T apply(List<WorkUnit> units) throws IOException;
+    }
+
+    // Citirea sau modificarea termenului unei unități, cu fișierul lui deja blocat.
+    private interface LeaseAction<T> {
+        T apply(FileChannel lease) throws IOException;
+    }
+
+    /**
+     * Situația cozii: câte unități sunt în fiecare stare și, pentru fiecare worker, câte unități a terminat, câți pixeli
+     * și cât timp a lucrat. Debitul agregat împarte pixelii egalizați (IMAGE și APPLY; HISTOGRAM doar citește)
+     * la intervalul dintre prima revendicare și ultima terminare, deci include paralelismul tuturor proceselor.
+     */
+    public static final class Summary {
+        private final int[] states = new int[WorkUnit.State.values().length];
+        private final Map<String, long[]> workers = new TreeMap<String, long[]>();
+        private final List<WorkUnit> failed = new ArrayList<WorkUnit>();
+        private long pixels;
+        private long busyNanos;
+        private long first = Long.MAX_VALUE;
+        private long last;
+
+        Summary(List<WorkUnit> units) {
+            for (WorkUnit unit : units) {
+                states[unit.state.ordinal()]++;
+                if (unit.state == WorkUnit.State.FAILED) {
+                    failed.add(unit);
+                }
+                if (unit.state != WorkUnit.State.DONE) {
+                    continue;
+                }
+                long equalized = unit.kind == WorkUnit.Kind.HISTOGRAM ? 0 : unit.pixels;
+                pixels += equalized;
+                busyNanos += unit.nanos;
+                // unități, pixeli egalizați, ns de lucru
+                long[] worker = workers.computeIfAbsent(String.valueOf(unit.owner), name -> new long[3]);
+                worker[0]++;
+                worker[1] += equalized;
+                worker[2] += unit.nanos;
+                first = Math.min(first, unit.started);
+                last = Math.max(last, unit.finished);
+            }
+        }
+
+        public int getCount(WorkUnit.State state) {
+            return states[state.ordinal()];
+        }
+
+        public long getPixels() {
+            return pixels;
+        }
+
+        // Milisecundele dintre prima revendicare și ultima terminare.
+        public long getWallMillis() {
+            return last > first ? last - first : 0;
+        }
+
+        // Megapixeli egalizați pe secundă, pentru toți workerii împreună.
+        public double getMegapixelsPerSecond() {
+            long wall = getWallMillis();
+            return wall > 0 ? pixels / (wall * 1e3) : 0;
+        }
+
+        public List<WorkUnit> getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "unități: %d în așteptare, %d în lucru, %d terminate, %d eșuate%n",
+                    getCount(WorkUnit.State.PENDING), getCount(WorkUnit.State.CLAIMED),
+                    getCount(WorkUnit.State.DONE), getCount(WorkUnit.State.FAILED)));
+            sb.append(String.format(Locale.ROOT, "debit agregat: %.1f MP în %.2f s = %.1f MP/s (%.2f s de lucru însumat)%n",
+                    pixels / 1e6, getWallMillis() / 1e3, getMegapixelsPerSecond(), busyNanos / 1e9));
+            for (Map.Entry<String, long[]> worker : workers.entrySet()) {
+                long[] w = worker.getValue();
+                sb.append(String.format(Locale.ROOT, "  %-24s %5d unități  %8.1f MP  %7.2f s  %6.1f MP/s%n", worker.getKey(),
+                        w[0], w[1] / 1e6, w[2] / 1e9, w[2] > 0 ? w[1] * 1e3 / w[2] : 0));
+            }
+            for (WorkUnit unit : failed) {
+                sb.append("eșuat ").append(unit).append(": ").append(unit.error).append(System.lineSeparator());
+            }
+            return sb.toString();
+        }
+    }
+}
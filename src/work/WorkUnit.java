@@ -0,0 +1,163 @@
+package work;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * O unitate de lucru din WorkQueue: o imagine întreagă sau un fragment de rânduri al unei imagini mari.
+ * Instanțele întoarse de coadă sunt copii ale stării de la momentul cererii; starea reală este doar în fișierul cozii.
+ *
+ * Fragmentele unei imagini formează un grup și au două faze: HISTOGRAM (fiecare fragment își numără rândurile,
+ * iar ultimul terminat unește histogramele) și APPLY (fiecare fragment aplică LUT-ul histogramei unite pe rândurile
+ * lui, în fișierul rezultat prealocat). Unitățile APPLY ale unui grup pot fi luate doar după toate cele HISTOGRAM.
+ */
+public final class WorkUnit {
+
+    public enum Kind {
+        // Imagine întreagă, egalizată pe canale și scrisă în formatul dat de extensia ieșirii.
+        IMAGE,
+        // Histograma rândurilor [fromRow, toRow) ale unui fragment.
+        HISTOGRAM,
+        // LUT-ul histogramei unite, aplicat pe rândurile [fromRow, toRow) ale unui fragment.
+        APPLY
+    }
+
+    public enum State {
+        PENDING,
+        CLAIMED,
+        DONE,
+        FAILED
+    }
+
+    final int id;
+    final Kind kind;
+    // Grupul fragmentelor aceleiași imagini; -1 pentru IMAGE.
+    final int group;
+    final Path input;
+    final Path output;
+    final int fromRow;
+    final int toRow;
+    State state = State.PENDING;
+    // Workerul care deține unitatea (pentru DONE, cel care a terminat-o), sau null.
+    String owner;
+    // Până când este valabilă revendicarea (ms de la epoch), cum a fost dată la claim; reînnoirile se scriu doar
+    // în fișierul de termen al unității (WorkQueue.leaseFile). După termen, unitatea poate fi luată de alt worker.
+    long leaseUntil;
+    int attempts;
+    long pixels;
+    long nanos;
+    long started;
+    long finished;
+    // Ultima eroare raportată, sau null.
+    String error;
+
+    WorkUnit(int id, Kind kind, int group, Path input, Path output, int fromRow, int toRow) {
+        this.id = id;
+        this.kind = kind;
+        this.group = group;
+        this.input = input;
+        this.output = output;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getGroup() {
+        return group;
+    }
+
+    public Path getInput() {
+        return input;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    public int getFromRow() {
+        return fromRow;
+    }
+
+    public int getToRow() {
+        return toRow;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    WorkUnit copy() {
+        WorkUnit copy = new WorkUnit(id, kind, group, input, output, fromRow, toRow);
+        copy.state = state;
+        copy.owner = owner;
+        copy.leaseUntil = leaseUntil;
+        copy.attempts = attempts;
+        copy.pixels = pixels;
+        copy.nanos = nanos;
+        copy.started = started;
+        copy.finished = finished;
+        copy.error = error;
+        return copy;
+    }
+
+    // id, tip, stare, worker, termen, încercări, grup, intrare, ieșire, rânduri, pixeli, ns, început, sfârșit, eroare, ".".
+    String format() {
+        return String.valueOf(id) + '\t' + kind + '\t' + state + '\t' + (owner != null ? RunManifest.escape(owner) : "-")
+                + '\t' + leaseUntil + '\t' + attempts + '\t' + group + '\t' + RunManifest.escape(input.toString())
+                + '\t' + RunManifest.escape(output.toString()) + '\t' + fromRow + '\t' + toRow + '\t' + pixels
+                + '\t' + nanos + '\t' + started + '\t' + finished + '\t' + (error != null ? RunManifest.escape(error) : "-")
+                + "\t.";
+    }
+
+    /**
+     * Interpretează o linie scrisă de format.
+     *
+     * throws IllegalArgumentException dacă linia este incompletă sau deteriorată.
+     */
+    static WorkUnit parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 17 || !fields[16].equals(".")) {
+            throw new IllegalArgumentException("Linie invalidă în coadă: " + line);
+        }
+        WorkUnit unit = new WorkUnit(Integer.parseInt(fields[0]), Kind.valueOf(fields[1]), Integer.parseInt(fields[6]),
+                Paths.get(RunManifest.unescape(fields[7])), Paths.get(RunManifest.unescape(fields[8])),
+                Integer.parseInt(fields[9]), Integer.parseInt(fields[10]));
+        unit.state = State.valueOf(fields[2]);
+        unit.owner = fields[3].equals("-") ? null : RunManifest.unescape(fields[3]);
+        unit.leaseUntil = Long.parseLong(fields[4]);
+        unit.attempts = Integer.parseInt(fields[5]);
+        unit.pixels = Long.parseLong(fields[11]);
+        unit.nanos = Long.parseLong(fields[12]);
+        unit.started = Long.parseLong(fields[13]);
+        unit.finished = Long.parseLong(fields[14]);
+        unit.error = fields[15].equals("-") ? null : RunManifest.unescape(fields[15]);
+        return unit;
+    }
+
+    @Override
+    public String toString() {
+        String target = kind == Kind.IMAGE ? input.getFileName().toString()
+                : input.getFileName() + " rândurile " + fromRow + ".." + toRow;
+        return "#" + id + " " + kind.name().toLowerCase(Locale.ROOT) + " " + target;
+    }
+}
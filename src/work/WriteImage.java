@@ -1,115 +1,243 @@
-package work;
-
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.IOException;
-import java.io.PipedInputStream;
-import java.nio.ByteBuffer;
-
-// Clasa WriteImage este responsabilă pentru recepționarea și scrierea imaginii procesate.
-public class WriteImage extends Thread implements InterfaceFunction {
-    // Streamul de intrare pentru a primi datele imaginii procesate.
-    private PipedInputStream input;
-    // Variabilă pentru monitorizarea timpului de scriere al imaginii.
-    private long timeWrite;
-    // Calea către fișierul unde va fi salvată imaginea procesată.
-    private String outputPath;
-
-    // Constructorul clasei WriteImage.
-    public WriteImage(PipedInputStream input, String outputPath) {
-        this.input = input;
-        this.outputPath = outputPath;
-    }
-    static int mesaj;
-    static {
-    	System.out.println("Incepem scrierea in fisier.");
-    }
-
-    // Metoda run care este executată atunci când thread-ul este pornit.
-    @Override
-    public void run() {
-        try {
-        	timeWrite = System.currentTimeMillis();
-            // Inițializează o imagine combinată pentru a reasambla segmentele primite.
-            BufferedImage combinedImage = null;
-
-            // Procesul de citire a fiecărui segment din Pipe și adăugarea acestuia la imaginea combinată.
-            for (int i = 0; i < 4; i++) {
-                byte[] segmentData = readSegmentFromPipe();
-                BufferedImage segment = ImageIO.read(new ByteArrayInputStream(segmentData));
-
-                // Inițializează imaginea combinată cu dimensiunile adecvate.
-                if (i == 0) {
-                    combinedImage = new BufferedImage(segment.getWidth(), segment.getHeight() * 4, BufferedImage.TYPE_INT_RGB);
-                }
-
-                // Verifică dacă segmentul și imaginea combinată sunt valide și adaugă segmentul la imaginea combinată.
-                if (segment != null && combinedImage != null) {
-                    combinedImage.getGraphics().drawImage(segment, 0, i * segment.getHeight(), null);
-                    System.out.println("Segmentul " + (i + 1) + " a fost recepționat și adăugat.");
-                    Thread.sleep(1000);
-                }
-            }
-
-            // Verifică dacă imaginea combinată a fost creată cu succes și o scrie în fișier.
-            if (combinedImage != null) {
-                File outputFile = new File(outputPath);
-                ImageIO.write(combinedImage, "bmp", outputFile);
-                System.out.println("Imaginea a fost scrisă în: " + outputPath);
-            }
-
-            // Calculează timpul total necesar pentru scrierea imaginii.
-            timeWrite = System.currentTimeMillis() - timeWrite;
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} finally {
-            // Închide streamul de intrare.
-            try {
-                input.close();
-            } catch (IOException e) {
-              e.printStackTrace();
-            }
-}
-}
-
-/**
- * Citeste un segment de imagine din Pipe. Această metodă se ocupă de citirea
- * dimensiunii segmentului și apoi a datelor efective ale segmentului.
- * 
- * returneaza un array de bytes care reprezintă datele segmentului de imagine.
- * throws IOException Dacă apare o eroare în timpul citirii din pipe.
- */
-private byte[] readSegmentFromPipe() throws IOException {
-    // Citeste mai întâi dimensiunea segmentului.
-    byte[] sizeInfo = new byte[4];
-    if (input.read(sizeInfo) != 4) throw new IOException("Nu s-au putut citi informațiile despre dimensiunea segmentului.");
-    int segmentSize = ByteBuffer.wrap(sizeInfo).getInt();
-
-    // Citeste datele segmentului.
-    byte[] segmentData = new byte[segmentSize];
-    int bytesRead = 0;
-    while (bytesRead < segmentSize) {
-        int result = input.read(segmentData, bytesRead, segmentSize - bytesRead);
-        if (result == -1) throw new IOException("Sfârșitul stream-ului a fost atins prematur.");
-        bytesRead += result;
-    }
-    return segmentData;
-}
-
-/**
- * Calculează și afișează timpul necesar pentru scrierea întregii imagini.
- * Această metodă este utilă pentru a evalua performanța procesului de scriere.
- *
- * returneaza Timpul de scriere al imaginii, în secunde.
- */
-@Override
-public long timpScriere() {
-    System.out.println("Scrierea imaginii a durat " + timeWrite / 1000.0f + " secunde");
-    return timeWrite;
-}
+package work;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Clasa WriteImage este responsabilă pentru recepționarea și scrierea imaginii procesate.
+public class WriteImage extends Thread implements InterfaceFunction {
+    // Transportul prin care se primesc segmentele imaginii procesate.
+    private SegmentTransport input;
+    // Variabilă pentru monitorizarea timpului de scriere al imaginii.
+    private long timeWrite;
+    // Calea către fișierul unde va fi salvată imaginea procesată.
+    private String outputPath;
+    // Rezerva din care se ia imaginea combinată; null înseamnă o imagine nouă.
+    private RasterPool rasterPool;
+    // Formatul fișierului rezultat; null înseamnă formatul dat de extensia lui outputPath.
+    private OutputFormat format;
+    // Profilul de execuție și evenimentele de progres ale etapei de scriere.
+    private final StageReporter reporter = new StageReporter(ProgressEvent.Stage.WRITE);
+    // Devine true după ce fișierul rezultat a fost scris complet, cu fiecare pixel acoperit de un segment.
+    private volatile boolean written;
+
+    // Constructorul clasei WriteImage; segmentele sunt citite în formatul vechi, BMP prefixat de lungime.
+    public WriteImage(PipedInputStream input, String outputPath) {
+        this(new BmpStreamSegmentTransport(input), outputPath);
+    }
+
+    // Constructorul clasei WriteImage cu un transport ales de apelant (de exemplu RasterSegmentTransport).
+    public WriteImage(SegmentTransport input, String outputPath) {
+        this.input = input;
+        this.outputPath = outputPath;
+    }
+    static int mesaj;
+    static {
+    	System.out.println("Incepem scrierea in fisier.");
+    }
+
+    // Ia imaginea combinată din rezervă și o înapoiază după scrierea fișierului.
+    public void setRasterPool(RasterPool rasterPool) {
+        this.rasterPool = rasterPool;
+    }
+
+    // Alege formatul fișierului (BMP, PNG sau RAW); implicit se deduce din extensia căii de ieșire.
+    public void setOutputFormat(OutputFormat format) {
+        this.format = format;
+    }
+
+    // Alege profilul de execuție; implicit THROUGHPUT, DEMO păstrează pauzele și mesajele pentru fiecare segment.
+    public void setProfile(ExecutionProfile profile) {
+        reporter.setProfile(profile);
+    }
+
+    // Setează distribuitorul la care etapa își publică evenimentele de progres.
+    public void setProgressEvents(ProgressEvents events) {
+        reporter.setEvents(events);
+    }
+
+    // Înregistrează măsurătorile etapei (latențe, așteptarea la transport, octeți, pixeli) în registrul comun.
+    public void setMetrics(PipelineMetrics metrics) {
+        reporter.setMetrics(metrics);
+    }
+
+    public StageMetrics getMetrics() {
+        return reporter.getMetrics();
+    }
+
+    // Adevărat dacă run a scris fișierul rezultat; fals dacă nu a primit nicio imagine, imaginea era incompletă sau scrierea a eșuat.
+    public boolean isWritten() {
+        return written;
+    }
+
+    // Metoda run care este executată atunci când thread-ul este pornit.
+    @Override
+    public void run() {
+        try {
+            // Inițializează o imagine combinată pentru a reasambla segmentele primite.
+            BufferedImage combinedImage = null;
+            // Segmentele care nu cunosc dimensiunile imaginii complete se păstrează până la finalul transmisiei.
+            List<ImageSegment> pending = new ArrayList<ImageSegment>();
+            // Indecșii segmentelor așezate și aria acoperită de ele; fișierul se scrie doar dacă aria este toată imaginea.
+            Set<Integer> placed = new HashSet<Integer>();
+            long covered = 0;
+            reporter.stageStarted();
+            long stageStart = System.nanoTime();
+            long receivedBytes = 0;
+
+            // Procesul de primire a fiecărui segment și adăugarea acestuia la imaginea combinată.
+            for (int i = 0; ; i++) {
+                long segmentStart = System.nanoTime();
+                reporter.segmentStarted(i);
+                ImageSegment segment = input.receive();
+                long received = System.nanoTime();
+                reporter.transportBlocked(received - segmentStart);
+                if (segment == null) {
+                    break;
+                }
+                receivedBytes += segment.byteSize();
+                reporter.pixels((long) segment.getImage().getWidth() * segment.getImage().getHeight());
+
+                if (segment.hasTotalSize()) {
+                    // Dalele pot sosi în orice ordine; fiecare este așezată imediat la poziția ei, fără să le aștepte pe celelalte.
+                    // Inițializează imaginea combinată cu dimensiunile transmise odată cu segmentul.
+                    if (combinedImage == null) {
+                        combinedImage = allocate(segment.getTotalWidth(), segment.getTotalHeight(), segment.getImage());
+                    }
+                    covered += checkPlacement(combinedImage, segment, placed);
+                    placeSegment(combinedImage, segment);
+                } else {
+                    pending.add(segment);
+                }
+
+                if (reporter.isDemo()) {
+                    System.out.println("Segmentul " + (i + 1) + " a fost recepționat și adăugat.");
+                }
+                reporter.segmentFinished(i, segment.byteSize(), System.nanoTime() - received);
+                reporter.pace();
+            }
+
+            // Pentru formatul vechi, dimensiunile reies din segmentele primite: lățimea lor și ultimul rând ocupat.
+            if (!pending.isEmpty()) {
+                int width = 0;
+                int height = 0;
+                for (ImageSegment segment : pending) {
+                    width = Math.max(width, segment.getX() + segment.getImage().getWidth());
+                    height = Math.max(height, segment.getY() + segment.getImage().getHeight());
+                }
+                combinedImage = allocate(width, height, pending.get(0).getImage());
+                for (ImageSegment segment : pending) {
+                    covered += checkPlacement(combinedImage, segment, placed);
+                    placeSegment(combinedImage, segment);
+                }
+            }
+
+            // Verifică dacă imaginea combinată a fost creată cu succes și o scrie în fișier.
+            if (combinedImage != null) {
+                long total = (long) combinedImage.getWidth() * combinedImage.getHeight();
+                if (covered != total) {
+                    throw new IOException("Imaginea primită este incompletă: " + covered + " din " + total
+                            + " pixeli; fișierul " + outputPath + " nu a fost scris.");
+                }
+                // BMP-ul este prealocat și completat prin maparea fișierului; PNG și RAW se scriu printr-un FileChannel cu buffer.
+                Path output = Paths.get(outputPath);
+                (format != null ? format : OutputFormat.forPath(output)).write(combinedImage, output);
+                written = true;
+                System.out.println("Imaginea a fost scrisă în: " + outputPath);
+                if (rasterPool != null) {
+                    rasterPool.release(combinedImage);
+                }
+            }
+
+            // Calculează timpul total necesar pentru scrierea imaginii.
+            long stageNanos = System.nanoTime() - stageStart;
+            reporter.stageFinished(receivedBytes, stageNanos);
+            timeWrite = TimeUnit.NANOSECONDS.toMillis(stageNanos);
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            System.err.println("Eroare la recepționarea sau scrierea imaginii: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Thread-ul a fost întrerupt: " + e.getMessage());
+        } finally {
+            // Închide transportul; un ImageProcess care încă trimite primește o eroare în loc să aștepte la nesfârșit.
+            try {
+                input.close();
+            } catch (IOException e) {
+                System.err.println("Eroare la închiderea transmisiei: " + e.getMessage());
+            }
+        }
+    }
+
+/**
+ * Imaginea combinată, de același tip ca segmentele, ca alpha și dimensiunea pixelului sursei să ajungă în fișier;
+ * TYPE_INT_RGB dacă segmentele au un tip nestandard. Fiecare pixel este acoperit de un segment.
+ */
+private BufferedImage allocate(int width, int height, BufferedImage sample) {
+    int type = sample.getType();
+    if (type == BufferedImage.TYPE_CUSTOM || sample.getColorModel() instanceof IndexColorModel) {
+        type = BufferedImage.TYPE_INT_RGB;
+    }
+    return rasterPool != null ? rasterPool.acquire(width, height, type) : new BufferedImage(width, height, type);
+}
+
+/**
+ * Verifică un segment înainte de a fi așezat: același index nu poate sosi de două ori, iar dala trebuie
+ * să fie în întregime în imaginea combinată, cu aceleași dimensiuni totale ca primul segment.
+ *
+ * returneaza numărul de pixeli acoperiți de segment.
+ * throws IOException dacă segmentul se repetă sau iese din imagine.
+ */
+private static long checkPlacement(BufferedImage combinedImage, ImageSegment segment, Set<Integer> placed) throws IOException {
+    BufferedImage image = segment.getImage();
+    int width = combinedImage.getWidth();
+    int height = combinedImage.getHeight();
+    if (segment.hasTotalSize() && (segment.getTotalWidth() != width || segment.getTotalHeight() != height)) {
+        throw new IOException("Segmentul " + segment.getIndex() + " are alte dimensiuni totale decât imaginea.");
+    }
+    if (segment.getX() < 0 || segment.getY() < 0 || segment.getX() > width - image.getWidth()
+            || segment.getY() > height - image.getHeight()) {
+        throw new IOException("Segmentul " + segment.getIndex() + " iese din imaginea de " + width + "x" + height + ".");
+    }
+    if (!placed.add(segment.getIndex())) {
+        throw new IOException("Segmentul " + segment.getIndex() + " a fost primit de două ori.");
+    }
+    return (long) image.getWidth() * image.getHeight();
+}
+
+/**
+ * Copiază un segment la poziția lui în imaginea combinată.
+ * Dacă tipurile coincid, rândurile se copiază direct între rastere; altfel se face conversia prin Graphics.
+ */
+private static void placeSegment(BufferedImage combinedImage, ImageSegment segment) {
+    BufferedImage image = segment.getImage();
+    if (image.getType() == combinedImage.getType()) {
+        combinedImage.getRaster().setRect(segment.getX(), segment.getY(), image.getRaster());
+    } else {
+        Graphics g = combinedImage.getGraphics();
+        g.drawImage(image, segment.getX(), segment.getY(), null);
+        g.dispose();
+    }
+}
+
+/**
+ * Calculează și afișează timpul necesar pentru scrierea întregii imagini.
+ * Această metodă este utilă pentru a evalua performanța procesului de scriere.
+ * Valorile detaliate (percentile pe segment, timpul de așteptare la transport) sunt în getMetrics().
+ *
+ * returneaza Timpul de scriere al imaginii, în milisecunde.
+ */
+@Override
+public long timpScriere() {
+    System.out.println("Scrierea imaginii a durat " + timeWrite / 1000.0f + " secunde");
+    return timeWrite;
+}
 }
\ No newline at end of file